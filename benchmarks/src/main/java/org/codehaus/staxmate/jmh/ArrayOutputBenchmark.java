@@ -0,0 +1,86 @@
+package org.codehaus.staxmate.jmh;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.staxmate.out.*;
+
+/**
+ * Benchmarks for writing long numeric series: one "series" element
+ * per record, each containing 100 double values. Compares converting
+ * values to text by hand with typed array output, both written
+ * directly and buffered.
+ * Result is the length of the output document.
+ */
+public class ArrayOutputBenchmark
+    extends BenchmarkBase
+{
+    private final static int VALUES_PER_SERIES = 100;
+
+    private final double[] _values = new double[VALUES_PER_SERIES];
+    {
+        for (int i = 0; i < _values.length; ++i) {
+            _values[i] = i * 0.37 - 5.0;
+        }
+    }
+
+    @Benchmark
+    public int stringValues() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        SMOutputElement root = doc.addElement("feed");
+        for (int i = 0; i < records; ++i) {
+            SMOutputElement series = root.addElement("series");
+            for (int j = 0; j < _values.length; ++j) {
+                if (j > 0) {
+                    series.addCharacters(" ");
+                }
+                series.addCharacters(String.valueOf(_values[j]));
+            }
+        }
+        doc.closeRoot();
+        return out.size();
+    }
+
+    @Benchmark
+    public int typedArray() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        SMOutputElement root = doc.addElement("feed");
+        for (int i = 0; i < records; ++i) {
+            root.addElement("series").addValue(_values, 0, _values.length);
+        }
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Same as {@link #typedArray}, but with all content buffered
+     * until the end
+     */
+    @Benchmark
+    public int typedArrayBuffered() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        SMOutputElement root = doc.addElement("feed");
+        SMBufferedFragment header = root.createBufferedFragment();
+        root.addBuffered(header);
+        for (int i = 0; i < records; ++i) {
+            root.addElement("series").addValue(_values, 0, _values.length);
+        }
+        header.addElement("count").addValue(records);
+        header.release();
+        doc.closeRoot();
+        return out.size();
+    }
+
+    private ByteArrayOutputStream _outputBuffer() {
+        return new ByteArrayOutputStream(records * VALUES_PER_SERIES * 8);
+    }
+}
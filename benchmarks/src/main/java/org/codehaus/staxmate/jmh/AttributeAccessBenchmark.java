@@ -0,0 +1,59 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.in.*;
+
+/**
+ * Benchmarks for accessing typed attribute values by name, for
+ * elements with 15 attributes each (see {@link TestDocuments#attributeDoc}).
+ * Attributes are accessed in reverse document order, to avoid
+ * favoring implementations that scan attributes linearly.
+ * Result is the sum of all attribute values.
+ */
+public class AttributeAccessBenchmark
+    extends BenchmarkBase
+{
+    private final static String[] NAMES = TestDocuments.ATTR_NAMES;
+
+    protected byte[] createDocument()
+    {
+        return TestDocuments.attributeDocBytes(records);
+    }
+
+    @Benchmark
+    public long rawStax2() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        sr.nextTag(); // trades
+        long total = 0L;
+        while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            for (int i = NAMES.length; --i >= 0; ) {
+                total += sr.getAttributeAsInt(sr.getAttributeIndex("", NAMES[i]));
+            }
+            sr.nextTag();
+        }
+        sr.closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public long cursorByName() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor tradeC = rootC.childElementCursor();
+        long total = 0L;
+        while (tradeC.getNext() != null) {
+            for (int i = NAMES.length; --i >= 0; ) {
+                total += tradeC.getAttrIntValue(NAMES[i], 0);
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+}
@@ -0,0 +1,71 @@
+package org.codehaus.staxmate.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.SMOutputFactory;
+
+/**
+ * Shared base for StaxMate benchmarks: contains Stax implementation
+ * parameterization, and factories and test document constructed
+ * for each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class BenchmarkBase
+{
+    @Param({ StaxImpl.WOODSTOX, StaxImpl.AALTO, StaxImpl.SJSXP })
+    public String impl;
+
+    @Param({ "1000" })
+    public int records;
+
+    protected SMInputFactory _inputFactory;
+
+    protected SMOutputFactory _outputFactory;
+
+    /**
+     * Test document (by default, see {@link TestDocuments#recordDoc})
+     * as UTF-8 encoded bytes.
+     */
+    protected byte[] _doc;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        _inputFactory = new SMInputFactory(StaxImpl.inputFactory(impl));
+        _outputFactory = new SMOutputFactory(StaxImpl.outputFactory(impl));
+        _doc = createDocument();
+    }
+
+    /**
+     * Method called during trial setup to create the test document;
+     * benchmarks that need differently shaped input can override it.
+     */
+    protected byte[] createDocument()
+    {
+        return TestDocuments.recordDocBytes(records);
+    }
+
+    /**
+     * Helper method for constructing raw (but Stax2-adapted, if need be)
+     * stream reader, for baseline measurements. Adaptation is done
+     * to make sure both baseline and StaxMate use the same
+     * reader instance type.
+     */
+    protected XMLStreamReader2 rawReader()
+        throws XMLStreamException
+    {
+        return _inputFactory.createStax2Reader(_doc, 0, _doc.length);
+    }
+}
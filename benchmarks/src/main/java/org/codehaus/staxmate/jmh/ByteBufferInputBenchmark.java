@@ -0,0 +1,57 @@
+package org.codehaus.staxmate.jmh;
+
+import java.nio.ByteBuffer;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+
+/**
+ * Benchmarks for reading documents contained in a direct (off-heap)
+ * {@link ByteBuffer}: either by first copying contents into a byte
+ * array (as was needed before byte buffer input was supported), or
+ * by reading the buffer directly. Result is the number of
+ * record elements read.
+ */
+public class ByteBufferInputBenchmark
+    extends BenchmarkBase
+{
+    protected ByteBuffer _directBuffer;
+
+    @Setup(Level.Trial)
+    public void setupBuffer()
+    {
+        _directBuffer = ByteBuffer.allocateDirect(_doc.length);
+        _directBuffer.put(_doc);
+        _directBuffer.flip();
+    }
+
+    @Benchmark
+    public int copyToArray() throws XMLStreamException
+    {
+        ByteBuffer bb = _directBuffer.duplicate();
+        byte[] data = new byte[bb.remaining()];
+        bb.get(data);
+        return _countRecords(_inputFactory.rootElementCursor(data, 0, data.length));
+    }
+
+    @Benchmark
+    public int directBuffer() throws XMLStreamException
+    {
+        return _countRecords(_inputFactory.rootElementCursor(_directBuffer));
+    }
+
+    private int _countRecords(SMInputCursor rootC) throws XMLStreamException
+    {
+        rootC.advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        int count = 0;
+        while (recordC.getNext() != null) {
+            ++count;
+        }
+        rootC.getStreamReader().closeCompletely();
+        return count;
+    }
+}
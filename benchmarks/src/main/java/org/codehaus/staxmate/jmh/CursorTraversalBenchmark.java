@@ -0,0 +1,96 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.in.*;
+
+/**
+ * Benchmarks that measure per-event overhead of basic cursor
+ * iteration, compared to iterating over the same document using
+ * raw {@link XMLStreamReader2}.
+ * Each benchmark returns the number of element start events seen, to
+ * both prevent dead code elimination and to allow sanity checking.
+ */
+public class CursorTraversalBenchmark
+    extends BenchmarkBase
+{
+    @Benchmark
+    public int rawStax2() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        int count = 0;
+        while (sr.hasNext()) {
+            if (sr.next() == XMLStreamConstants.START_ELEMENT) {
+                ++count;
+            }
+        }
+        sr.close();
+        return count;
+    }
+
+    /**
+     * Traversal using nested child cursors, which is the typical
+     * way StaxMate is used to process record-oriented documents
+     */
+    @Benchmark
+    public int hierarchicCursor() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        int count = 1 + _countElements(rootC.childElementCursor());
+        rootC.getStreamReader().closeCompletely();
+        return count;
+    }
+
+    @Benchmark
+    public int flatteningCursor() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        SMInputCursor crsr = SMInputFactory.flatteningCursor(sr,
+                SMFilterFactory.getElementOnlyFilter());
+        int count = 0;
+        SMEvent evt;
+        while ((evt = crsr.getNext()) != null) {
+            if (evt == SMEvent.START_ELEMENT) {
+                ++count;
+            }
+        }
+        sr.closeCompletely();
+        return count;
+    }
+
+    /**
+     * Variant of flattening cursor traversal where all events are
+     * iterated over (not just elements), to expose cost of handling
+     * non-element events.
+     */
+    @Benchmark
+    public int flatteningCursorAllEvents() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        SMInputCursor crsr = SMInputFactory.flatteningCursor(sr, null);
+        int count = 0;
+        SMEvent evt;
+        while ((evt = crsr.getNext()) != null) {
+            if (evt == SMEvent.START_ELEMENT) {
+                ++count;
+            }
+        }
+        sr.closeCompletely();
+        return count;
+    }
+
+    private static int _countElements(SMInputCursor crsr) throws XMLStreamException
+    {
+        int count = 0;
+        while (crsr.getNext() != null) {
+            count += 1 + _countElements(crsr.childElementCursor());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+import org.codehaus.staxmate.in.SMTextBuffer;
+
+/**
+ * Benchmarks for collecting all text contained within mixed-content
+ * ("note") elements, using {@link SMInputCursor#collectDescendantText}
+ * (into Strings or a reusable {@link SMTextBuffer}) or by hand with raw Stax2 reader.
+ * Result is the total length of text collected.
+ */
+public class DescendantTextBenchmark
+    extends BenchmarkBase
+{
+    @Benchmark
+    public int rawStax2() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        sr.nextTag(); // feed
+        int total = 0;
+        while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) { // record
+            while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("note".equals(sr.getLocalName())) {
+                    total += _collectText(sr).length();
+                } else {
+                    sr.skipElement();
+                }
+            }
+        }
+        sr.closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public int cursor() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        int total = 0;
+        while (recordC.getNext() != null) {
+            SMInputCursor fieldC = recordC.childElementCursor();
+            while (fieldC.getNext() != null) {
+                if ("note".equals(fieldC.getLocalName())) {
+                    total += fieldC.collectDescendantText(false).length();
+                }
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    /**
+     * Same as {@link #cursor}, but collects text into a reusable
+     * {@link SMTextBuffer} instead of constructing Strings
+     */
+    @Benchmark
+    public int cursorBuffer() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        SMTextBuffer buffer = new SMTextBuffer();
+        int total = 0;
+        while (recordC.getNext() != null) {
+            SMInputCursor fieldC = recordC.childElementCursor();
+            while (fieldC.getNext() != null) {
+                if ("note".equals(fieldC.getLocalName())) {
+                    buffer.reset();
+                    total += fieldC.collectDescendantText(buffer, false);
+                }
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    /**
+     * Hand-written equivalent of what
+     * {@link SMInputCursor#collectDescendantText} does
+     */
+    private static String _collectText(XMLStreamReader2 sr) throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder(100);
+        int depth = 1;
+        while (depth > 0) {
+            switch (sr.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                ++depth;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                --depth;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+                sb.append(sr.getTextCharacters(), sr.getTextStart(), sr.getTextLength());
+                break;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package org.codehaus.staxmate.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.SMOutputFactory;
+
+/**
+ * Benchmarks for measuring cost of accessing global (shared) factory
+ * instances from many threads concurrently; compared to access through
+ * a synchronized accessor (which is how global instances used to be
+ * accessed), which suffers from monitor contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(64)
+public class GlobalFactoryBenchmark
+{
+    private SMInputFactory _lockedFactory;
+
+    @Benchmark
+    public SMInputFactory globalInputFactory()
+    {
+        return SMInputFactory.getGlobalSMInputFactory();
+    }
+
+    @Benchmark
+    public SMOutputFactory globalOutputFactory()
+    {
+        return SMOutputFactory.getGlobalSMOutputFactory();
+    }
+
+    /**
+     * Baseline: lazily initialized instance accessed through
+     * a synchronized method
+     */
+    @Benchmark
+    public SMInputFactory synchronizedAccessor()
+    {
+        return _lockedGet();
+    }
+
+    private synchronized SMInputFactory _lockedGet()
+    {
+        if (_lockedFactory == null) {
+            _lockedFactory = new SMInputFactory(SMInputFactory.getGlobalXMLInputFactory());
+        }
+        return _lockedFactory;
+    }
+}
@@ -0,0 +1,63 @@
+package org.codehaus.staxmate.jmh;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.in.SMInputCursor;
+
+/**
+ * Benchmarks for reading a record document from a file, comparing
+ * regular streamed reading with memory-mapped reading (see
+ * {@link SMInputFactory.MappingMode}). Result is the number of
+ * record elements read.
+ */
+public class MappedFileBenchmark
+    extends BenchmarkBase
+{
+    protected File _file;
+
+    @Setup(Level.Trial)
+    public void setupFile() throws IOException
+    {
+        _file = File.createTempFile("staxmate-bench", ".xml");
+        FileOutputStream out = new FileOutputStream(_file);
+        out.write(_doc);
+        out.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownFile()
+    {
+        _file.delete();
+    }
+
+    @Benchmark
+    public int streamed() throws XMLStreamException
+    {
+        return _countRecords(SMInputFactory.MappingMode.STREAMED);
+    }
+
+    @Benchmark
+    public int mapped() throws XMLStreamException
+    {
+        return _countRecords(SMInputFactory.MappingMode.MAPPED);
+    }
+
+    private int _countRecords(SMInputFactory.MappingMode mode) throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_file, mode).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        int count = 0;
+        while (recordC.getNext() != null) {
+            ++count;
+        }
+        rootC.getStreamReader().closeCompletely();
+        return count;
+    }
+}
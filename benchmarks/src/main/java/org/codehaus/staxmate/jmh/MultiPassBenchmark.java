@@ -0,0 +1,72 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.dom.DOMConverter;
+import org.codehaus.staxmate.in.SMEventBuffer;
+import org.codehaus.staxmate.in.SMInputCursor;
+
+/**
+ * Benchmarks for processing each record twice: first pass counts
+ * elements, second one sums up lengths of their text. Compares
+ * capturing records into a reusable {@link SMEventBuffer} with building
+ * a DOM tree using {@link DOMConverter}.
+ */
+public class MultiPassBenchmark
+    extends BenchmarkBase
+{
+    @Benchmark
+    public int capture() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        SMEventBuffer buffer = new SMEventBuffer();
+        int total = 0;
+        while (recordC.getNext() != null) {
+            buffer.reset();
+            recordC.captureElement(buffer);
+            // first pass: count fields
+            SMInputCursor fieldC = SMInputFactory.rootElementCursor(buffer).advance().childElementCursor();
+            while (fieldC.getNext() != null) {
+                ++total;
+            }
+            // second pass: text lengths
+            fieldC = SMInputFactory.rootElementCursor(buffer).advance().childElementCursor();
+            while (fieldC.getNext() != null) {
+                total += fieldC.collectDescendantText(false).length();
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public int dom() throws XMLStreamException
+    {
+        Document doc = new DOMConverter().buildDocument(rawReader());
+        int total = 0;
+        for (Node n = doc.getDocumentElement().getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            for (Node f = n.getFirstChild(); f != null; f = f.getNextSibling()) {
+                if (f.getNodeType() == Node.ELEMENT_NODE) {
+                    ++total;
+                }
+            }
+            for (Node f = n.getFirstChild(); f != null; f = f.getNextSibling()) {
+                if (f.getNodeType() == Node.ELEMENT_NODE) {
+                    total += ((Element) f).getTextContent().length();
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,134 @@
+package org.codehaus.staxmate.jmh;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamWriter2;
+
+import org.codehaus.staxmate.out.*;
+
+/**
+ * Benchmarks for writing namespace-heavy documents, similar to
+ * SOAP envelopes with WS-* headers: lots of namespaces are declared
+ * on the root element, and records use elements and attributes from
+ * many of them, as well as from namespaces only bound locally.
+ * Raw Stax2 writer (with explicitly managed prefixes) is the baseline.
+ * Result is the length of the output document.
+ */
+public class NamespaceBenchmark
+    extends BenchmarkBase
+{
+    private final static String[] PREFIXES = new String[] {
+        "soap", "wsa", "wsse", "wsu", "ds", "xenc", "wsp", "wst",
+        "wsrm", "wsc", "wsman", "wsen", "wse", "wsx", "wsat", "wscoor",
+        "saml", "saml2", "xsi", "xsd", "mtom", "xop", "ec", "app"
+    };
+
+    private final static String[] URIS = new String[] {
+        "http://www.w3.org/2003/05/soap-envelope",
+        "http://www.w3.org/2005/08/addressing",
+        "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd",
+        "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd",
+        "http://www.w3.org/2000/09/xmldsig#",
+        "http://www.w3.org/2001/04/xmlenc#",
+        "http://www.w3.org/ns/ws-policy",
+        "http://docs.oasis-open.org/ws-sx/ws-trust/200512",
+        "http://docs.oasis-open.org/ws-rx/wsrm/200702",
+        "http://docs.oasis-open.org/ws-sx/ws-secureconversation/200512",
+        "http://schemas.dmtf.org/wbem/wsman/1/wsman.xsd",
+        "http://schemas.xmlsoap.org/ws/2004/09/enumeration",
+        "http://schemas.xmlsoap.org/ws/2004/08/eventing",
+        "http://schemas.xmlsoap.org/ws/2004/09/mex",
+        "http://docs.oasis-open.org/ws-tx/wsat/2006/06",
+        "http://docs.oasis-open.org/ws-tx/wscoor/2006/06",
+        "urn:oasis:names:tc:SAML:1.0:assertion",
+        "urn:oasis:names:tc:SAML:2.0:assertion",
+        "http://www.w3.org/2001/XMLSchema-instance",
+        "http://www.w3.org/2001/XMLSchema",
+        "http://www.w3.org/2004/08/xop/include/mtom",
+        "http://www.w3.org/2004/08/xop/include",
+        "http://www.w3.org/2001/10/xml-exc-c14n#",
+        "http://example.com/app"
+    };
+
+    /**
+     * Namespaces not declared on the root element, but bound by
+     * each record that uses them
+     */
+    private final static String[] LOCAL_URIS = new String[] {
+        "http://example.com/local/a",
+        "http://example.com/local/b",
+        "http://example.com/local/c"
+    };
+
+    @Benchmark
+    public int rawStax2() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        XMLStreamWriter2 sw = _outputFactory.createStax2Writer(out);
+        final int count = URIS.length;
+        sw.writeStartDocument();
+        sw.writeStartElement(PREFIXES[0], "Envelope", URIS[0]);
+        for (int i = 0; i < count; ++i) {
+            sw.writeNamespace(PREFIXES[i], URIS[i]);
+        }
+        for (int i = 1; i <= records; ++i) {
+            int ix = i % count;
+            sw.writeStartElement(PREFIXES[ix], "record", URIS[ix]);
+            String localUri = LOCAL_URIS[i % LOCAL_URIS.length];
+            sw.writeNamespace("loc", localUri);
+            sw.writeIntAttribute(PREFIXES[(ix + 1) % count], URIS[(ix + 1) % count], "id", i);
+            sw.writeAttribute(PREFIXES[(ix + 5) % count], URIS[(ix + 5) % count], "type", "item");
+            sw.writeAttribute("loc", localUri, "ref", "x");
+            sw.writeStartElement(PREFIXES[(ix + 3) % count], "value", URIS[(ix + 3) % count]);
+            sw.writeInt(i * 37);
+            sw.writeEndElement();
+            sw.writeStartElement("loc", "note", localUri);
+            sw.writeCharacters("Note");
+            sw.writeEndElement();
+            sw.writeEndElement();
+        }
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.closeCompletely();
+        return out.size();
+    }
+
+    @Benchmark
+    public int outputElement() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        final int count = URIS.length;
+        for (int i = 0; i < count; ++i) {
+            doc.getNamespace(URIS[i], PREFIXES[i]);
+        }
+        for (int i = 0; i < LOCAL_URIS.length; ++i) {
+            doc.getNamespace(LOCAL_URIS[i], "loc");
+        }
+        SMOutputElement root = doc.addElement(doc.getNamespace(URIS[0]), "Envelope");
+        for (int i = 0; i < count; ++i) {
+            root.predeclareNamespace(doc.getNamespace(URIS[i]));
+        }
+        for (int i = 1; i <= records; ++i) {
+            int ix = i % count;
+            // namespaces looked up by URI, as code generated from schemas would do
+            SMOutputElement record = root.addElement(doc.getNamespace(URIS[ix]), "record");
+            SMNamespace local = doc.getNamespace(LOCAL_URIS[i % LOCAL_URIS.length]);
+            record.addAttribute(doc.getNamespace(URIS[(ix + 1) % count]), "id", i);
+            record.addAttribute(doc.getNamespace(URIS[(ix + 5) % count]), "type", "item");
+            record.addAttribute(local, "ref", "x");
+            record.addElement(doc.getNamespace(URIS[(ix + 3) % count]), "value").addValue(i * 37);
+            record.addElement(local, "note").addCharacters("Note");
+        }
+        doc.closeRoot();
+        return out.size();
+    }
+
+    private ByteArrayOutputStream _outputBuffer() {
+        return new ByteArrayOutputStream(4000 + records * 250);
+    }
+}
@@ -0,0 +1,176 @@
+package org.codehaus.staxmate.jmh;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamWriter2;
+
+import org.codehaus.staxmate.out.*;
+
+/**
+ * Benchmarks for writing documents similar to the ones read by
+ * input benchmarks: raw Stax2 writer as the baseline, compared
+ * to {@link SMOutputElement} based output (unbuffered, both in
+ * default and direct output mode), as well
+ * as fully buffered output via {@link SMBufferedFragment}.
+ * Result is the length of the output document.
+ */
+public class OutputBenchmark
+    extends BenchmarkBase
+{
+    private final static String NOTE = "Text with some characters & an entity";
+
+    @Benchmark
+    public int rawStax2() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        XMLStreamWriter2 sw = _outputFactory.createStax2Writer(out);
+        sw.writeStartDocument();
+        sw.writeStartElement("feed");
+        for (int i = 1; i <= records; ++i) {
+            sw.writeStartElement("record");
+            sw.writeIntAttribute("", "", "id", i);
+            sw.writeAttribute("type", ((i & 1) == 0) ? "item" : "service");
+            sw.writeStartElement("name");
+            sw.writeCharacters("Item");
+            sw.writeEndElement();
+            sw.writeStartElement("qty");
+            sw.writeInt(i % 100);
+            sw.writeEndElement();
+            sw.writeStartElement("price");
+            sw.writeInt(i * 37);
+            sw.writeEndElement();
+            sw.writeStartElement("note");
+            sw.writeCharacters(NOTE);
+            sw.writeEndElement();
+            sw.writeEndElement();
+        }
+        sw.writeEndElement();
+        sw.writeEndDocument();
+        sw.closeCompletely();
+        return out.size();
+    }
+
+    @Benchmark
+    public int outputElement() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        _writeRecords(doc.addElement("feed"));
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Same as {@link #outputElement}, but using direct output mode
+     * (see {@link SMOutputContext#setDirectOutput})
+     */
+    @Benchmark
+    public int directOutputElement() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        doc.getContext().setDirectOutput(true);
+        _writeRecords(doc.addElement("feed"));
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Same as {@link #directOutputElement}, but also recycling closed
+     * elements (see {@link SMOutputContext#setElementRecycling})
+     */
+    @Benchmark
+    public int recycledOutputElement() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        doc.getContext().setDirectOutput(true);
+        doc.getContext().setElementRecycling(true);
+        _writeRecords(doc.addElement("feed"));
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Benchmark in which a buffered fragment is added as the first
+     * child of the root element, and only released after all records
+     * have been added: this means that all of content gets buffered.
+     */
+    @Benchmark
+    public int bufferedFragment() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        SMOutputElement root = doc.addElement("feed");
+        SMBufferedFragment header = root.createBufferedFragment();
+        root.addBuffered(header);
+        _writeRecords(root);
+        header.addElement("count").addValue(records);
+        header.release();
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Same as {@link #bufferedFragment}, but with compact buffering
+     * (see {@link SMOutputContext#setCompactBuffering})
+     */
+    @Benchmark
+    public int compactBufferedFragment() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        doc.getContext().setCompactBuffering(true);
+        SMOutputElement root = doc.addElement("feed");
+        SMBufferedFragment header = root.createBufferedFragment();
+        root.addBuffered(header);
+        _writeRecords(root);
+        header.addElement("count").addValue(records);
+        header.release();
+        doc.closeRoot();
+        return out.size();
+    }
+
+    /**
+     * Same as {@link #compactBufferedFragment}, but also spilling
+     * buffered content to a temporary file (see
+     * {@link SMOutputContext#setBufferSpillThreshold})
+     */
+    @Benchmark
+    public int spilledBufferedFragment() throws XMLStreamException
+    {
+        ByteArrayOutputStream out = _outputBuffer();
+        SMOutputDocument doc = _outputFactory.createOutputDocument(out);
+        doc.getContext().setCompactBuffering(true);
+        doc.getContext().setBufferSpillThreshold(16 * 1024);
+        SMOutputElement root = doc.addElement("feed");
+        SMBufferedFragment header = root.createBufferedFragment();
+        root.addBuffered(header);
+        _writeRecords(root);
+        header.addElement("count").addValue(records);
+        header.release();
+        doc.closeRoot();
+        return out.size();
+    }
+
+    private void _writeRecords(SMOutputElement root) throws XMLStreamException
+    {
+        for (int i = 1; i <= records; ++i) {
+            SMOutputElement record = root.addElement("record");
+            record.addAttribute(null, "id", i);
+            record.addAttribute("type", ((i & 1) == 0) ? "item" : "service");
+            record.addElement("name").addCharacters("Item");
+            record.addElement("qty").addValue(i % 100);
+            record.addElement("price").addValue(i * 37);
+            record.addElement("note").addCharacters(NOTE);
+        }
+    }
+
+    private ByteArrayOutputStream _outputBuffer() {
+        return new ByteArrayOutputStream(records * 150);
+    }
+}
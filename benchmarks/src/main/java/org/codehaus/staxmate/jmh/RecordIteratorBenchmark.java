@@ -0,0 +1,80 @@
+package org.codehaus.staxmate.jmh;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+import org.codehaus.staxmate.in.SMRecordIterator;
+import org.codehaus.staxmate.in.SMRecordMapper;
+
+/**
+ * Benchmarks comparing one-by-one iteration using
+ * {@link SMRecordIterator} with batched access, where mapping of
+ * records in a batch is done in parallel by a thread pool.
+ */
+public class RecordIteratorBenchmark
+    extends BenchmarkBase
+{
+    @Param({ "4" })
+    public int threads;
+
+    @Param({ "64" })
+    public int batch;
+
+    protected ExecutorService _executor;
+
+    final static SMRecordMapper<Long> MAPPER = new SMRecordMapper<Long>() {
+        public Long mapRecord(SMInputCursor crsr) throws XMLStreamException {
+            return Long.valueOf(RecordSplitterBenchmark._processRecord(crsr));
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setupExecutor()
+    {
+        _executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownExecutor()
+    {
+        _executor.shutdown();
+    }
+
+    @Benchmark
+    public long iterator() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        long total = 0L;
+        for (Long value : rootC.childElementCursor().recordIterator(MAPPER)) {
+            total += value.longValue();
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public long parallelBatches()
+        throws XMLStreamException, InterruptedException, ExecutionException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMRecordIterator<Long> it = rootC.childElementCursor().recordIterator(MAPPER);
+        long total = 0L;
+        List<Callable<Long>> tasks;
+        while (!(tasks = it.nextBatch(batch)).isEmpty()) {
+            for (Future<Long> f : _executor.invokeAll(tasks)) {
+                total += f.get().longValue();
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+}
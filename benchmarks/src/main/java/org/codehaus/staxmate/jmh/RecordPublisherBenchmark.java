@@ -0,0 +1,98 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+import org.codehaus.staxmate.in.SMRecordMapper;
+import org.codehaus.staxmate.in.SMRecordPublisher;
+import org.codehaus.staxmate.in.SMRecordSubscriber;
+import org.codehaus.staxmate.in.SMRecordSubscription;
+
+/**
+ * Benchmarks for measuring overhead of emitting records using
+ * {@link SMRecordPublisher} (with subscriber requesting records
+ * in small batches) compared to iterating over records directly.
+ */
+public class RecordPublisherBenchmark
+    extends BenchmarkBase
+{
+    @Param({ "16" })
+    public int batch;
+
+    final static SMRecordMapper<Long> MAPPER = new SMRecordMapper<Long>() {
+        public Long mapRecord(SMInputCursor crsr) throws XMLStreamException {
+            return Long.valueOf(RecordSplitterBenchmark._processRecord(crsr));
+        }
+    };
+
+    @Benchmark
+    public long direct() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        long total = 0L;
+        while (recordC.getNext() != null) {
+            total += MAPPER.mapRecord(recordC).longValue();
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public long publisher() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        BatchSubscriber sub = new BatchSubscriber(batch);
+        new SMRecordPublisher<Long>(rootC, MAPPER).subscribe(sub);
+        // emulate a bounded sink that drains its buffer and then asks for more
+        while (!sub.done) {
+            sub.total += sub.pending;
+            sub.pending = 0L;
+            sub.received = 0;
+            sub.subscription.request(batch);
+        }
+        rootC.getStreamReader().closeCompletely();
+        return sub.total;
+    }
+
+    final static class BatchSubscriber
+        implements SMRecordSubscriber<Long>
+    {
+        final int _batch;
+
+        SMRecordSubscription subscription;
+
+        long pending, total;
+
+        int received;
+
+        boolean done;
+
+        public BatchSubscriber(int batch) {
+            _batch = batch;
+        }
+
+        public void onSubscribe(SMRecordSubscription s) {
+            subscription = s;
+        }
+
+        public void onNext(Long record) {
+            pending += record.longValue();
+            if (++received > _batch) {
+                throw new IllegalStateException("Received more records than requested");
+            }
+        }
+
+        public void onError(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+
+        public void onComplete() {
+            total += pending;
+            pending = 0L;
+            done = true;
+        }
+    }
+}
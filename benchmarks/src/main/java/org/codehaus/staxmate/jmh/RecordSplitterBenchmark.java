@@ -0,0 +1,85 @@
+package org.codehaus.staxmate.jmh;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+import org.codehaus.staxmate.in.SMRecordHandler;
+import org.codehaus.staxmate.in.SMRecordSplitter;
+
+/**
+ * Benchmarks comparing sequential processing of records with
+ * parallel processing using {@link SMRecordSplitter}. Per-record
+ * work consists of reading typed attribute and element values, and
+ * collecting text of the mixed-content element.
+ */
+public class RecordSplitterBenchmark
+    extends BenchmarkBase
+{
+    @Param({ "4" })
+    public int threads;
+
+    protected ExecutorService _executor;
+
+    @Setup(Level.Trial)
+    public void setupExecutor()
+    {
+        _executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownExecutor()
+    {
+        _executor.shutdown();
+    }
+
+    @Benchmark
+    public long sequential() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        long total = 0L;
+        while (recordC.getNext() != null) {
+            total += _processRecord(recordC);
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    @Benchmark
+    public long splitter() throws XMLStreamException
+    {
+        final AtomicLong total = new AtomicLong();
+        SMRecordHandler h = new SMRecordHandler() {
+            public void handleRecord(SMInputCursor crsr, int index)
+                throws XMLStreamException
+            {
+                total.addAndGet(_processRecord(crsr));
+            }
+        };
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        new SMRecordSplitter(_executor, h).process(rootC);
+        rootC.getStreamReader().closeCompletely();
+        return total.get();
+    }
+
+    static long _processRecord(SMInputCursor recordC) throws XMLStreamException
+    {
+        long total = recordC.getAttrIntValue(0);
+        SMInputCursor fieldC = recordC.childElementCursor();
+        fieldC.getNext();
+        total += fieldC.getElemStringValue().length();
+        fieldC.getNext();
+        total += fieldC.getElemIntValue();
+        fieldC.getNext();
+        total += fieldC.getElemLongValue();
+        fieldC.getNext();
+        total += fieldC.collectDescendantText(false).length();
+        return total;
+    }
+}
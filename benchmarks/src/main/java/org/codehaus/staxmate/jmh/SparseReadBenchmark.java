@@ -0,0 +1,115 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.in.*;
+
+/**
+ * Benchmarks for the case where only a small part of the document
+ * is actually read: documents (see {@link TestDocuments#sparseDoc})
+ * are processed so that only "summary" elements, about 5% of all
+ * elements, are accessed, and the rest are skipped.
+ * Raw Stax2 baselines show the difference between skipping
+ * sub-trees event by event (as StaxMate cursors used to do) and
+ * using {@link XMLStreamReader2#skipElement}.
+ * Each benchmark returns the total length of summary texts read.
+ */
+public class SparseReadBenchmark
+    extends BenchmarkBase
+{
+    protected byte[] createDocument()
+    {
+        return TestDocuments.sparseDocBytes(records);
+    }
+
+    /**
+     * Baseline that skips unwanted sub-trees by iterating over all
+     * events and checking depth of end elements.
+     */
+    @Benchmark
+    public int rawStax2Scan() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        sr.nextTag(); // feed
+        int total = 0;
+        while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) { // record
+            while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("summary".equals(sr.getLocalName())) {
+                    total += sr.getElementText().length();
+                } else {
+                    final int endDepth = sr.getDepth();
+                    while (sr.next() != XMLStreamConstants.END_ELEMENT
+                           || sr.getDepth() > endDepth) { }
+                }
+            }
+        }
+        sr.closeCompletely();
+        return total;
+    }
+
+    /**
+     * Baseline that skips unwanted sub-trees using Stax2 skip method
+     */
+    @Benchmark
+    public int rawStax2Skip() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        sr.nextTag(); // feed
+        int total = 0;
+        while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) { // record
+            while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("summary".equals(sr.getLocalName())) {
+                    total += sr.getElementText().length();
+                } else {
+                    sr.skipElement();
+                }
+            }
+        }
+        sr.closeCompletely();
+        return total;
+    }
+
+    /**
+     * Child cursors with element name filter: non-matching sibling
+     * sub-trees are skipped by the cursor.
+     */
+    @Benchmark
+    public int cursorFiltered() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        final SMFilter summaryFilter = SMFilterFactory.getElementOnlyFilter("summary");
+        int total = 0;
+        while (recordC.getNext() != null) {
+            SMInputCursor summaryC = recordC.childCursor(summaryFilter);
+            while (summaryC.getNext() != null) {
+                total += summaryC.getElemStringValue().length();
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+
+    /**
+     * Child cursors that are only advanced to the first child element;
+     * the rest of record is skipped when parent cursor advances.
+     */
+    @Benchmark
+    public int cursorUnvisited() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        int total = 0;
+        while (recordC.getNext() != null) {
+            SMInputCursor summaryC = recordC.childElementCursor().advance();
+            total += summaryC.getElemStringValue().length();
+        }
+        rootC.getStreamReader().closeCompletely();
+        return total;
+    }
+}
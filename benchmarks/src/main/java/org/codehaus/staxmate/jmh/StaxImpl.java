@@ -0,0 +1,64 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * Helper class for constructing Stax factories of the implementations
+ * benchmarks are parameterized over. Factories are instantiated directly
+ * (instead of using {@link XMLInputFactory#newInstance}), since all
+ * implementations are on the class path at the same time.
+ */
+public final class StaxImpl
+{
+    /**
+     * Ids of implementations; used as JMH parameter values
+     */
+    public final static String WOODSTOX = "woodstox";
+    public final static String AALTO = "aalto";
+    public final static String SJSXP = "sjsxp";
+
+    private StaxImpl() { }
+
+    public static XMLInputFactory inputFactory(String impl)
+    {
+        XMLInputFactory f = (XMLInputFactory) _create(impl,
+                "com.ctc.wstx.stax.WstxInputFactory",
+                "com.fasterxml.aalto.stax.InputFactoryImpl",
+                "com.sun.xml.stream.ZephyrParserFactory");
+        // Let's ensure we measure the same thing with all impls
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return f;
+    }
+
+    public static XMLOutputFactory outputFactory(String impl)
+    {
+        XMLOutputFactory f = (XMLOutputFactory) _create(impl,
+                "com.ctc.wstx.stax.WstxOutputFactory",
+                "com.fasterxml.aalto.stax.OutputFactoryImpl",
+                "com.sun.xml.stream.ZephyrWriterFactory");
+        f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.FALSE);
+        return f;
+    }
+
+    private static Object _create(String impl, String wstxClass, String aaltoClass, String sjsxpClass)
+    {
+        String clsName;
+        if (WOODSTOX.equals(impl)) {
+            clsName = wstxClass;
+        } else if (AALTO.equals(impl)) {
+            clsName = aaltoClass;
+        } else if (SJSXP.equals(impl)) {
+            clsName = sjsxpClass;
+        } else {
+            throw new IllegalArgumentException("Unrecognized Stax implementation '"+impl+"'");
+        }
+        try {
+            return Class.forName(clsName).newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to instantiate "+clsName+" for '"+impl+"': "+e, e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.codehaus.staxmate.jmh;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Helper class that generates documents used as input for
+ * read benchmarks. Documents consist of a flat sequence of
+ * "record" elements, each with a few attributes, simple typed
+ * child elements and one mixed-content element.
+ */
+public final class TestDocuments
+{
+    /**
+     * Default number of records in generated documents
+     */
+    public final static int DEFAULT_RECORDS = 1000;
+
+    private TestDocuments() { }
+
+    /**
+     * Document looks like:
+     *<pre>
+     *  &lt;feed>
+     *    &lt;record id="1" type="item">
+     *      &lt;name>Item #1&lt;/name>
+     *      &lt;qty>13&lt;/qty>
+     *      &lt;price>1249&lt;/price>
+     *      &lt;note>Text with &lt;b>bold&lt;/b> and &lt;i>italic&lt;/i> parts&lt;/note>
+     *    &lt;/record>
+     *    ...
+     *  &lt;/feed>
+     *</pre>
+     */
+    public static String recordDoc(int recordCount)
+    {
+        StringBuilder sb = new StringBuilder(recordCount * 200);
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<feed>\n");
+        for (int i = 1; i <= recordCount; ++i) {
+            sb.append(" <record id='").append(i).append("' type='");
+            sb.append(((i & 1) == 0) ? "item" : "service");
+            sb.append("'>\n");
+            sb.append("  <name>Item #").append(i).append("</name>\n");
+            sb.append("  <qty>").append(i % 100).append("</qty>\n");
+            sb.append("  <price>").append(i * 37).append("</price>\n");
+            sb.append("  <note>Text for ").append(i)
+                .append(" with <b>bold</b> and <i>italic</i> parts &amp; an entity</note>\n");
+            sb.append(" </record>\n");
+        }
+        sb.append("</feed>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Document where each record has one small "summary" element,
+     * followed by a "details" sub-tree that contains 18 more elements
+     * with textual content; so reading just summaries means reading
+     * about 5% of all elements:
+     *<pre>
+     *  &lt;feed>
+     *    &lt;record id="1">
+     *      &lt;summary>Record #1&lt;/summary>
+     *      &lt;details>
+     *        &lt;entry key="1">Some longer text ... &lt;/entry>
+     *        ...
+     *      &lt;/details>
+     *    &lt;/record>
+     *    ...
+     *  &lt;/feed>
+     *</pre>
+     */
+    public static String sparseDoc(int recordCount)
+    {
+        StringBuilder sb = new StringBuilder(recordCount * 1500);
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<feed>\n");
+        for (int i = 1; i <= recordCount; ++i) {
+            sb.append(" <record id='").append(i).append("'>\n");
+            sb.append("  <summary>Record #").append(i).append("</summary>\n");
+            sb.append("  <details>\n");
+            for (int j = 1; j <= 17; ++j) {
+                sb.append("   <entry key='").append(j).append("'>Some longer text for entry ")
+                    .append(j).append(" of record ").append(i)
+                    .append(", with an entity (&amp;) and a character reference (&#65;)</entry>\n");
+            }
+            sb.append("  </details>\n");
+            sb.append(" </record>\n");
+        }
+        sb.append("</feed>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Names of attributes in documents produced by {@link #attributeDoc}
+     */
+    public final static String[] ATTR_NAMES = new String[] {
+        "id", "qty", "price", "fee", "account", "book", "desk", "venue",
+        "side", "seq", "version", "ts", "settle", "broker", "flags"
+    };
+
+    /**
+     * Document where each "trade" element has 15 integer-valued
+     * attributes (see {@link #ATTR_NAMES}), and no content.
+     */
+    public static String attributeDoc(int recordCount)
+    {
+        StringBuilder sb = new StringBuilder(recordCount * 200);
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<trades>\n");
+        for (int i = 1; i <= recordCount; ++i) {
+            sb.append(" <trade");
+            for (int j = 0; j < ATTR_NAMES.length; ++j) {
+                sb.append(' ').append(ATTR_NAMES[j]).append("='").append(i * 7 + j).append('\'');
+            }
+            sb.append(" />\n");
+        }
+        sb.append("</trades>\n");
+        return sb.toString();
+    }
+
+    public static byte[] attributeDocBytes(int recordCount)
+    {
+        return _bytes(attributeDoc(recordCount));
+    }
+
+    public static byte[] recordDocBytes(int recordCount)
+    {
+        return _bytes(recordDoc(recordCount));
+    }
+
+    public static byte[] sparseDocBytes(int recordCount)
+    {
+        return _bytes(sparseDoc(recordCount));
+    }
+
+    private static byte[] _bytes(String doc)
+    {
+        try {
+            return doc.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) { // never happens
+            throw new IllegalStateException(e);
+        }
+    }
+}
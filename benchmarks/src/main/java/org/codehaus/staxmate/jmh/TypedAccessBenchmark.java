@@ -0,0 +1,63 @@
+package org.codehaus.staxmate.jmh;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.in.SMInputCursor;
+
+/**
+ * Benchmarks for typed access: attribute values of "record" elements
+ * and int values of "qty" and "price" elements are read, either using
+ * cursors or raw Stax2 Typed Access API.
+ * Result is a checksum over values, to prevent dead code elimination.
+ */
+public class TypedAccessBenchmark
+    extends BenchmarkBase
+{
+    @Benchmark
+    public long rawStax2() throws XMLStreamException
+    {
+        XMLStreamReader2 sr = rawReader();
+        sr.nextTag(); // feed
+        long sum = 0L;
+        while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) { // record
+            sum += sr.getAttributeValue(null, "id").length();
+            sum += sr.getAttributeValue(null, "type").length();
+            while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = sr.getLocalName();
+                if ("qty".equals(name) || "price".equals(name)) {
+                    sum += sr.getElementAsInt();
+                } else {
+                    sr.skipElement();
+                }
+            }
+        }
+        sr.closeCompletely();
+        return sum;
+    }
+
+    @Benchmark
+    public long cursor() throws XMLStreamException
+    {
+        SMInputCursor rootC = _inputFactory.rootElementCursor(_doc, 0, _doc.length).advance();
+        SMInputCursor recordC = rootC.childElementCursor();
+        long sum = 0L;
+        while (recordC.getNext() != null) {
+            sum += recordC.getAttrValue("id").length();
+            sum += recordC.getAttrValue("type").length();
+            SMInputCursor fieldC = recordC.childElementCursor();
+            while (fieldC.getNext() != null) {
+                String name = fieldC.getLocalName();
+                if ("qty".equals(name) || "price".equals(name)) {
+                    sum += fieldC.getElemIntValue();
+                }
+            }
+        }
+        rootC.getStreamReader().closeCompletely();
+        return sum;
+    }
+}
@@ -0,0 +1,41 @@
+package org.codehaus.staxmate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.stream.FactoryConfigurationError;
+
+/**
+ * Helper class used for lazily constructing shared global factory
+ * instances without locking: instance is published using
+ * compare-and-set, so accessing it once constructed is just
+ * a volatile read. Racing threads may each construct an instance;
+ * but only the first one gets published, and others are discarded
+ * (which is fine for factories, since construction has no side effects).
+ *<p>
+ * Unlike with the "static holder" idiom, construction failures are not
+ * cached: a failure (such as a {@link FactoryConfigurationError}) is
+ * only reported to the caller, and construction is retried on the
+ * next access.
+ *
+ * @since 2.1
+ */
+abstract class LazyInstance<T>
+{
+    private final AtomicReference<T> _instance = new AtomicReference<T>();
+
+    public final T get()
+        throws FactoryConfigurationError
+    {
+        T value = _instance.get();
+        if (value == null) {
+            value = create();
+            if (!_instance.compareAndSet(null, value)) {
+                value = _instance.get();
+            }
+        }
+        return value;
+    }
+
+    protected abstract T create()
+        throws FactoryConfigurationError;
+}
@@ -1,16 +1,24 @@
 package org.codehaus.staxmate;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 import javax.xml.stream.*;
 
 import org.codehaus.stax2.XMLInputFactory2;
 import org.codehaus.stax2.XMLStreamReader2;
 import org.codehaus.stax2.io.Stax2ByteArraySource;
+import org.codehaus.stax2.io.Stax2FileSource;
 import org.codehaus.stax2.ri.Stax2ReaderAdapter;
 
 import org.codehaus.staxmate.in.*;
+import org.codehaus.staxmate.util.ByteBufferInputStream;
+import org.codehaus.staxmate.util.MappedFileInputStream;
 
 /**
  * Factory class used to create {@link SMInputCursor} instances.
@@ -41,6 +49,54 @@ import org.codehaus.staxmate.in.*;
  */
 public final class SMInputFactory
 {
+    /*
+    /**********************************************************************
+    /* Constants
+    /**********************************************************************
+     */
+
+    /**
+     * Enumeration of ways in which contents of a file can be read.
+     *
+     * @since 2.1
+     */
+    public enum MappingMode {
+        /**
+         * Contents are read using regular file input stream (same as
+         * when using methods that do not take mapping mode argument)
+         */
+        STREAMED,
+
+        /**
+         * Contents are read by memory-mapping the file, in chunks:
+         * this avoids read system calls, and copying of content
+         * into intermediate buffers.
+         */
+        MAPPED,
+
+        /**
+         * Contents are read by memory-mapping the file if it is at
+         * least {@link SMInputFactory#MIN_MAPPED_FILE_SIZE} bytes long;
+         * otherwise using a regular input stream (since mapping has
+         * overhead that only pays off for bigger files).
+         */
+        AUTO;
+    }
+
+    /**
+     * Minimum size of files that {@link MappingMode#AUTO} will map
+     * into memory: 1 megabyte.
+     *
+     * @since 2.1
+     */
+    public final static long MIN_MAPPED_FILE_SIZE = 1024L * 1024L;
+
+    /*
+    /**********************************************************************
+    /* Configuration
+    /**********************************************************************
+     */
+
     /**
      * Xml input stream factory used for constructing stream readers.
      */
@@ -132,6 +188,44 @@ public final class SMInputFactory
         return hierarchicCursor(sr, null);
     }
 
+    /**
+     * Convenience method that will construct and return
+     * a nested cursor that will iterate over root element(s) of
+     * content captured in given buffer (see
+     * {@link SMInputCursor#captureElement}). Since buffers can be
+     * replayed any number of times, this method can be called multiple
+     * times for the same buffer to traverse its contents again.
+     *<p>
+     * Method uses standard "element-only" filter from
+     *  {@link org.codehaus.staxmate.in.SMFilterFactory}.
+     *
+     * @since 2.1
+     */
+    public static SMHierarchicCursor rootElementCursor(SMEventBuffer buffer)
+    {
+        return constructHierarchic(buffer.createReader(), SMFilterFactory.getElementOnlyFilter());
+    }
+
+    /**
+     * Convenience method that will construct and return
+     * a nested cursor that will only ever iterate to one node, that
+     * is, the root element of the document fed using given
+     * non-blocking input object (see {@link #createAsyncInput}).
+     * Cursor (and its child cursors) will return
+     * {@link SMEvent#INCOMPLETE} when more input needs to be fed.
+     *<p>
+     * Method uses standard "element-only" filter from
+     *  {@link org.codehaus.staxmate.in.SMFilterFactory}.
+     *
+     * @since 2.1
+     */
+    public static SMHierarchicCursor rootElementCursor(SMAsyncInput input)
+    {
+        SMInputContext ctxt = new SMInputContext(input.getStreamReader());
+        ctxt.setNonBlocking(true);
+        return new SMHierarchicCursor(ctxt, null, SMFilterFactory.getElementOnlyFilter());
+    }
+
     /*
     /**********************************************************************
     /* Stream reader construction
@@ -178,6 +272,33 @@ public final class SMInputFactory
         }
     }
 
+    /**
+     * Method for constructing Stax stream reader to read contents
+     * of specified file, using Stax input factory
+     * this StaxMate factory was constructed with, and reading
+     * file contents as specified by the mapping mode.
+     *
+     * @since 2.1
+     */
+    public XMLStreamReader2 createStax2Reader(File f, MappingMode mode)
+        throws XMLStreamException
+    {
+        if (mode == MappingMode.STREAMED
+            || (mode == MappingMode.AUTO && f.length() < MIN_MAPPED_FILE_SIZE)) {
+            return createStax2Reader(f);
+        }
+        MappedFileSource src = new MappedFileSource(f);
+        if (_stax2Factory != null) {
+            return (XMLStreamReader2) _stax2Factory.createXMLStreamReader(src);
+        }
+        try {
+            XMLStreamReader sr = _staxFactory.createXMLStreamReader(src.getSystemId(), src.constructInputStream());
+            return wrapIfNecessary(sr);
+        } catch (IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+    }
+
     /**
      * Method for constructing Stax stream reader to read contents
      * of (portion of) specified byte array, using Stax input factory
@@ -198,6 +319,59 @@ public final class SMInputFactory
         }
     }
 
+    /**
+     * Method for constructing Stax stream reader to read contents
+     * of specified byte buffer (from its current position to its limit),
+     * using Stax input factory this StaxMate factory was constructed with.
+     * Contents of heap buffers are accessed directly as byte arrays;
+     * contents of direct buffers are read without copying them into
+     * an intermediate byte array first.
+     * Position of the buffer is not modified.
+     *
+     * @since 2.1
+     */
+    public XMLStreamReader2 createStax2Reader(ByteBuffer buffer)
+        throws XMLStreamException
+    {
+        if (buffer.hasArray()) {
+            return createStax2Reader(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                     buffer.remaining());
+        }
+        return createStax2Reader(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Method for constructing Stax stream reader to read contents
+     * accessible through specified byte channel,
+     * using Stax input factory this StaxMate factory was constructed with.
+     *
+     * @since 2.1
+     */
+    public XMLStreamReader2 createStax2Reader(ReadableByteChannel channel)
+        throws XMLStreamException
+    {
+        return createStax2Reader(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Method for constructing a non-blocking (async) stream reader, along
+     * with the input feeder used for passing content to it, using the Stax
+     * input factory this StaxMate factory was constructed with.
+     * This is only supported for Aalto input factories (both
+     * 0.9.x and 1.x API versions), which are accessed dynamically,
+     * so that there is no compile-time dependency to Aalto.
+     *
+     * @throws XMLStreamException If the Stax input factory does not
+     *   support non-blocking parsing
+     *
+     * @since 2.1
+     */
+    public SMAsyncInput createAsyncInput()
+        throws XMLStreamException
+    {
+        return AaltoAsyncInput.construct(_staxFactory);
+    }
+
     /**
      * Method for constructing Stax stream reader to read contents
      * accessible through InputStream provided.
@@ -274,6 +448,27 @@ public final class SMInputFactory
         return constructHierarchic(createStax2Reader(f), SMFilterFactory.getElementOnlyFilter());
     }
 
+    /**
+     * Method that will construct and return 
+     * a nested cursor that will only ever iterate to one node, that
+     * is, the root element of the document reader is reading.
+     *<p>
+     * Cursor is built based on Stax stream reader constructed to
+     * read contents of specified File, using specified mapping mode.
+     * For big files, using {@link MappingMode#MAPPED} (or
+     * {@link MappingMode#AUTO}) can reduce overhead of reading contents.
+     *<p>
+     * Method uses standard "element-only" filter from
+     *  {@link org.codehaus.staxmate.in.SMFilterFactory}.
+     *
+     * @since 2.1
+     */
+    public SMHierarchicCursor rootElementCursor(File f, MappingMode mode)
+        throws XMLStreamException
+    {
+        return constructHierarchic(createStax2Reader(f, mode), SMFilterFactory.getElementOnlyFilter());
+    }
+
     /**
      * Method that will construct and return 
      * a nested cursor that will only ever iterate to one node, that
@@ -291,6 +486,46 @@ public final class SMInputFactory
         return constructHierarchic(createStax2Reader(data, offset, len), SMFilterFactory.getElementOnlyFilter());
     }
 
+    /**
+     * Method that will construct and return 
+     * a nested cursor that will only ever iterate to one node, that
+     * is, the root element of the document reader is reading.
+     *<p>
+     * Cursor is built based on Stax stream reader constructed to
+     * read contents of the specified byte buffer, from its current
+     * position to its limit; buffer can be either a heap or
+     * direct buffer. Position of the buffer is not modified.
+     *<p>
+     * Method uses standard "element-only" filter from
+     *  {@link org.codehaus.staxmate.in.SMFilterFactory}.
+     *
+     * @since 2.1
+     */
+    public SMHierarchicCursor rootElementCursor(ByteBuffer buffer)
+        throws XMLStreamException
+    {
+        return constructHierarchic(createStax2Reader(buffer), SMFilterFactory.getElementOnlyFilter());
+    }
+
+    /**
+     * Method that will construct and return 
+     * a nested cursor that will only ever iterate to one node, that
+     * is, the root element of the document reader is reading.
+     *<p>
+     * Cursor is built based on Stax stream reader constructed to
+     * read contents via specified byte channel.
+     *<p>
+     * Method uses standard "element-only" filter from
+     *  {@link org.codehaus.staxmate.in.SMFilterFactory}.
+     *
+     * @since 2.1
+     */
+    public SMHierarchicCursor rootElementCursor(ReadableByteChannel channel)
+        throws XMLStreamException
+    {
+        return constructHierarchic(createStax2Reader(channel), SMFilterFactory.getElementOnlyFilter());
+    }
+
     /**
      * Method that will construct and return 
      * a nested cursor that will only ever iterate to one node, that
@@ -386,7 +621,7 @@ public final class SMInputFactory
     public static SMInputFactory getGlobalSMInputFactory()
         throws FactoryConfigurationError
     {
-        return SMFactoryAccessor.getFactory();
+        return SMFactoryAccessor.sInstance.get();
     }
 
     /**
@@ -415,7 +650,7 @@ public final class SMInputFactory
     public static XMLInputFactory getGlobalXMLInputFactory()
         throws FactoryConfigurationError
     {
-        return XmlFactoryAccessor.getFactory();
+        return XmlFactoryAccessor.sInstance.get();
     }
 
     /*
@@ -458,52 +693,172 @@ public final class SMInputFactory
      */
 
     /**
-     * Helper class used for implementing efficient lazy instantiation of
-     * the global xml stream input factory.
+     * File source that reads contents by memory-mapping the file,
+     * instead of using a regular file input stream.
      */
-    private final static class XmlFactoryAccessor
+    private final static class MappedFileSource
+        extends Stax2FileSource
     {
-        final static XmlFactoryAccessor sInstance = new XmlFactoryAccessor();
-        XMLInputFactory mFactory = null;
+        public MappedFileSource(File f) {
+            super(f);
+        }
 
-        public static XMLInputFactory getFactory()
-            throws FactoryConfigurationError
+        @Override
+        public InputStream constructInputStream()
+            throws IOException
         {
-            return sInstance.get();
+            return new MappedFileInputStream(getFile());
         }
+    }
 
-        private synchronized XMLInputFactory get()
-            throws FactoryConfigurationError
+    /**
+     * Non-blocking input implementation that binds to Aalto async
+     * parser using reflection. Two variations of the API are supported:
+     * 1.x one, where the reader is constructed using
+     * <code>createAsyncForByteArray()</code> and input is fed as a
+     * [start, end[ range; and earlier 0.9.x one, with
+     * <code>createAsyncXMLStreamReader()</code> and [offset, length]
+     * arguments.
+     */
+    private final static class AaltoAsyncInput
+        extends SMAsyncInput
+    {
+        final Object _feeder;
+
+        final Method _feedMethod, _endMethod, _needMoreMethod;
+
+        /**
+         * Whether 3rd argument of the feed method is the end offset
+         * (1.x API) or length (0.9.x API)
+         */
+        final boolean _feedWithEnd;
+
+        private AaltoAsyncInput(XMLStreamReader sr, Object feeder, boolean feedWithEnd)
+            throws XMLStreamException
+        {
+            super(sr);
+            _feeder = feeder;
+            _feedWithEnd = feedWithEnd;
+            Class<?> cls = feeder.getClass();
+            _feedMethod = _method(cls, "feedInput", byte[].class, Integer.TYPE, Integer.TYPE);
+            _endMethod = _method(cls, "endOfInput");
+            _needMoreMethod = _method(cls, "needMoreInput");
+        }
+
+        public static AaltoAsyncInput construct(XMLInputFactory f)
+            throws XMLStreamException
+        {
+            Class<?> cls = f.getClass();
+            Method m;
+            boolean feedWithEnd;
+            try {
+                m = cls.getMethod("createAsyncForByteArray");
+                feedWithEnd = true;
+            } catch (NoSuchMethodException e) {
+                try {
+                    m = cls.getMethod("createAsyncXMLStreamReader");
+                    feedWithEnd = false;
+                } catch (NoSuchMethodException e2) {
+                    throw new XMLStreamException("Stax input factory ("+cls.getName()
+                                                 +") does not support non-blocking (async) parsing");
+                }
+            }
+            XMLStreamReader sr = (XMLStreamReader) _invoke(_accessible(m), f);
+            Object feeder = _invoke(_method(sr.getClass(), "getInputFeeder"), sr);
+            return new AaltoAsyncInput(sr, feeder, feedWithEnd);
+        }
+
+        public boolean needMoreInput()
         {
-            if (mFactory == null) {
-                mFactory = XMLInputFactory.newInstance();
+            try {
+                return ((Boolean) _invoke(_needMoreMethod, _feeder)).booleanValue();
+            } catch (XMLStreamException e) { // should never occur
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        public void feedInput(byte[] data, int offset, int len)
+            throws XMLStreamException
+        {
+            int last = _feedWithEnd ? (offset + len) : len;
+            _invoke(_feedMethod, _feeder, data, Integer.valueOf(offset), Integer.valueOf(last));
+        }
+
+        public void endOfInput()
+            throws XMLStreamException
+        {
+            _invoke(_endMethod, _feeder);
+        }
+
+        private static Method _method(Class<?> cls, String name, Class<?>... argTypes)
+            throws XMLStreamException
+        {
+            try {
+                return _accessible(cls.getMethod(name, argTypes));
+            } catch (NoSuchMethodException e) {
+                throw new XMLStreamException("Unrecognized non-blocking parser API: no method '"
+                                             +name+"' in "+cls.getName());
+            }
+        }
+
+        private static Method _accessible(Method m)
+        {
+            // implementation classes need not be public
+            try {
+                m.setAccessible(true);
+            } catch (SecurityException e) { }
+            return m;
+        }
+
+        private static Object _invoke(Method m, Object target, Object... args)
+            throws XMLStreamException
+        {
+            try {
+                return m.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable t = e.getTargetException();
+                if (t instanceof XMLStreamException) {
+                    throw (XMLStreamException) t;
+                }
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+                throw new XMLStreamException(t);
+            } catch (IllegalAccessException e) {
+                throw new XMLStreamException(e);
             }
-            return mFactory;
         }
     }
 
     /**
      * Helper class used for implementing efficient lazy instantiation of
-     * the global StaxMate input factory.
+     * the global xml stream input factory.
      */
-    private final static class SMFactoryAccessor
+    private final static class XmlFactoryAccessor
+        extends LazyInstance<XMLInputFactory>
     {
-        final static SMFactoryAccessor sInstance = new SMFactoryAccessor();
-        SMInputFactory mFactory = null;
+        final static XmlFactoryAccessor sInstance = new XmlFactoryAccessor();
 
-        public static SMInputFactory getFactory()
+        protected XMLInputFactory create()
             throws FactoryConfigurationError
         {
-            return sInstance.get();
+            return XMLInputFactory.newInstance();
         }
+    }
 
-        private synchronized SMInputFactory get()
+    /**
+     * Helper class used for implementing efficient lazy instantiation of
+     * the global StaxMate input factory.
+     */
+    private final static class SMFactoryAccessor
+        extends LazyInstance<SMInputFactory>
+    {
+        final static SMFactoryAccessor sInstance = new SMFactoryAccessor();
+
+        protected SMInputFactory create()
             throws FactoryConfigurationError
         {
-            if (mFactory == null) {
-                mFactory = new SMInputFactory(XmlFactoryAccessor.getFactory());
-            }
-            return mFactory;
+            return new SMInputFactory(XmlFactoryAccessor.sInstance.get());
         }
     }
 }
@@ -355,7 +355,7 @@ public final class SMOutputFactory
     public static SMOutputFactory getGlobalSMOutputFactory()
         throws FactoryConfigurationError
     {
-        return SMFactoryAccessor.getFactory();
+        return SMFactoryAccessor.sInstance.get();
     }
 
     /**
@@ -375,7 +375,7 @@ public final class SMOutputFactory
         throws XMLStreamException
     {
         try {
-            return XmlFactoryAccessor.getFactory();
+            return XmlFactoryAccessor.sInstance.get();
         } catch (FactoryConfigurationError err) {
             throw new XMLStreamException(err);
         }
@@ -394,23 +394,14 @@ public final class SMOutputFactory
      * for accessing the global output factory is called.
      */
     private final static class XmlFactoryAccessor
+        extends LazyInstance<XMLOutputFactory>
     {
         final static XmlFactoryAccessor sInstance = new XmlFactoryAccessor();
-        XMLOutputFactory mFactory = null;
 
-        public static XMLOutputFactory getFactory()
+        protected XMLOutputFactory create()
             throws FactoryConfigurationError
         {
-            return sInstance.get();
-        }
-
-        public synchronized XMLOutputFactory get()
-            throws FactoryConfigurationError
-        {
-            if (mFactory == null) {
-                mFactory = XMLOutputFactory.newInstance();
-            }
-            return mFactory;
+            return XMLOutputFactory.newInstance();
         }
     }
 
@@ -419,23 +410,14 @@ public final class SMOutputFactory
      * the global StaxMate output factory.
      */
     private final static class SMFactoryAccessor
+        extends LazyInstance<SMOutputFactory>
     {
         final static SMFactoryAccessor sInstance = new SMFactoryAccessor();
-        SMOutputFactory mFactory = null;
-
-        public static SMOutputFactory getFactory()
-            throws FactoryConfigurationError
-        {
-            return sInstance.get();
-        }
 
-        private synchronized SMOutputFactory get()
+        protected SMOutputFactory create()
             throws FactoryConfigurationError
         {
-            if (mFactory == null) {
-                mFactory = new SMOutputFactory(XmlFactoryAccessor.getFactory());
-            }
-            return mFactory;
+            return new SMOutputFactory(XmlFactoryAccessor.sInstance.get());
         }
     }
 }
@@ -0,0 +1,345 @@
+package org.codehaus.staxmate.in;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+/**
+ * Filter implementation that evaluates an arbitrary combination of
+ * basic filter conditions (see {@link FilterTerm}) with a single
+ * {@link #accept} call. Conditions are compiled into:
+ *<ul>
+ * <li>Bitmasks of event types for which result is known without
+ *   further evaluation (either always false, or always true)
+ *  </li>
+ * <li>Single hash table containing all element names referred to,
+ *   so that at most one lookup is needed per event
+ *  </li>
+ * <li>Simple short-circuiting instruction sequence for evaluating
+ *   the remaining conditions
+ *  </li>
+ *</ul>
+ * Only filters that can not be expressed as terms (custom
+ * {@link SMFilter} implementations) need to be called separately.
+ *
+ * @since 2.1
+ */
+final class CompiledFilter
+    extends SMFilter
+{
+    // // // Instruction codes
+
+    /**
+     * Test: event type in mask; argument: mask
+     */
+    final static int OP_TYPES = 1;
+
+    /**
+     * Test: element name in set; argument: index of name set
+     */
+    final static int OP_NAMES = 2;
+
+    /**
+     * Test: attribute present; argument: index of attribute name
+     */
+    final static int OP_ATTR = 3;
+
+    /**
+     * Test: parent count within range; arguments: min, max
+     */
+    final static int OP_DEPTH = 4;
+
+    /**
+     * Test: opaque filter accepts; argument: index of filter
+     */
+    final static int OP_FILTER = 5;
+
+    /**
+     * Negate current result; no arguments
+     */
+    final static int OP_NOT = 6;
+
+    /**
+     * Jump if current result is false; argument: target offset
+     */
+    final static int OP_JUMP_IF_FALSE = 7;
+
+    /**
+     * Jump if current result is true; argument: target offset
+     */
+    final static int OP_JUMP_IF_TRUE = 8;
+
+    /*
+    /**********************************************************************
+    /* Compiled state
+    /**********************************************************************
+     */
+
+    /**
+     * Expression this filter was compiled from; needed if this filter
+     * is combined with others
+     */
+    final FilterTerm _term;
+
+    /**
+     * Event types for which filter may accept events
+     */
+    final int _maybeTypes;
+
+    /**
+     * Event types for which filter always accepts events
+     */
+    final int _alwaysTypes;
+
+    final int[] _code;
+
+    /**
+     * Index of all element names referenced by name set tests
+     */
+    final NameIndex _names;
+
+    /**
+     * Bitsets (indexed by name index) for name set tests
+     */
+    final long[][] _nameSets;
+
+    /**
+     * Namespace URIs of attributes to check; null for "no namespace"
+     */
+    final String[] _attrUris;
+
+    final String[] _attrLocalNames;
+
+    final SMFilter[] _filters;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    CompiledFilter(FilterTerm term)
+    {
+        _term = term;
+        _maybeTypes = term.maybeTypes();
+        _alwaysTypes = term.alwaysTypes();
+        Compiler c = new Compiler();
+        c.compile(term);
+        _code = c.code();
+        _names = new NameIndex(c._nameIds.keySet());
+        final int nameCount = c._nameIds.size();
+        _nameSets = new long[c._nameSets.size()][];
+        for (int i = 0; i < _nameSets.length; ++i) {
+            long[] bits = new long[(nameCount + 63) >> 6];
+            for (QName name : c._nameSets.get(i)._names) {
+                int id = c._nameIds.get(name);
+                bits[id >> 6] |= (1L << id);
+            }
+            _nameSets[i] = bits;
+        }
+        int attrCount = c._attrs.size();
+        _attrUris = new String[attrCount];
+        _attrLocalNames = new String[attrCount];
+        for (int i = 0; i < attrCount; ++i) {
+            QName name = c._attrs.get(i);
+            String uri = name.getNamespaceURI();
+            // see SMInputCursor.getAttrValue() for why null is used
+            _attrUris[i] = (uri == null || uri.length() == 0) ? null : uri;
+            _attrLocalNames[i] = name.getLocalPart();
+        }
+        _filters = c._filters.toArray(new SMFilter[c._filters.size()]);
+    }
+
+    /*
+    /**********************************************************************
+    /* SMFilter implementation
+    /**********************************************************************
+     */
+
+    public boolean accept(SMEvent evt, SMInputCursor caller)
+        throws XMLStreamException
+    {
+        final int typeBit = (1 << evt.getEventCode());
+        if ((_maybeTypes & typeBit) == 0) {
+            return false;
+        }
+        if ((_alwaysTypes & typeBit) != 0) {
+            return true;
+        }
+
+        final int[] code = _code;
+        final int end = code.length;
+        int nameId = -2; // -2 means "not yet looked up"
+        boolean result = false;
+        int pc = 0;
+
+        while (pc < end) {
+            switch (code[pc]) {
+            case OP_TYPES:
+                result = (code[pc+1] & typeBit) != 0;
+                pc += 2;
+                break;
+            case OP_NAMES:
+                if (nameId == -2) {
+                    nameId = _findName(evt, caller);
+                }
+                result = (nameId >= 0)
+                    && (_nameSets[code[pc+1]][nameId >> 6] & (1L << nameId)) != 0;
+                pc += 2;
+                break;
+            case OP_ATTR:
+                {
+                    int ix = code[pc+1];
+                    result = (evt == SMEvent.START_ELEMENT)
+                        && caller._streamReader.getAttributeValue(_attrUris[ix], _attrLocalNames[ix]) != null;
+                }
+                pc += 2;
+                break;
+            case OP_DEPTH:
+                {
+                    int depth = caller.getParentCount();
+                    result = (depth >= code[pc+1]) && (depth <= code[pc+2]);
+                }
+                pc += 3;
+                break;
+            case OP_FILTER:
+                result = _filters[code[pc+1]].accept(evt, caller);
+                pc += 2;
+                break;
+            case OP_NOT:
+                result = !result;
+                ++pc;
+                break;
+            case OP_JUMP_IF_FALSE:
+                pc = result ? (pc + 2) : code[pc+1];
+                break;
+            case OP_JUMP_IF_TRUE:
+                pc = result ? code[pc+1] : (pc + 2);
+                break;
+            default:
+                throw new IllegalStateException("Internal error: invalid filter instruction "+code[pc]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    FilterTerm asTerm() {
+        return _term;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    private int _findName(SMEvent evt, SMInputCursor caller)
+    {
+        if (evt != SMEvent.START_ELEMENT && evt != SMEvent.END_ELEMENT) {
+            return -1;
+        }
+        XMLStreamReader2 sr = caller._streamReader;
+        return _names.find(sr.getNamespaceURI(), sr.getLocalName(),
+                caller._context.namesInterned());
+    }
+
+    /**
+     * Helper class used for generating instruction sequence for
+     * a term, as well as collecting data instructions refer to.
+     */
+    private final static class Compiler
+    {
+        int[] _buffer = new int[32];
+        int _size = 0;
+
+        final Map<QName,Integer> _nameIds = new LinkedHashMap<QName,Integer>();
+        final ArrayList<FilterTerm> _nameSets = new ArrayList<FilterTerm>();
+        final ArrayList<QName> _attrs = new ArrayList<QName>();
+        final ArrayList<SMFilter> _filters = new ArrayList<SMFilter>();
+
+        void compile(FilterTerm term)
+        {
+            switch (term._kind) {
+            case FilterTerm.TYPES:
+                _emit(OP_TYPES, term._mask);
+                break;
+            case FilterTerm.NAMES:
+                for (QName name : term._names) {
+                    if (!_nameIds.containsKey(name)) {
+                        _nameIds.put(name, _nameIds.size());
+                    }
+                }
+                _emit(OP_NAMES, _nameSets.size());
+                _nameSets.add(term);
+                break;
+            case FilterTerm.ATTR:
+                _emit(OP_ATTR, _attrs.size());
+                _attrs.add(term._attrName);
+                break;
+            case FilterTerm.DEPTH:
+                _emit(OP_DEPTH, term._minDepth);
+                _emit(term._maxDepth);
+                break;
+            case FilterTerm.OPAQUE:
+                _emit(OP_FILTER, _filters.size());
+                _filters.add(term._filter);
+                break;
+            case FilterTerm.NOT:
+                compile(term._children[0]);
+                _emit(OP_NOT);
+                break;
+            case FilterTerm.AND:
+            case FilterTerm.OR:
+                {
+                    final FilterTerm[] children = term._children;
+                    final boolean isAnd = (term._kind == FilterTerm.AND);
+                    if (children.length == 0) { // AND of nothing is true, OR false
+                        _emit(OP_TYPES, isAnd ? FilterTerm.ALL_TYPES : 0);
+                        break;
+                    }
+                    int[] jumps = new int[children.length-1];
+                    for (int i = 0; i < children.length; ++i) {
+                        compile(children[i]);
+                        if (i < jumps.length) {
+                            _emit(isAnd ? OP_JUMP_IF_FALSE : OP_JUMP_IF_TRUE, 0);
+                            jumps[i] = _size-1;
+                        }
+                    }
+                    // and then fix jump targets
+                    for (int offset : jumps) {
+                        _buffer[offset] = _size;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Internal error: invalid filter term type "+term._kind);
+            }
+        }
+
+        int[] code() {
+            int[] result = new int[_size];
+            System.arraycopy(_buffer, 0, result, 0, _size);
+            return result;
+        }
+
+        private void _emit(int op, int arg) {
+            _emit(op);
+            _emit(arg);
+        }
+
+        private void _emit(int value) {
+            if (_size >= _buffer.length) {
+                int[] old = _buffer;
+                _buffer = new int[old.length << 1];
+                System.arraycopy(old, 0, _buffer, 0, old.length);
+            }
+            _buffer[_size++] = value;
+        }
+    }
+}
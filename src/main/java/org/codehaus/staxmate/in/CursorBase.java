@@ -139,6 +139,16 @@ abstract class CursorBase
      */
     protected SMInputCursor _childCursor = null;
 
+    /**
+     * When reading content using a non-blocking parser, and skipping
+     * of a sub-tree had to be suspended because more input was needed,
+     * depth of the END_ELEMENT that skipping has to continue to;
+     * -1 if no skipping is pending.
+     *
+     * @since 2.1
+     */
+    protected int _pendingSkipDepth = -1;
+
     /*
     /**********************************************************************
     /* Life-cycle
@@ -179,6 +189,17 @@ abstract class CursorBase
     public abstract void throwStreamException(String msg)
         throws XMLStreamException;
 
+    /**
+     * Method called to complete an incremental typed read that has been
+     * started but not finished, if any.
+     *
+     * @return True if there was an incomplete typed read; false if not
+     *
+     * @since 2.1
+     */
+    abstract boolean _finishTypedRead()
+        throws XMLStreamException;
+
     /*
     /**********************************************************************
     /* Methods sub-classes need or can override
@@ -202,6 +223,11 @@ abstract class CursorBase
      * cursor(s) are pointing to, end return once next call to
      * XMLStreamReader2.next() will return the next event
      * this cursor should see.
+     *<p>
+     * Since 2.1, sub-trees of elements nested within child cursor's
+     * scope are skipped using {@link XMLStreamReader2#skipElement},
+     * so that Stax2 implementations can avoid per-event overhead
+     * (and materializing textual content).
      */
     protected final void rewindPastChild()
         throws XMLStreamException
@@ -209,6 +235,7 @@ abstract class CursorBase
         final SMInputCursor child = _childCursor;
         _childCursor = null;
 
+        // also completes incremental typed reads of child cursors, if any
         child.invalidate();
 
         /* Base depth to match is always known by the child in question,
@@ -217,8 +244,26 @@ abstract class CursorBase
         final int endDepth = child.getBaseParentCount();
         final XMLStreamReader2 sr = _streamReader;
 
+        if (_context.isNonBlocking()) {
+            // No bulk skipping, since we may run out of input mid-way
+            if (sr.getEventType() != XMLStreamConstants.END_ELEMENT
+                || sr.getDepth() != endDepth) {
+                _pendingSkipDepth = endDepth;
+                _finishPendingSkip();
+            }
+            _context.releaseCursor(child);
+            return;
+        }
         for (int type = sr.getEventType(); true; type = sr.next()) {
-            if (type == XMLStreamConstants.END_ELEMENT) {
+            if (type == XMLStreamConstants.START_ELEMENT) {
+                /* Only nested elements can be skipped as a whole; child
+                 * cursor may not have advanced past its parent START_ELEMENT
+                 * yet, and we must not skip past its END_ELEMENT
+                 */
+                if (sr.getDepth() > endDepth) {
+                    sr.skipElement();
+                }
+            } else if (type == XMLStreamConstants.END_ELEMENT) {
                 int depth = sr.getDepth();
                 if (depth > endDepth) {
                     continue;
@@ -240,8 +285,94 @@ abstract class CursorBase
                 _throwUnexpectedEndDoc();
             }
         }
+        _context.releaseCursor(child);
+    }
+
+    /**
+     * Method called to skip all events up to and including the
+     * END_ELEMENT that closes the START_ELEMENT the underlying stream
+     * reader currently points to.
+     *<p>
+     * With non-blocking parsers skipping may need to be suspended
+     * if input runs out; if so, it is completed later on by
+     * {@link #_finishPendingSkip}.
+     *
+     * @param endDepth Depth of the START_ELEMENT (and hence that of the
+     *   matching END_ELEMENT)
+     *
+     * @since 2.1
+     */
+    protected final void skipSubtree(int endDepth)
+        throws XMLStreamException
+    {
+        if (_context.isNonBlocking()) {
+            _pendingSkipDepth = endDepth;
+            _finishPendingSkip();
+            return;
+        }
+        final XMLStreamReader2 sr = _streamReader;
+        /* Stax2 implementations can skip the whole sub-tree without
+         * having to expose (or even fully decode) intervening events;
+         * and for others, Stax2ReaderAdapter does the same as we
+         * would do by hand.
+         */
+        sr.skipElement();
+        // sanity check, to give more meaningful error messages
+        int depth = sr.getDepth();
+        if (depth != endDepth) {
+            _throwWrongEndElem(endDepth, depth);
+        }
+    }
+
+    /**
+     * Method called when reading content using a non-blocking parser,
+     * to continue skipping that was started (but possibly not
+     * completed) by {@link #skipSubtree} or {@link #rewindPastChild}.
+     *
+     * @return True if skipping is complete (or there was nothing to
+     *   skip); false if more input is needed to complete it
+     *
+     * @since 2.1
+     */
+    protected final boolean _finishPendingSkip()
+        throws XMLStreamException
+    {
+        final int endDepth = _pendingSkipDepth;
+        if (endDepth < 0) {
+            return true;
+        }
+        final XMLStreamReader2 sr = _streamReader;
+        while (true) {
+            int type = sr.next();
+            if (type == XMLStreamConstants.END_ELEMENT) {
+                int depth = sr.getDepth();
+                if (depth <= endDepth) {
+                    if (depth != endDepth) { // sanity check
+                        _throwWrongEndElem(endDepth, depth);
+                    }
+                    break;
+                }
+            } else if (type == SMAsyncInput.EVENT_INCOMPLETE) {
+                return false;
+            } else if (type == XMLStreamConstants.END_DOCUMENT) {
+                _throwUnexpectedEndDoc();
+            }
+        }
+        _pendingSkipDepth = -1;
+        return true;
     }
 
+    /**
+     * Method called when a non-blocking parser indicates that it
+     * needs more input before it can return the next event.
+     *
+     * @since 2.1
+     */
+    protected final SMEvent _incomplete()
+    {
+        _currEvent = SMEvent.INCOMPLETE;
+        return SMEvent.INCOMPLETE;
+    }
 
     /**
      * Method called by the parent cursor, to indicate it has to
@@ -252,14 +383,40 @@ abstract class CursorBase
     protected void invalidate()
         throws XMLStreamException
     {
-        _state = State.CLOSED;
-        _currEvent = null;
-
         // child cursor(s) to delegate skipping to?
         if (_childCursor != null) {
-            _childCursor.invalidate();
+            SMInputCursor child = _childCursor;
             _childCursor = null;
+            child.invalidate();
+            _context.releaseCursor(child);
         }
+        /* Incremental typed read needs to be completed, if any; after
+         * descendants, since stream reader can only be within innermost
+         * element being read
+         */
+        _finishTypedRead();
+        _state = State.CLOSED;
+        _currEvent = null;
+    }
+
+    /**
+     * Method called to reset iteration state of a cursor that is
+     * being recycled, to make it look like a newly constructed
+     * cursor. Base depth is not changed, since cursors are only
+     * reused at the same depth.
+     *
+     * @since 2.1
+     */
+    protected void resetState()
+    {
+        _state = State.INITIAL;
+        _currEvent = null;
+        _nodeCount = 0;
+        _elemCount = 0;
+        _trackedElement = null;
+        _parentTrackedElement = null;
+        _childCursor = null;
+        _pendingSkipDepth = -1;
     }
 
     /*
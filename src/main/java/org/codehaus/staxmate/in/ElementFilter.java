@@ -1,12 +1,20 @@
 package org.codehaus.staxmate.in;
 
+import java.util.Collections;
+
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 
+import org.codehaus.stax2.XMLStreamReader2;
+
 /**
  * This is a simple element-only filter, that accepts those element
  * nodes that match the given element name.
+ *<p>
+ * Names are stored interned, so that if the underlying stream reader
+ * is known to intern names (see {@link SMInputContext#namesInterned}),
+ * identity comparison can be used instead of {@link String#equals}.
  *
  * @author Tatu Saloranta
  */
@@ -37,8 +45,8 @@ public class ElementFilter
         /* Let's allow empty, though -- will result in filter that never
          * matches anything
          */
-        mLocalName = localName;
-        mNsURI = (nsURI == null || nsURI.length() == 0) ? null : nsURI;
+        mLocalName = localName.intern();
+        mNsURI = (nsURI == null || nsURI.length() == 0) ? null : nsURI.intern();
     }
 
     public ElementFilter(String localName)
@@ -61,16 +69,33 @@ public class ElementFilter
         throws XMLStreamException
     {
         if (super.accept(evt, caller)) {
-            if (caller.getLocalName().equals(mLocalName)) {
-                String uri = caller.getNsUri();
+            final XMLStreamReader2 sr = caller._streamReader;
+            if (caller._context.namesInterned()) {
+                if (sr.getLocalName() == mLocalName) {
+                    String uri = sr.getNamespaceURI();
+                    if (mNsURI == null) {
+                        return (uri == null || uri.length() == 0);
+                    }
+                    return (uri == mNsURI);
+                }
+            } else if (sr.getLocalName().equals(mLocalName)) {
+                String uri = sr.getNamespaceURI();
                 if (mNsURI == null) {
                     return (uri == null || uri.length() == 0);
-                } else {
-                    return mNsURI.equals(uri);
                 }
+                return mNsURI.equals(uri);
             }
         }
         return false;
     }
-}
 
+    @Override
+    FilterTerm asTerm()
+    {
+        if (getClass() != ElementFilter.class) {
+            return null;
+        }
+        QName name = new QName((mNsURI == null) ? "" : mNsURI, mLocalName);
+        return FilterTerm.names(Collections.singleton(name));
+    }
+}
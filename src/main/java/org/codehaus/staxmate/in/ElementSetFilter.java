@@ -0,0 +1,71 @@
+package org.codehaus.staxmate.in;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+/**
+ * Element-only filter similar to {@link ElementFilter}, but one that
+ * accepts elements with any of given set of names. Matching is done
+ * using a single hash lookup, comparing names by identity if the
+ * underlying stream reader is known to intern names (see
+ * {@link SMInputContext#namesInterned}), and by value otherwise.
+ *
+ * @since 2.1
+ */
+public class ElementSetFilter
+    extends SimpleFilter
+{
+    final NameIndex mNames;
+
+    /**
+     * Names given, needed for combining with other filters
+     */
+    final ArrayList<QName> mNameList;
+
+    /*
+    /////////////////////////////////////////////////////
+    // Life-cycle
+    /////////////////////////////////////////////////////
+     */
+
+    /**
+     * @param names Names of elements to accept; names with empty
+     *   namespace URI match elements that do not belong to a namespace
+     */
+    public ElementSetFilter(Set<QName> names)
+    {
+        // As with ElementFilter, END_ELEMENT only matters for flat cursors
+        super((1 << XMLStreamConstants.START_ELEMENT) |
+              (1 << XMLStreamConstants.END_ELEMENT));
+        mNameList = new ArrayList<QName>(names);
+        mNames = new NameIndex(mNameList);
+    }
+
+    /*
+    /////////////////////////////////////////////////////
+    // SMFilter implementation
+    /////////////////////////////////////////////////////
+     */
+
+    public boolean accept(SMEvent evt, SMInputCursor caller)
+        throws XMLStreamException
+    {
+        if (super.accept(evt, caller)) {
+            final XMLStreamReader2 sr = caller._streamReader;
+            return mNames.find(sr.getNamespaceURI(), sr.getLocalName(),
+                    caller._context.namesInterned()) >= 0;
+        }
+        return false;
+    }
+
+    @Override
+    FilterTerm asTerm() {
+        return (getClass() == ElementSetFilter.class) ? FilterTerm.names(mNameList) : null;
+    }
+}
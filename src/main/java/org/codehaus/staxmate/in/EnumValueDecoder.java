@@ -0,0 +1,189 @@
+package org.codehaus.staxmate.in;
+
+import java.util.HashMap;
+
+import org.codehaus.stax2.typed.TypedValueDecoder;
+
+/**
+ * Stax2 Typed Access API value decoder used for decoding enumerated
+ * values: decoding is done directly from characters stream reader
+ * passes, without constructing Strings, by using a pre-built hash
+ * table of names of enumerated values.
+ *<p>
+ * Hash tables are built once per enumeration type, and cached by the
+ * decoder instance; decoder instances are mutable, and are reused by
+ * a single {@link SMInputContext}. Tables are not shared globally, so
+ * that application enumeration types (and their class loaders) are
+ * not retained beyond lifetime of input contexts.
+ *
+ * @since 2.1
+ */
+final class EnumValueDecoder
+    extends TypedValueDecoder
+{
+    /**
+     * Lookup tables for enumeration types decoded so far; constructed
+     * when first needed
+     */
+    private HashMap<Class<?>,Lookup> _lookups;
+
+    /**
+     * Lookup table for the type of enumeration currently being decoded
+     */
+    private Lookup _lookup;
+
+    /**
+     * Value decoded by the last successful decode call
+     */
+    private Enum<?> _value;
+
+    public EnumValueDecoder() { }
+
+    /**
+     * Method for preparing this decoder to decode values of given
+     * enumeration type.
+     */
+    public EnumValueDecoder reset(Class<? extends Enum<?>> enumType)
+    {
+        Lookup lookup = _lookup;
+        // Common case: same type as the last time
+        if (lookup == null || lookup.getType() != enumType) {
+            if (_lookups == null) {
+                _lookups = new HashMap<Class<?>,Lookup>();
+            }
+            lookup = _lookups.get(enumType);
+            if (lookup == null) {
+                lookup = new Lookup(enumType);
+                _lookups.put(enumType, lookup);
+            }
+            _lookup = lookup;
+        }
+        _value = null;
+        return this;
+    }
+
+    /**
+     * @return Value decoded; null if value was empty
+     */
+    public Enum<?> getValue() { return _value; }
+
+    /*
+    /**********************************************************************
+    /* TypedValueDecoder implementation
+    /**********************************************************************
+     */
+
+    public void decode(String input)
+        throws IllegalArgumentException
+    {
+        decode(input.toCharArray(), 0, input.length());
+    }
+
+    public void decode(char[] buffer, int start, int end)
+        throws IllegalArgumentException
+    {
+        // Stax2 implementations should trim white space, but let's ensure
+        while (start < end && buffer[start] <= ' ') {
+            ++start;
+        }
+        while (end > start && buffer[end-1] <= ' ') {
+            --end;
+        }
+        if (start == end) {
+            _value = null;
+            return;
+        }
+        Enum<?> value = _lookup.find(buffer, start, end);
+        if (value == null) {
+            throw new IllegalArgumentException("Invalid enumeration value '"
+                    +new String(buffer, start, end-start)+"'; not one of values of "
+                    +_lookup.getTypeName());
+        }
+        _value = value;
+    }
+
+    public void handleEmptyValue()
+    {
+        _value = null;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Immutable open-addressing hash table from names of enumerated
+     * values to values; hash codes are calculated same way as
+     * {@link String#hashCode}, but over character array ranges.
+     */
+    final static class Lookup
+    {
+        private final Class<?> _type;
+
+        private final String _typeName;
+
+        private final char[][] _names;
+
+        private final int[] _hashes;
+
+        private final Enum<?>[] _values;
+
+        private final int _mask;
+
+        Lookup(Class<? extends Enum<?>> enumType)
+        {
+            _type = enumType;
+            _typeName = enumType.getName();
+            Enum<?>[] values = enumType.getEnumConstants();
+            int size = 8;
+            while (size < (values.length + values.length)) {
+                size += size;
+            }
+            _mask = size-1;
+            _names = new char[size][];
+            _hashes = new int[size];
+            _values = new Enum<?>[size];
+            for (Enum<?> value : values) {
+                String name = value.name();
+                int hash = name.hashCode();
+                int ix = hash & _mask;
+                while (_names[ix] != null) {
+                    ix = (ix + 1) & _mask;
+                }
+                _names[ix] = name.toCharArray();
+                _hashes[ix] = hash;
+                _values[ix] = value;
+            }
+        }
+
+        public Class<?> getType() { return _type; }
+
+        public String getTypeName() { return _typeName; }
+
+        public Enum<?> find(char[] buffer, int start, int end)
+        {
+            int hash = 0;
+            for (int i = start; i < end; ++i) {
+                hash = (31 * hash) + buffer[i];
+            }
+            final int len = end-start;
+            int ix = hash & _mask;
+            char[] name;
+            while ((name = _names[ix]) != null) {
+                if (_hashes[ix] == hash && name.length == len) {
+                    int i = 0;
+                    while (i < len && name[i] == buffer[start+i]) {
+                        ++i;
+                    }
+                    if (i == len) {
+                        return _values[ix];
+                    }
+                }
+                ix = (ix + 1) & _mask;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package org.codehaus.staxmate.in;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLInputFactory2;
+
+import static org.codehaus.staxmate.in.SMEventBuffer.*;
+
+/**
+ * Basic Stax stream reader implementation that replays events
+ * contained in an {@link SMEventBuffer}. Reported event sequence
+ * starts with START_DOCUMENT and ends with END_DOCUMENT; in between
+ * come the buffered events.
+ *<p>
+ * Note: only namespace bindings declared within buffered elements
+ * are visible via namespace context; bindings declared by ancestors
+ * of the captured element are not retained (although namespace URIs
+ * of elements and attributes are).
+ *
+ * @since 2.1
+ */
+final class EventBufferReader
+    implements XMLStreamReader, NamespaceContext
+{
+    private final static Location NO_LOCATION = new Location() {
+        public int getLineNumber() { return -1; }
+        public int getColumnNumber() { return -1; }
+        public int getCharacterOffset() { return -1; }
+        public String getPublicId() { return null; }
+        public String getSystemId() { return null; }
+    };
+
+    private final SMEventBuffer _buffer;
+
+    private final int[] _events;
+
+    private final char[] _text;
+
+    private int _currEvent = START_DOCUMENT;
+
+    /**
+     * Index of the first entry of the current event in the event
+     * array
+     */
+    private int _ptr = -1;
+
+    /**
+     * Index of the first entry of the next event
+     */
+    private int _nextPtr = 0;
+
+    /**
+     * Stack of START_ELEMENT entry indexes of open elements: needed
+     * for END_ELEMENT names, and for resolving namespace bindings
+     */
+    private int[] _elemStack = new int[16];
+
+    private int _depth = 0;
+
+    /**
+     * Flag set when current event is END_ELEMENT, and matching
+     * element is to be popped off the stack when advancing
+     */
+    private boolean _popPending = false;
+
+    public EventBufferReader(SMEventBuffer buffer)
+    {
+        _buffer = buffer;
+        _events = buffer._events;
+        _text = buffer._text;
+    }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: iteration
+    /**********************************************************************
+     */
+
+    public Object getProperty(String name)
+    {
+        // names come from buffer's symbol table, which interns them
+        if (XMLInputFactory2.P_INTERN_NAMES.equals(name)
+            || XMLInputFactory2.P_INTERN_NS_URIS.equals(name)) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    public int next() throws XMLStreamException
+    {
+        if (_currEvent == END_DOCUMENT) {
+            throw new NoSuchElementException("Can not call next() after END_DOCUMENT");
+        }
+        if (_popPending) {
+            _popPending = false;
+            --_depth;
+        }
+        if (_nextPtr >= _buffer._eventsEnd) {
+            _ptr = _nextPtr;
+            return (_currEvent = END_DOCUMENT);
+        }
+        final int ptr = _nextPtr;
+        final int type = _events[ptr];
+        _ptr = ptr;
+        switch (type) {
+        case START_ELEMENT:
+            if (_depth == _elemStack.length) {
+                int[] old = _elemStack;
+                _elemStack = new int[old.length + old.length];
+                System.arraycopy(old, 0, _elemStack, 0, old.length);
+            }
+            _elemStack[_depth++] = ptr;
+            _nextPtr = ptr + START_FIXED_LEN
+                + _events[ptr+START_NS_COUNT] * NS_DECL_LEN
+                + _events[ptr+START_ATTR_COUNT] * ATTR_LEN;
+            break;
+        case END_ELEMENT:
+            _popPending = true;
+            _nextPtr = ptr + 1;
+            break;
+        case PROCESSING_INSTRUCTION:
+        case ENTITY_REFERENCE:
+            _nextPtr = ptr + NAMED_EVENT_LEN;
+            break;
+        default: // textual events
+            _nextPtr = ptr + TEXT_EVENT_LEN;
+        }
+        return (_currEvent = type);
+    }
+
+    public void require(int type, String nsUri, String localName)
+        throws XMLStreamException
+    {
+        if (type != _currEvent) {
+            throw new XMLStreamException("Expected event type "+type+", current event "+_currEvent);
+        }
+        if (localName != null) {
+            if (!hasName() || !localName.equals(getLocalName())) {
+                throw new XMLStreamException("Expected local name '"+localName+"'");
+            }
+        }
+        if (nsUri != null) {
+            String uri = hasName() ? getNamespaceURI() : null;
+            if (uri == null) {
+                uri = "";
+            }
+            if (!nsUri.equals(uri)) {
+                throw new XMLStreamException("Expected namespace URI '"+nsUri+"'");
+            }
+        }
+    }
+
+    public String getElementText() throws XMLStreamException
+    {
+        if (_currEvent != START_ELEMENT) {
+            throw new XMLStreamException("Can only call getElementText() when positioned at START_ELEMENT");
+        }
+        StringBuilder sb = null;
+        String text = null;
+        while (true) {
+            int type = next();
+            switch (type) {
+            case END_ELEMENT:
+                if (sb != null) {
+                    return sb.toString();
+                }
+                return (text == null) ? "" : text;
+            case CHARACTERS:
+            case CDATA:
+            case SPACE:
+            case ENTITY_REFERENCE:
+                if (text == null) {
+                    text = getText();
+                } else {
+                    if (sb == null) {
+                        sb = new StringBuilder(text);
+                    }
+                    sb.append(_text, getTextStart(), getTextLength());
+                }
+                break;
+            case COMMENT:
+            case PROCESSING_INSTRUCTION:
+                break;
+            default:
+                throw new XMLStreamException("Unexpected event type "+type+" when reading element text");
+            }
+        }
+    }
+
+    public int nextTag() throws XMLStreamException
+    {
+        while (true) {
+            int type = next();
+            switch (type) {
+            case START_ELEMENT:
+            case END_ELEMENT:
+                return type;
+            case CHARACTERS:
+            case CDATA:
+                if (!isWhiteSpace()) {
+                    throw new XMLStreamException("Non-white space text encountered when expecting START_ELEMENT or END_ELEMENT");
+                }
+                break;
+            case SPACE:
+            case COMMENT:
+            case PROCESSING_INSTRUCTION:
+                break;
+            default:
+                throw new XMLStreamException("Unexpected event type "+type+" when expecting START_ELEMENT or END_ELEMENT");
+            }
+        }
+    }
+
+    public boolean hasNext() { return (_currEvent != END_DOCUMENT); }
+
+    public void close() { }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: event type, names
+    /**********************************************************************
+     */
+
+    public int getEventType() { return _currEvent; }
+
+    public boolean isStartElement() { return (_currEvent == START_ELEMENT); }
+
+    public boolean isEndElement() { return (_currEvent == END_ELEMENT); }
+
+    public boolean isCharacters() { return (_currEvent == CHARACTERS); }
+
+    public boolean isWhiteSpace()
+    {
+        if (_currEvent == SPACE) {
+            return true;
+        }
+        if (_currEvent == CHARACTERS || _currEvent == CDATA) {
+            int i = _events[_ptr+TEXT_START];
+            for (int end = i + _events[_ptr+TEXT_LEN]; i < end; ++i) {
+                if (_text[i] > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public boolean hasName() {
+        return (_currEvent == START_ELEMENT || _currEvent == END_ELEMENT);
+    }
+
+    public QName getName()
+    {
+        int elem = _elemPtr();
+        return _qname(_events[elem+START_URI], _events[elem+START_LOCAL], _events[elem+START_PREFIX]);
+    }
+
+    public String getLocalName()
+    {
+        if (_currEvent == ENTITY_REFERENCE) {
+            return _buffer.symbol(_events[_ptr+NAMED_NAME]);
+        }
+        return _buffer.symbol(_events[_elemPtr()+START_LOCAL]);
+    }
+
+    public String getNamespaceURI()
+    {
+        if (!hasName()) {
+            return null;
+        }
+        return _buffer.symbol(_events[_elemPtr()+START_URI]);
+    }
+
+    public String getPrefix()
+    {
+        if (!hasName()) {
+            return null;
+        }
+        return _buffer.symbol(_events[_elemPtr()+START_PREFIX]);
+    }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: attributes
+    /**********************************************************************
+     */
+
+    public int getAttributeCount()
+    {
+        return _events[_startPtr()+START_ATTR_COUNT];
+    }
+
+    public String getAttributeValue(String nsUri, String localName)
+    {
+        final int ptr = _startPtr();
+        final int count = _events[ptr+START_ATTR_COUNT];
+        int ix = _attrPtr(ptr, 0);
+        for (int i = 0; i < count; ++i, ix += ATTR_LEN) {
+            if (!localName.equals(_buffer.symbol(_events[ix+2]))) {
+                continue;
+            }
+            if (nsUri != null) {
+                String uri = _buffer.symbol(_events[ix+1]);
+                if (uri == null) {
+                    uri = "";
+                }
+                if (!nsUri.equals(uri)) {
+                    continue;
+                }
+            }
+            return new String(_text, _events[ix+3], _events[ix+4]);
+        }
+        return null;
+    }
+
+    public QName getAttributeName(int index)
+    {
+        int ix = _attrPtr(_startPtr(), index);
+        return _qname(_events[ix+1], _events[ix+2], _events[ix]);
+    }
+
+    public String getAttributeNamespace(int index) {
+        return _buffer.symbol(_events[_attrPtr(_startPtr(), index)+1]);
+    }
+
+    public String getAttributeLocalName(int index) {
+        return _buffer.symbol(_events[_attrPtr(_startPtr(), index)+2]);
+    }
+
+    public String getAttributePrefix(int index) {
+        return _buffer.symbol(_events[_attrPtr(_startPtr(), index)]);
+    }
+
+    public String getAttributeType(int index) {
+        _attrPtr(_startPtr(), index);
+        return "CDATA";
+    }
+
+    public String getAttributeValue(int index)
+    {
+        int ix = _attrPtr(_startPtr(), index);
+        return new String(_text, _events[ix+3], _events[ix+4]);
+    }
+
+    public boolean isAttributeSpecified(int index) {
+        _attrPtr(_startPtr(), index);
+        return true;
+    }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: namespaces
+    /**********************************************************************
+     */
+
+    public int getNamespaceCount() {
+        return _events[_elemPtr()+START_NS_COUNT];
+    }
+
+    public String getNamespacePrefix(int index) {
+        return _buffer.symbol(_events[_nsPtr(_elemPtr(), index)]);
+    }
+
+    public String getNamespaceURI(int index) {
+        return _buffer.symbol(_events[_nsPtr(_elemPtr(), index)+1]);
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return this;
+    }
+
+    public String getNamespaceURI(String prefix)
+    {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Null prefix not allowed");
+        }
+        if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        for (int i = _depth; --i >= 0; ) {
+            final int elem = _elemStack[i];
+            final int count = _events[elem+START_NS_COUNT];
+            for (int j = 0; j < count; ++j) {
+                int ix = _nsPtr(elem, j);
+                String p = _buffer.symbol(_events[ix]);
+                if (p == null) {
+                    p = "";
+                }
+                if (p.equals(prefix)) {
+                    return _buffer.symbol(_events[ix+1]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+    /**********************************************************************
+    /* NamespaceContext implementation
+    /**********************************************************************
+     */
+
+    public String getPrefix(String nsUri)
+    {
+        if (nsUri == null) {
+            throw new IllegalArgumentException("Null namespace URI not allowed");
+        }
+        if (XMLConstants.XML_NS_URI.equals(nsUri)) {
+            return XMLConstants.XML_NS_PREFIX;
+        }
+        if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(nsUri)) {
+            return XMLConstants.XMLNS_ATTRIBUTE;
+        }
+        for (int i = _depth; --i >= 0; ) {
+            final int elem = _elemStack[i];
+            final int count = _events[elem+START_NS_COUNT];
+            for (int j = 0; j < count; ++j) {
+                int ix = _nsPtr(elem, j);
+                if (nsUri.equals(_buffer.symbol(_events[ix+1]))) {
+                    String prefix = _buffer.symbol(_events[ix]);
+                    // must also verify binding is not masked by an inner one
+                    if (nsUri.equals(getNamespaceURI(prefix == null ? "" : prefix))) {
+                        return (prefix == null) ? "" : prefix;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public Iterator<String> getPrefixes(String nsUri)
+    {
+        String prefix = getPrefix(nsUri);
+        if (prefix == null) {
+            return Collections.<String>emptyList().iterator();
+        }
+        return Collections.singletonList(prefix).iterator();
+    }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: textual content
+    /**********************************************************************
+     */
+
+    public String getText()
+    {
+        if (_currEvent == ENTITY_REFERENCE) {
+            return new String(_text, _events[_ptr+NAMED_TEXT_START], _events[_ptr+NAMED_TEXT_LEN]);
+        }
+        _verifyText();
+        return new String(_text, _events[_ptr+TEXT_START], _events[_ptr+TEXT_LEN]);
+    }
+
+    public char[] getTextCharacters()
+    {
+        _verifyText();
+        return _text;
+    }
+
+    public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length)
+    {
+        _verifyText();
+        int avail = _events[_ptr+TEXT_LEN] - sourceStart;
+        if (length > avail) {
+            length = avail;
+        }
+        if (length <= 0) {
+            return 0;
+        }
+        System.arraycopy(_text, _events[_ptr+TEXT_START] + sourceStart, target, targetStart, length);
+        return length;
+    }
+
+    public int getTextStart()
+    {
+        if (_currEvent == ENTITY_REFERENCE) {
+            return _events[_ptr+NAMED_TEXT_START];
+        }
+        _verifyText();
+        return _events[_ptr+TEXT_START];
+    }
+
+    public int getTextLength()
+    {
+        if (_currEvent == ENTITY_REFERENCE) {
+            return _events[_ptr+NAMED_TEXT_LEN];
+        }
+        _verifyText();
+        return _events[_ptr+TEXT_LEN];
+    }
+
+    public boolean hasText()
+    {
+        switch (_currEvent) {
+        case CHARACTERS:
+        case CDATA:
+        case SPACE:
+        case COMMENT:
+        case ENTITY_REFERENCE:
+            return true;
+        }
+        return false;
+    }
+
+    public String getPITarget()
+    {
+        if (_currEvent != PROCESSING_INSTRUCTION) {
+            return null;
+        }
+        return _buffer.symbol(_events[_ptr+NAMED_NAME]);
+    }
+
+    public String getPIData()
+    {
+        if (_currEvent != PROCESSING_INSTRUCTION) {
+            return null;
+        }
+        return new String(_text, _events[_ptr+NAMED_TEXT_START], _events[_ptr+NAMED_TEXT_LEN]);
+    }
+
+    /*
+    /**********************************************************************
+    /* XMLStreamReader: document properties
+    /**********************************************************************
+     */
+
+    public String getEncoding() { return null; }
+
+    public Location getLocation() { return NO_LOCATION; }
+
+    public String getVersion() { return null; }
+
+    public boolean isStandalone() { return false; }
+
+    public boolean standaloneSet() { return false; }
+
+    public String getCharacterEncodingScheme() { return null; }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * @return Index of the START_ELEMENT entry for the current
+     *   START_ELEMENT or END_ELEMENT event
+     */
+    private int _elemPtr()
+    {
+        if (!hasName()) {
+            throw new IllegalStateException("Current event not START_ELEMENT or END_ELEMENT");
+        }
+        return _elemStack[_depth-1];
+    }
+
+    private int _startPtr()
+    {
+        if (_currEvent != START_ELEMENT) {
+            throw new IllegalStateException("Current event not START_ELEMENT");
+        }
+        return _ptr;
+    }
+
+    private int _nsPtr(int elem, int index)
+    {
+        if (index < 0 || index >= _events[elem+START_NS_COUNT]) {
+            throw new IndexOutOfBoundsException("Invalid namespace index "+index);
+        }
+        return elem + START_FIXED_LEN + index * NS_DECL_LEN;
+    }
+
+    private int _attrPtr(int elem, int index)
+    {
+        if (index < 0 || index >= _events[elem+START_ATTR_COUNT]) {
+            throw new IndexOutOfBoundsException("Invalid attribute index "+index);
+        }
+        return elem + START_FIXED_LEN + _events[elem+START_NS_COUNT] * NS_DECL_LEN
+            + index * ATTR_LEN;
+    }
+
+    private void _verifyText()
+    {
+        switch (_currEvent) {
+        case CHARACTERS:
+        case CDATA:
+        case SPACE:
+        case COMMENT:
+            return;
+        }
+        throw new IllegalStateException("Current event ("+_currEvent+") not a textual event");
+    }
+
+    private QName _qname(int uri, int local, int prefix)
+    {
+        String u = _buffer.symbol(uri);
+        String p = _buffer.symbol(prefix);
+        return new QName((u == null) ? "" : u, _buffer.symbol(local), (p == null) ? "" : p);
+    }
+}
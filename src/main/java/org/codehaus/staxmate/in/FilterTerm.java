@@ -0,0 +1,198 @@
+package org.codehaus.staxmate.in;
+
+import java.util.Collection;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Simple immutable expression tree node used for representing
+ * filter conditions in a form that can be combined and compiled
+ * into a single filter (see {@link CompiledFilter}).
+ * Filters that can be expressed as terms expose them via
+ * {@link SMFilter#asTerm}; others are included as opaque terms,
+ * and called as is.
+ */
+final class FilterTerm
+{
+    // // // Term types
+
+    final static int TYPES = 1;
+    final static int NAMES = 2;
+    final static int ATTR = 3;
+    final static int DEPTH = 4;
+    final static int OPAQUE = 5;
+    final static int AND = 6;
+    final static int OR = 7;
+    final static int NOT = 8;
+
+    /**
+     * Bit mask that contains bits for all possible event types
+     */
+    final static int ALL_TYPES = ~0;
+
+    final static int ELEMENT_TYPES = (1 << SMEvent.START_ELEMENT.getEventCode())
+        | (1 << SMEvent.END_ELEMENT.getEventCode());
+
+    final int _kind;
+
+    /**
+     * For {@link #TYPES}: bitmask of event types matched
+     */
+    final int _mask;
+
+    /**
+     * For {@link #NAMES}: element names matched
+     */
+    final Collection<QName> _names;
+
+    /**
+     * For {@link #ATTR}: name of attribute required
+     */
+    final QName _attrName;
+
+    /**
+     * For {@link #DEPTH}: inclusive range of parent counts matched
+     */
+    final int _minDepth, _maxDepth;
+
+    /**
+     * For {@link #OPAQUE}: filter to call
+     */
+    final SMFilter _filter;
+
+    /**
+     * For {@link #AND}, {@link #OR} and {@link #NOT}: terms combined
+     */
+    final FilterTerm[] _children;
+
+    private FilterTerm(int kind, int mask, Collection<QName> names, QName attrName,
+            int minDepth, int maxDepth, SMFilter filter, FilterTerm[] children)
+    {
+        _kind = kind;
+        _mask = mask;
+        _names = names;
+        _attrName = attrName;
+        _minDepth = minDepth;
+        _maxDepth = maxDepth;
+        _filter = filter;
+        _children = children;
+    }
+
+    /*
+    /**********************************************************************
+    /* Factory methods
+    /**********************************************************************
+     */
+
+    static FilterTerm types(int mask) {
+        return new FilterTerm(TYPES, mask, null, null, 0, 0, null, null);
+    }
+
+    static FilterTerm names(Collection<QName> names) {
+        return new FilterTerm(NAMES, 0, names, null, 0, 0, null, null);
+    }
+
+    static FilterTerm attribute(QName name) {
+        return new FilterTerm(ATTR, 0, null, name, 0, 0, null, null);
+    }
+
+    static FilterTerm depth(int min, int max) {
+        return new FilterTerm(DEPTH, 0, null, null, min, max, null, null);
+    }
+
+    static FilterTerm and(FilterTerm... children) {
+        return new FilterTerm(AND, 0, null, null, 0, 0, null, children);
+    }
+
+    static FilterTerm or(FilterTerm... children) {
+        return new FilterTerm(OR, 0, null, null, 0, 0, null, children);
+    }
+
+    static FilterTerm not(FilterTerm child) {
+        return new FilterTerm(NOT, 0, null, null, 0, 0, null, new FilterTerm[] { child });
+    }
+
+    /**
+     * Method for constructing term for given filter: either its own
+     * term (if it has one), or an opaque term that calls it.
+     */
+    static FilterTerm forFilter(SMFilter f)
+    {
+        FilterTerm t = f.asTerm();
+        return (t == null) ? new FilterTerm(OPAQUE, 0, null, null, 0, 0, f, null) : t;
+    }
+
+    /*
+    /**********************************************************************
+    /* Static analysis
+    /**********************************************************************
+     */
+
+    /**
+     * @return Bitmask of event types for which this term may evaluate
+     *   to true
+     */
+    int maybeTypes()
+    {
+        switch (_kind) {
+        case TYPES:
+            return _mask;
+        case NAMES:
+            return ELEMENT_TYPES;
+        case ATTR:
+            return (1 << SMEvent.START_ELEMENT.getEventCode());
+        case AND:
+            {
+                int mask = ALL_TYPES;
+                for (FilterTerm t : _children) {
+                    mask &= t.maybeTypes();
+                }
+                return mask;
+            }
+        case OR:
+            {
+                int mask = 0;
+                for (FilterTerm t : _children) {
+                    mask |= t.maybeTypes();
+                }
+                return mask;
+            }
+        case NOT:
+            return ~_children[0].alwaysTypes();
+        }
+        // DEPTH, OPAQUE
+        return ALL_TYPES;
+    }
+
+    /**
+     * @return Bitmask of event types for which this term always
+     *   evaluates to true
+     */
+    int alwaysTypes()
+    {
+        switch (_kind) {
+        case TYPES:
+            return _mask;
+        case AND:
+            {
+                int mask = ALL_TYPES;
+                for (FilterTerm t : _children) {
+                    mask &= t.alwaysTypes();
+                }
+                return mask;
+            }
+        case OR:
+            {
+                int mask = 0;
+                for (FilterTerm t : _children) {
+                    mask |= t.alwaysTypes();
+                }
+                return mask;
+            }
+        case NOT:
+            return ~_children[0].maybeTypes();
+        }
+        // NAMES, ATTR, DEPTH, OPAQUE
+        return 0;
+    }
+}
@@ -0,0 +1,139 @@
+package org.codehaus.staxmate.in;
+
+import java.util.Collection;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Simple read-only hash table used for efficiently mapping qualified
+ * element (or attribute) names into indexes, for things like
+ * dispatching and filtering. Names are stored interned, so that
+ * lookups can use identity comparison when the underlying stream
+ * reader is known to intern names (as Woodstox and Aalto do);
+ * otherwise lookups fall back to using {@link String#equals}.
+ *<p>
+ * Note: "no namespace" is represented by the empty String; nulls
+ * passed to lookup methods are handled accordingly.
+ */
+final class NameIndex
+{
+    /**
+     * Local names of entries in the hash area; null for empty slots
+     */
+    private final String[] _localNames;
+
+    /**
+     * Namespace URIs of entries in the hash area; empty String
+     * for "no namespace"
+     */
+    private final String[] _nsUris;
+
+    /**
+     * Index values of entries in the hash area
+     */
+    private final int[] _indexes;
+
+    private final int _mask;
+
+    private final int _size;
+
+    /**
+     * @param names Names to index; index of each name is its position
+     *   in iteration order. Duplicates are allowed, in which case
+     *   the first index is used.
+     */
+    NameIndex(Collection<QName> names)
+    {
+        // Let's keep fill rate at most 50%, for short probe sequences
+        int hashSize = 8;
+        while (hashSize < (names.size() << 1)) {
+            hashSize += hashSize;
+        }
+        _localNames = new String[hashSize];
+        _nsUris = new String[hashSize];
+        _indexes = new int[hashSize];
+        _mask = hashSize - 1;
+
+        int index = 0;
+        int size = 0;
+        for (QName name : names) {
+            String ln = name.getLocalPart().intern();
+            String uri = _uri(name.getNamespaceURI()).intern();
+            int ix = (ln.hashCode() & _mask);
+            while (_localNames[ix] != null) {
+                if (_localNames[ix] == ln && _nsUris[ix] == uri) { // dup
+                    break;
+                }
+                ix = (ix + 1) & _mask;
+            }
+            if (_localNames[ix] == null) {
+                _localNames[ix] = ln;
+                _nsUris[ix] = uri;
+                _indexes[ix] = index;
+                ++size;
+            }
+            ++index;
+        }
+        _size = size;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * @return Number of distinct names indexed
+     */
+    public int size() { return _size; }
+
+    /**
+     * Method for finding index of given name, if contained in the index.
+     *
+     * @param nsUri Namespace URI of the name; null or empty String if
+     *   name does not belong to a namespace
+     * @param localName Local name to look for
+     * @param interned Whether given Strings are known to be interned
+     *   (if so, identity comparison is used)
+     *
+     * @return Index of the name if found; -1 if not
+     */
+    public int find(String nsUri, String localName, boolean interned)
+    {
+        // let's not count on "" being interned, or nulls being used
+        if (nsUri == null || nsUri.length() == 0) {
+            nsUri = "";
+        }
+        final String[] names = _localNames;
+        int ix = (localName.hashCode() & _mask);
+        String ln;
+
+        if (interned) {
+            while ((ln = names[ix]) != null) {
+                if (ln == localName && _nsUris[ix] == nsUri) {
+                    return _indexes[ix];
+                }
+                ix = (ix + 1) & _mask;
+            }
+        } else {
+            while ((ln = names[ix]) != null) {
+                if (ln.equals(localName) && _nsUris[ix].equals(nsUri)) {
+                    return _indexes[ix];
+                }
+                ix = (ix + 1) & _mask;
+            }
+        }
+        return -1;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    private static String _uri(String uri) {
+        return (uri == null) ? "" : uri;
+    }
+}
@@ -0,0 +1,93 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.ri.Stax2ReaderAdapter;
+
+/**
+ * Base class for objects used for feeding input to a non-blocking
+ * (async) stream reader, such as the one Aalto provides. Instead of
+ * blocking when it runs out of input, such a reader returns
+ * {@link #EVENT_INCOMPLETE} from <code>next()</code>; and cursors
+ * constructed over it (see
+ * {@link org.codehaus.staxmate.SMInputFactory#rootElementCursor(SMAsyncInput)})
+ * return {@link SMEvent#INCOMPLETE} from {@link SMInputCursor#getNext},
+ * after which more input can be fed and iteration continued.
+ * This allows processing of content as it arrives (from network,
+ * for example) without dedicating a thread per document.
+ *<p>
+ * Instances are usually constructed using
+ * {@link org.codehaus.staxmate.SMInputFactory#createAsyncInput};
+ * but sub-classes may also be implemented for other non-blocking
+ * parsers. Example:
+ *<pre>
+ *  SMAsyncInput input = smFactory.createAsyncInput();
+ *  SMInputCursor crsr = SMInputFactory.rootElementCursor(input);
+ *  ...
+ *  // whenever a chunk of content is available:
+ *  input.feedInput(buffer, 0, count);
+ *  SMEvent evt;
+ *  while ((evt = crsr.getNext()) != SMEvent.INCOMPLETE) {
+ *     ...
+ *  }
+ *</pre>
+ *<p>
+ * Note that only iteration (and accessors for the current event)
+ * can be suspended: methods that read the whole contents of an element
+ * (like {@link SMInputCursor#getElemStringValue}, typed element
+ * accessors, {@link SMInputCursor#collectDescendantText},
+ * {@link SMInputCursor#processDescendantText} and
+ * {@link SMInputCursor#captureElement}), as well as processors that
+ * traverse content in one go ({@link SMElementDispatcher},
+ * {@link SMPathMatcher}, {@link SMRecordSplitter}), require that all
+ * of the content they read has already been fed. Text collection
+ * methods and processors throw an {@link XMLStreamException} if they
+ * run out of input.
+ *
+ * @since 2.1
+ */
+public abstract class SMAsyncInput
+{
+    /**
+     * Event code non-blocking stream readers return when they
+     * need more input to be able to return the next event (same as
+     * what Aalto uses).
+     */
+    public final static int EVENT_INCOMPLETE = 257;
+
+    protected final XMLStreamReader2 _streamReader;
+
+    protected SMAsyncInput(XMLStreamReader sr)
+    {
+        _streamReader = Stax2ReaderAdapter.wrapIfNecessary(sr);
+    }
+
+    /**
+     * @return Non-blocking stream reader to which input is fed
+     */
+    public XMLStreamReader2 getStreamReader() { return _streamReader; }
+
+    /**
+     * Method for checking whether all input fed so far has been
+     * consumed, so that more input can (and needs to) be fed.
+     */
+    public abstract boolean needMoreInput();
+
+    /**
+     * Method for feeding the next chunk of content to parse. Should only
+     * be called when {@link #needMoreInput} returns true; contents of
+     * the buffer must not be modified before the cursor has consumed
+     * it (that is, before it returns {@link SMEvent#INCOMPLETE} again).
+     */
+    public abstract void feedInput(byte[] data, int offset, int len)
+        throws XMLStreamException;
+
+    /**
+     * Method for indicating that all content has been fed; after
+     * this, cursors will no longer return {@link SMEvent#INCOMPLETE}.
+     */
+    public abstract void endOfInput()
+        throws XMLStreamException;
+}
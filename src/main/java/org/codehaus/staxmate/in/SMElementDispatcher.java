@@ -0,0 +1,220 @@
+package org.codehaus.staxmate.in;
+
+import java.util.ArrayList;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+/**
+ * Helper class that can be used to replace chains of
+ * <code>hasLocalName()</code> / <code>hasName()</code> checks
+ * (used for determining what to do with an element) with a single
+ * hash lookup. Dispatcher is configured with a set of element names
+ * and matching {@link SMElementHandler}s (plus optional default handler
+ * for other elements), and can then be used to dispatch START_ELEMENTs
+ * cursors point to, or to drive whole cursor loops.
+ *<p>
+ * Lookups compare names by identity if the underlying stream
+ * reader is known to intern names (see
+ * {@link SMInputContext#namesInterned}), and by value otherwise.
+ *<p>
+ * Instances should be fully configured before use; after this,
+ * dispatchers can be reused and shared between threads.
+ *<p>
+ * Example:
+ *<pre>
+ *  SMElementDispatcher disp = new SMElementDispatcher()
+ *    .addHandler("name", nameHandler)
+ *    .addHandler("price", priceHandler);
+ *  while (recordCrsr.getNext() != null) {
+ *    disp.processChildren(recordCrsr);
+ *  }
+ *</pre>
+ *
+ * @since 2.1
+ */
+public class SMElementDispatcher
+{
+    /**
+     * Names handlers have been registered for, in registration order
+     */
+    protected final ArrayList<QName> _names = new ArrayList<QName>();
+
+    /**
+     * Handlers registered, in registration order
+     */
+    protected final ArrayList<SMElementHandler> _handlerList = new ArrayList<SMElementHandler>();
+
+    /**
+     * Handler to call for elements for which no explicit handler
+     * has been registered, if any.
+     */
+    protected SMElementHandler _defaultHandler;
+
+    /**
+     * Name index built from {@link #_names}; rebuilt whenever
+     * handlers are added.
+     */
+    protected NameIndex _index;
+
+    /**
+     * Handlers indexed by name index.
+     */
+    protected SMElementHandler[] _handlers;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle, configuration
+    /**********************************************************************
+     */
+
+    public SMElementDispatcher()
+    {
+        _compile();
+    }
+
+    /**
+     * Method for registering handler to call for elements with given
+     * qualified name. If a handler had already been registered for
+     * the name, it will be replaced.
+     *
+     * @return This dispatcher, to allow call chaining
+     */
+    public SMElementDispatcher addHandler(QName name, SMElementHandler h)
+    {
+        if (h == null) {
+            throw new IllegalArgumentException("Handler can not be null");
+        }
+        int ix = _names.indexOf(name);
+        if (ix >= 0) {
+            _handlerList.set(ix, h);
+        } else {
+            _names.add(name);
+            _handlerList.add(h);
+        }
+        _compile();
+        return this;
+    }
+
+    /**
+     * Method for registering handler to call for elements with
+     * given local name, that do not belong to a namespace.
+     *
+     * @return This dispatcher, to allow call chaining
+     */
+    public final SMElementDispatcher addHandler(String localName, SMElementHandler h)
+    {
+        return addHandler(new QName(localName), h);
+    }
+
+    /**
+     * Method for specifying handler to call for elements for which
+     * no explicit handler has been registered. If no default handler
+     * is set (or it is set to null), such elements are skipped.
+     *
+     * @return This dispatcher, to allow call chaining
+     */
+    public SMElementDispatcher setDefaultHandler(SMElementHandler h)
+    {
+        _defaultHandler = h;
+        return this;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API, dispatching
+    /**********************************************************************
+     */
+
+    /**
+     * Method for finding handler to use for the START_ELEMENT given
+     * cursor points to: either one registered for the name, or
+     * the default handler if none is (which may be null).
+     */
+    public SMElementHandler findHandler(SMInputCursor crsr)
+        throws XMLStreamException
+    {
+        if (crsr.getCurrEvent() != SMEvent.START_ELEMENT) {
+            throw crsr._wrongState("findHandler", SMEvent.START_ELEMENT);
+        }
+        XMLStreamReader2 sr = crsr._getStreamReader();
+        int ix = _index.find(sr.getNamespaceURI(), sr.getLocalName(),
+                crsr._context.namesInterned());
+        return (ix < 0) ? _defaultHandler : _handlers[ix];
+    }
+
+    /**
+     * Method for dispatching the START_ELEMENT given cursor points
+     * to, to the matching handler, if any.
+     *
+     * @return True if a handler was found and called; false if not
+     *   (in which case element was not processed)
+     */
+    public boolean dispatch(SMInputCursor crsr)
+        throws XMLStreamException
+    {
+        SMElementHandler h = findHandler(crsr);
+        if (h == null) {
+            return false;
+        }
+        h.handleElement(crsr);
+        return true;
+    }
+
+    /**
+     * Method that will advance given cursor through all of its remaining
+     * events, and dispatch all START_ELEMENTs it encounters.
+     *
+     * @return Number of elements for which a handler was called
+     */
+    public int process(SMInputCursor crsr)
+        throws XMLStreamException
+    {
+        final boolean interned = crsr._context.namesInterned();
+        final XMLStreamReader2 sr = crsr._getStreamReader();
+        final NameIndex index = _index;
+        final SMElementHandler[] handlers = _handlers;
+        int count = 0;
+        SMEvent evt;
+
+        while ((evt = crsr._getNextComplete("SMElementDispatcher.process")) != null) {
+            if (evt != SMEvent.START_ELEMENT) {
+                continue;
+            }
+            int ix = index.find(sr.getNamespaceURI(), sr.getLocalName(), interned);
+            SMElementHandler h = (ix < 0) ? _defaultHandler : handlers[ix];
+            if (h != null) {
+                h.handleElement(crsr);
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Convenience method that will construct child element cursor
+     * for the START_ELEMENT given cursor points to, and then
+     * process it as per {@link #process}.
+     *
+     * @return Number of child elements for which a handler was called
+     */
+    public int processChildren(SMInputCursor parent)
+        throws XMLStreamException
+    {
+        return process(parent.childElementCursor());
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _compile()
+    {
+        _index = new NameIndex(_names);
+        _handlers = _handlerList.toArray(new SMElementHandler[_handlerList.size()]);
+    }
+}
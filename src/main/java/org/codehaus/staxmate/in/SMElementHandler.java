@@ -0,0 +1,22 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Interface for callback objects that {@link SMElementDispatcher}
+ * calls for start elements it dispatches.
+ *
+ * @since 2.1
+ */
+public interface SMElementHandler
+{
+    /**
+     * Method called when given cursor points to a START_ELEMENT that
+     * this handler has been registered for.
+     * Handler is free to access the element (including its attributes
+     * and typed content), as well as create child cursors for traversing
+     * its contents; but should not advance the cursor itself.
+     */
+    public void handleElement(SMInputCursor crsr)
+        throws XMLStreamException;
+}
@@ -42,6 +42,17 @@ public enum SMEvent
     ATTRIBUTE(XMLStreamConstants.ATTRIBUTE),
     NAMESPACE_DECL(XMLStreamConstants.NAMESPACE),
 
+        /**
+         * Pseudo-event returned by cursors that read content using
+         * a non-blocking (async) parser (see {@link SMAsyncInput}),
+         * to indicate that no more events can be returned before
+         * more input is fed. Calling <code>getNext()</code> again after
+         * feeding more input will continue iteration.
+         *
+         * @since 2.1
+         */
+    INCOMPLETE(SMAsyncInput.EVENT_INCOMPLETE),
+
         /**
          * This is a placeholder event which should never be encountered during
          * normal operation. It is only used if an underlying event is of
@@ -166,7 +177,7 @@ public enum SMEvent
      * events, not just events that have some associated text.
      */
     public boolean isTextualEvent() {
-        return ((1 << mEventType) & MASK_TEXTUAL_EVENT) != 0;
+        return (_mask() & MASK_TEXTUAL_EVENT) != 0;
     }
 
     /**
@@ -183,7 +194,7 @@ public enum SMEvent
      * is considered to be text by StaxMate.
      */
     public boolean hasText() {
-        return ((1 << mEventType) & MASK_HAS_TEXT) != 0;
+        return (_mask() & MASK_HAS_TEXT) != 0;
     }
 
     // Name-properties:
@@ -195,7 +206,7 @@ public enum SMEvent
      * event.
      */
     public boolean hasLocalName() {
-        return ((1 << mEventType) & MASK_HAS_LOCAL_NAME) != 0;
+        return (_mask() & MASK_HAS_LOCAL_NAME) != 0;
     }
 
     /**
@@ -205,7 +216,16 @@ public enum SMEvent
      * event.
      */
     public boolean hasQName() {
-        return ((1 << mEventType) & MASK_HAS_QNAME) != 0;
+        return (_mask() & MASK_HAS_QNAME) != 0;
+    }
+
+    /**
+     * Helper method for constructing bit mask for this event type;
+     * 0 for types with codes too big for masks (like
+     * {@link #INCOMPLETE}).
+     */
+    private int _mask() {
+        return (mEventType < 32) ? (1 << mEventType) : 0;
     }
 
     /*
@@ -240,6 +260,7 @@ public enum SMEvent
             START_DOCUMENT,
             START_ELEMENT,
 
+            // note: INCOMPLETE is never mapped, cursors check it explicitly
             UNKNOWN
         };
         for (SMEvent evt : evts) {
@@ -0,0 +1,414 @@
+package org.codehaus.staxmate.in;
+
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.ri.Stax2ReaderAdapter;
+
+/**
+ * Compact in-memory representation of a sequence of Stax events,
+ * used for capturing an element (and all of its contents) from
+ * a stream reader, to be replayed later on, any number of times and
+ * possibly by other threads. This allows multi-pass processing of
+ * (relatively small) sub-trees without having to build a DOM
+ * representation.
+ *<p>
+ * Events are stored as a sequence of int-valued opcodes and
+ * arguments (including attributes of start elements); textual content
+ * (including attribute values) is stored in a single shared character
+ * array, and names in an interned symbol table (so that names repeated
+ * in the buffer are only stored once, and can be compared by identity).
+ *<p>
+ * Buffers are filled by a single thread; after this, any number of
+ * readers (see {@link #createReader}) can be constructed to replay
+ * contents, from any thread. Cursors over buffered content are most
+ * conveniently constructed using
+ * {@link org.codehaus.staxmate.SMInputFactory#rootElementCursor(SMEventBuffer)}.
+ *<p>
+ * Example:
+ *<pre>
+ *  SMEventBuffer buffer = recordCrsr.captureElement();
+ *  // first pass:
+ *  SMInputCursor crsr = SMInputFactory.rootElementCursor(buffer).advance();
+ *  ...
+ *  // second pass:
+ *  crsr = SMInputFactory.rootElementCursor(buffer).advance();
+ *</pre>
+ *
+ * @since 2.1
+ */
+public final class SMEventBuffer
+{
+    /*
+    /**********************************************************************
+    /* Constants for event layouts
+    /**********************************************************************
+     */
+
+    /**
+     * Offsets of START_ELEMENT fields, relative to the event type.
+     * After fixed fields come namespace declarations (prefix, URI),
+     * and then attributes (prefix, URI, local name, value start,
+     * value length).
+     */
+    final static int START_PREFIX = 1;
+    final static int START_URI = 2;
+    final static int START_LOCAL = 3;
+    final static int START_NS_COUNT = 4;
+    final static int START_ATTR_COUNT = 5;
+    final static int START_FIXED_LEN = 6;
+
+    final static int NS_DECL_LEN = 2;
+    final static int ATTR_LEN = 5;
+
+    /**
+     * Textual events (CHARACTERS, CDATA, SPACE, COMMENT) have
+     * text start and length
+     */
+    final static int TEXT_START = 1;
+    final static int TEXT_LEN = 2;
+    final static int TEXT_EVENT_LEN = 3;
+
+    /**
+     * PROCESSING_INSTRUCTION and ENTITY_REFERENCE have name (target),
+     * followed by text (data, replacement text) start and length
+     */
+    final static int NAMED_NAME = 1;
+    final static int NAMED_TEXT_START = 2;
+    final static int NAMED_TEXT_LEN = 3;
+    final static int NAMED_EVENT_LEN = 4;
+
+    /*
+    /**********************************************************************
+    /* Contents
+    /**********************************************************************
+     */
+
+    int[] _events = new int[64];
+
+    /**
+     * Number of entries used in {@link #_events}
+     */
+    int _eventsEnd;
+
+    /**
+     * Number of events contained
+     */
+    int _eventCount;
+
+    char[] _text = new char[256];
+
+    int _textEnd;
+
+    String[] _symbols = new String[16];
+
+    int _symbolCount;
+
+    /**
+     * Hash area used for finding symbols already added: contains
+     * symbol index plus one, 0 meaning empty slot
+     */
+    private int[] _symbolHash = new int[32];
+
+    /**
+     * Whether names from the reader currently being captured are
+     * already interned (in which case they need not be interned again)
+     */
+    private boolean _namesInterned;
+
+    public SMEventBuffer() { }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * @return Number of events contained in this buffer
+     */
+    public int size() { return _eventCount; }
+
+    /**
+     * Method that clears contents of this buffer, retaining underlying
+     * arrays for reuse. Note that readers constructed before calling
+     * this method can not be used after the call.
+     */
+    public void reset()
+    {
+        _eventsEnd = 0;
+        _eventCount = 0;
+        _textEnd = 0;
+        for (int i = 0; i < _symbolCount; ++i) {
+            _symbols[i] = null;
+        }
+        _symbolCount = 0;
+        Arrays.fill(_symbolHash, 0);
+    }
+
+    /**
+     * Method that will read and append all events from the
+     * START_ELEMENT that given stream reader currently points to,
+     * up to and including the matching END_ELEMENT. After the call,
+     * stream reader points to that END_ELEMENT.
+     *<p>
+     * Note that usually it is more convenient to call
+     * {@link SMInputCursor#captureElement} instead, since it will also
+     * update state of the cursor.
+     *<p>
+     * Names are interned as they are added; if the reader is known
+     * to intern names itself, {@link #captureElement(XMLStreamReader,boolean)}
+     * can be used to avoid doing it again.
+     */
+    public void captureElement(XMLStreamReader sr)
+        throws XMLStreamException
+    {
+        captureElement(sr, false);
+    }
+
+    /**
+     * Method that will read and append all events from the
+     * START_ELEMENT that given stream reader currently points to,
+     * up to and including the matching END_ELEMENT.
+     *
+     * @param namesInterned Whether given stream reader is known to
+     *   return interned names (and namespace URIs)
+     *
+     * @since 2.1
+     */
+    public void captureElement(XMLStreamReader sr, boolean namesInterned)
+        throws XMLStreamException
+    {
+        _namesInterned = namesInterned;
+        if (sr.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            throw new IllegalStateException("Can only capture an element when stream reader points to START_ELEMENT");
+        }
+        int depth = 0;
+        int type = XMLStreamConstants.START_ELEMENT;
+        while (true) {
+            switch (type) {
+            case XMLStreamConstants.START_ELEMENT:
+                ++depth;
+                _appendStartElement(sr);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                _appendEvent(type);
+                if (--depth == 0) {
+                    return;
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+            case XMLStreamConstants.COMMENT:
+                {
+                    int ix = _reserve(TEXT_EVENT_LEN);
+                    _events[ix] = type;
+                    _appendText(ix + TEXT_START, sr.getTextCharacters(), sr.getTextStart(), sr.getTextLength());
+                }
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                {
+                    int ix = _reserve(NAMED_EVENT_LEN);
+                    _events[ix] = type;
+                    _events[ix+NAMED_NAME] = _symbol(sr.getPITarget());
+                    String data = sr.getPIData();
+                    if (data == null) {
+                        data = "";
+                    }
+                    _appendText(ix + NAMED_TEXT_START, data.toCharArray(), 0, data.length());
+                }
+                break;
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                {
+                    int ix = _reserve(NAMED_EVENT_LEN);
+                    _events[ix] = type;
+                    _events[ix+NAMED_NAME] = _symbol(sr.getLocalName());
+                    String text = sr.getText();
+                    if (text == null) {
+                        text = "";
+                    }
+                    _appendText(ix + NAMED_TEXT_START, text.toCharArray(), 0, text.length());
+                }
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Unexpected END_DOCUMENT when capturing element", sr.getLocation());
+            default: // nothing else should be encountered within elements
+            }
+            type = sr.next();
+        }
+    }
+
+    /**
+     * Method for constructing a stream reader that will replay events
+     * contained in this buffer, starting with a START_DOCUMENT event
+     * and ending with an END_DOCUMENT event. Buffer should not be
+     * modified while readers are used. Readers report names (and
+     * namespace URIs) as interned.
+     */
+    public XMLStreamReader2 createReader()
+    {
+        return Stax2ReaderAdapter.wrapIfNecessary(new EventBufferReader(this));
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors for reader
+    /**********************************************************************
+     */
+
+    String symbol(int index) {
+        return (index < 0) ? null : _symbols[index];
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    private void _appendStartElement(XMLStreamReader sr)
+    {
+        final int nsCount = sr.getNamespaceCount();
+        final int attrCount = sr.getAttributeCount();
+        int ix = _reserve(START_FIXED_LEN + nsCount * NS_DECL_LEN + attrCount * ATTR_LEN);
+        final int[] events = _events;
+        events[ix] = XMLStreamConstants.START_ELEMENT;
+        events[ix+START_PREFIX] = _symbol(sr.getPrefix());
+        events[ix+START_URI] = _symbol(sr.getNamespaceURI());
+        events[ix+START_LOCAL] = _symbol(sr.getLocalName());
+        events[ix+START_NS_COUNT] = nsCount;
+        events[ix+START_ATTR_COUNT] = attrCount;
+        ix += START_FIXED_LEN;
+        for (int i = 0; i < nsCount; ++i) {
+            events[ix++] = _symbol(sr.getNamespacePrefix(i));
+            events[ix++] = _symbol(sr.getNamespaceURI(i));
+        }
+        for (int i = 0; i < attrCount; ++i) {
+            events[ix] = _symbol(sr.getAttributePrefix(i));
+            events[ix+1] = _symbol(sr.getAttributeNamespace(i));
+            events[ix+2] = _symbol(sr.getAttributeLocalName(i));
+            String value = sr.getAttributeValue(i);
+            _appendText(ix+3, value);
+            ix += ATTR_LEN;
+        }
+    }
+
+    private void _appendEvent(int type)
+    {
+        int ix = _reserve(1);
+        _events[ix] = type;
+    }
+
+    /**
+     * Method for reserving space for given number of event entries;
+     * also counts the event being added.
+     *
+     * @return Index of the first reserved entry
+     */
+    private int _reserve(int count)
+    {
+        int ix = _eventsEnd;
+        int end = ix + count;
+        if (end > _events.length) {
+            int[] old = _events;
+            _events = new int[Math.max(end, old.length + (old.length >> 1))];
+            System.arraycopy(old, 0, _events, 0, ix);
+        }
+        _eventsEnd = end;
+        ++_eventCount;
+        return ix;
+    }
+
+    /**
+     * Method for appending given text, and storing its start offset
+     * and length in event entries at given index.
+     */
+    private void _appendText(int eventIndex, char[] buf, int offset, int len)
+    {
+        int start = _textEnd;
+        _ensureTextRoom(len);
+        System.arraycopy(buf, offset, _text, start, len);
+        _textEnd = start + len;
+        _events[eventIndex] = start;
+        _events[eventIndex+1] = len;
+    }
+
+    private void _appendText(int eventIndex, String str)
+    {
+        int start = _textEnd;
+        int len = str.length();
+        _ensureTextRoom(len);
+        str.getChars(0, len, _text, start);
+        _textEnd = start + len;
+        _events[eventIndex] = start;
+        _events[eventIndex+1] = len;
+    }
+
+    private void _ensureTextRoom(int len)
+    {
+        int end = _textEnd + len;
+        if (end > _text.length) {
+            char[] old = _text;
+            _text = new char[Math.max(end, old.length + (old.length >> 1))];
+            System.arraycopy(old, 0, _text, 0, _textEnd);
+        }
+    }
+
+    /**
+     * Method for finding index of given symbol, adding it to the
+     * symbol table if not yet contained.
+     *
+     * @return Index of the symbol; -1 for null
+     */
+    private int _symbol(String str)
+    {
+        if (str == null) {
+            return -1;
+        }
+        int mask = _symbolHash.length - 1;
+        int ix = str.hashCode() & mask;
+        int index;
+        while ((index = _symbolHash[ix]) != 0) {
+            String sym = _symbols[index-1];
+            // names are usually interned by readers, so identity check first
+            if (sym == str || sym.equals(str)) {
+                return index-1;
+            }
+            ix = (ix + 1) & mask;
+        }
+        index = _symbolCount++;
+        if (index >= _symbols.length) {
+            String[] old = _symbols;
+            _symbols = new String[old.length + old.length];
+            System.arraycopy(old, 0, _symbols, 0, old.length);
+        }
+        // interning allows identity comparisons for names read from buffer
+        _symbols[index] = _namesInterned ? str : str.intern();
+        // keep hash area at most half full
+        if (_symbolCount + _symbolCount > _symbolHash.length) {
+            _rehashSymbols();
+        } else {
+            _symbolHash[ix] = index+1;
+        }
+        return index;
+    }
+
+    private void _rehashSymbols()
+    {
+        int[] hash = new int[_symbolHash.length + _symbolHash.length];
+        int mask = hash.length - 1;
+        for (int i = 0; i < _symbolCount; ++i) {
+            int ix = _symbols[i].hashCode() & mask;
+            while (hash[ix] != 0) {
+                ix = (ix + 1) & mask;
+            }
+            hash[ix] = i+1;
+        }
+        _symbolHash = hash;
+    }
+}
@@ -31,4 +31,18 @@ public abstract class SMFilter
      */
     public abstract boolean accept(SMEvent evt, SMInputCursor caller)
         throws XMLStreamException;
+
+    /**
+     * Method used when combining filters (see
+     * {@link SMFilterFactory#getAndFilter} and related methods), to
+     * get a representation of the filter that can be compiled
+     * together with other conditions. Default implementation
+     * returns null to indicate that the filter has to be called
+     * as is; only filters included in this package can override it.
+     *
+     * @since 2.1
+     */
+    FilterTerm asTerm() {
+        return null;
+    }
 }
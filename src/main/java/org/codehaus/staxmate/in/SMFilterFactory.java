@@ -1,5 +1,7 @@
 package org.codehaus.staxmate.in;
 
+import java.util.Set;
+
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 
@@ -61,6 +63,16 @@ public final class SMFilterFactory
         return new ElementFilter(elemLocalName);
     }
 
+    /**
+     * @return Filter that will only pass element events for elements
+     *    with one of given names
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getElementOnlyFilter(Set<QName> elemNames) {
+        return new ElementSetFilter(elemNames);
+    }
+
     /**
      * @return Filter that will pass element events as well as all
      *    text events (including ignorable white space).
@@ -68,4 +80,99 @@ public final class SMFilterFactory
     public final static SMFilter getMixedFilter() {
         return sMixedFilter;
     }
+
+    /*
+    /**********************************************************************
+    /* Composite filters
+    /**********************************************************************
+     */
+
+    /**
+     * Method for constructing a filter that accepts events that have
+     * given attribute (which means that only START_ELEMENT events
+     * can be accepted).
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getAttributeFilter(QName attrName) {
+        return new CompiledFilter(FilterTerm.attribute(attrName));
+    }
+
+    /**
+     * Method for constructing a filter that accepts events that have
+     * given attribute, which does not belong to a namespace.
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getAttributeFilter(String attrLocalName) {
+        return getAttributeFilter(new QName(attrLocalName));
+    }
+
+    /**
+     * Method for constructing a filter that accepts events with parent
+     * count (see {@link SMInputCursor#getParentCount}) within given
+     * range.
+     *
+     * @param minParentCount Minimum parent count (inclusive)
+     * @param maxParentCount Maximum parent count (inclusive)
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getDepthFilter(int minParentCount, int maxParentCount) {
+        return new CompiledFilter(FilterTerm.depth(minParentCount, maxParentCount));
+    }
+
+    /**
+     * Method for constructing a filter that accepts events that
+     * all of given filters accept. Filters created by this factory
+     * (as well as basic filter types like {@link SimpleFilter} and
+     * {@link ElementFilter}) are combined into a single filter that
+     * only needs to do a type mask check and at most one name lookup
+     * per event; other filters are called as necessary.
+     *
+     * @param filters Filters to combine; nulls are considered to accept
+     *   all events
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getAndFilter(SMFilter... filters) {
+        return new CompiledFilter(FilterTerm.and(_terms(filters)));
+    }
+
+    /**
+     * Method for constructing a filter that accepts events that
+     * any of given filters accept. See {@link #getAndFilter} for
+     * details on how filters are combined.
+     *
+     * @param filters Filters to combine; nulls are considered to accept
+     *   all events
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getOrFilter(SMFilter... filters) {
+        return new CompiledFilter(FilterTerm.or(_terms(filters)));
+    }
+
+    /**
+     * Method for constructing a filter that accepts events that
+     * given filter does not accept.
+     *
+     * @since 2.1
+     */
+    public final static SMFilter getNotFilter(SMFilter filter) {
+        return new CompiledFilter(FilterTerm.not(_term(filter)));
+    }
+
+    private static FilterTerm[] _terms(SMFilter[] filters)
+    {
+        FilterTerm[] terms = new FilterTerm[filters.length];
+        for (int i = 0; i < filters.length; ++i) {
+            terms[i] = _term(filters[i]);
+        }
+        return terms;
+    }
+
+    private static FilterTerm _term(SMFilter f) {
+        return (f == null) ? FilterTerm.types(FilterTerm.ALL_TYPES) : FilterTerm.forFilter(f);
+    }
 }
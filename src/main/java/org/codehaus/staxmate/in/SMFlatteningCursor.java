@@ -92,10 +92,18 @@ public class SMFlatteningCursor
             _state = State.ACTIVE;
         } else if (_state == State.INITIAL) {
             _state = State.ACTIVE;
-        } // nothing to do if we are active
+        } else { // active
+            // may need to complete incremental typed read
+            _finishTypedRead();
+        }
         while (true) {
             int type;
 
+            // Skipping may have been suspended, waiting for more input
+            if (_pendingSkipDepth >= 0 && !_finishPendingSkip()) {
+                return _incomplete();
+            }
+
             /* Root level has no end element; should always get END_DOCUMENT,
              * but let's be extra careful... (maybe there's need for fragment
              * cursors later on)
@@ -114,6 +122,9 @@ public class SMFlatteningCursor
             } else {
                 type = _streamReader.next();
             }
+            if (type == SMAsyncInput.EVENT_INCOMPLETE) {
+                return _incomplete();
+            }
 
             ++_nodeCount;
 
@@ -174,11 +185,35 @@ public class SMFlatteningCursor
         return null;
     }
 
+    /**
+     * Method that can be called when this cursor points to a START_ELEMENT,
+     * to skip all of its contents (descendants), so that the next call
+     * to {@link #getNext} will return the event following the matching
+     * END_ELEMENT (matching END_ELEMENT itself is not returned).
+     * After the call, cursor is considered to point to that END_ELEMENT.
+     *
+     * @since 2.1
+     */
+    public void skipElement()
+        throws XMLStreamException
+    {
+        if (!readerAccessible()) {
+            throw _notAccessible("skipElement");
+        }
+        if (_currEvent != SMEvent.START_ELEMENT) {
+            throw _wrongState("skipElement", SMEvent.START_ELEMENT);
+        }
+        if (!_finishTypedRead()) {
+            skipSubtree(_streamReader.getDepth());
+        }
+        _currEvent = SMEvent.END_ELEMENT;
+    }
+
     public SMInputCursor constructChildCursor(SMFilter f) {
-        return new SMHierarchicCursor(_context, this, f);
+        return _context.constructHierarchic(this, f);
     }
 
     public SMInputCursor constructDescendantCursor(SMFilter f) {
-        return new SMFlatteningCursor(_context, this, f);
+        return _context.constructFlattening(this, f);
     }
 }
@@ -2,8 +2,6 @@ package org.codehaus.staxmate.in;
 
 import javax.xml.stream.*;
 
-import org.codehaus.stax2.XMLStreamReader2;
-
 /**
  * Default implementation of generic nested (scoped) cursor; cursor that only
  * traverses direct children of a single start element.
@@ -62,6 +60,11 @@ public class SMHierarchicCursor
 
         while (true) {
             int type;
+
+            // Skipping may have been suspended, waiting for more input
+            if (_pendingSkipDepth >= 0 && !_finishPendingSkip()) {
+                return _incomplete();
+            }
             
             // Root level has no end element...
             if (isRootCursor()) {
@@ -78,6 +81,9 @@ public class SMHierarchicCursor
             } else {
                 type = _streamReader.next();
             }
+            if (type == SMAsyncInput.EVENT_INCOMPLETE) {
+                return _incomplete();
+            }
             ++_nodeCount;
             if (type == XMLStreamConstants.END_ELEMENT) {
                 break;
@@ -121,12 +127,12 @@ public class SMHierarchicCursor
 
     public SMInputCursor constructChildCursor(SMFilter f)
     {
-        return new SMHierarchicCursor(_context, this, f);
+        return _context.constructHierarchic(this, f);
     }
 
     public SMInputCursor constructDescendantCursor(SMFilter f)
     {
-        return new SMFlatteningCursor(_context, this, f);
+        return _context.constructFlattening(this, f);
     }
 
     /*
@@ -144,31 +150,14 @@ public class SMHierarchicCursor
     protected void skipToEndElement()
         throws XMLStreamException
     {
-        XMLStreamReader2 sr = _streamReader;
         /* Here we have two choices: first, depth of current START_ELEMENT should
          * match that of matching END_ELEMENT. Additionally, START_ELEMENT's depth
          * for hierarchic cursors must be baseDepth+1.
          */
         //int endDepth = sr.getDepth();
-        int endDepth = _baseDepth+1;
-
-        while (true) {
-            int type = sr.next();
-            if (type == XMLStreamConstants.END_ELEMENT) {
-                int depth = sr.getDepth();
-                if (depth > endDepth) {
-                    continue;
-                }
-                if (depth != endDepth) { // sanity check
-                    _throwWrongEndElem(endDepth, depth);
-                }
-                break;
-            } else if (type == XMLStreamConstants.END_DOCUMENT) {
-                /* This is just a sanity check, to give more meaningful
-                 * error messages in case something weird happens
-                 */
-                _throwUnexpectedEndDoc();
-            }
+        // If content was partially read using typed access, need to complete that
+        if (!_finishTypedRead()) {
+            skipSubtree(_baseDepth+1);
         }
     }
 }
@@ -1,10 +1,13 @@
 package org.codehaus.staxmate.in;
 
+import java.util.Arrays;
+
 import javax.xml.stream.*;
 import javax.xml.stream.events.XMLEvent;
 import javax.xml.stream.util.XMLEventAllocator;
 
 import org.codehaus.stax2.LocationInfo;
+import org.codehaus.stax2.XMLInputFactory2;
 import org.codehaus.stax2.XMLStreamReader2;
 import org.codehaus.stax2.ri.evt.Stax2EventAllocatorImpl;
 
@@ -20,11 +23,166 @@ public final class SMInputContext
 
     protected XMLEventAllocator _allocator;
 
+    /**
+     * Lazily determined flag that indicates whether the stream
+     * reader interns both local names and namespace URIs:
+     * 0 means "not yet determined", 1 "yes" and -1 "no".
+     *
+     * @since 2.1
+     */
+    protected int _namesInterned = 0;
+
+    /*
+    /**********************************************************************
+    /* Cursor recycling
+    /**********************************************************************
+     */
+
+    /**
+     * Whether closed child cursors are to be recycled (reused for
+     * later child cursors at the same depth) or not.
+     *
+     * @since 2.1
+     */
+    protected boolean _cfgRecycleCursors = false;
+
+    /**
+     * Whether the underlying stream reader is a non-blocking (async)
+     * reader that may return {@link SMAsyncInput#EVENT_INCOMPLETE}
+     * to indicate that it needs more input.
+     *
+     * @since 2.1
+     */
+    protected boolean _cfgNonBlocking = false;
+
+    /**
+     * Released hierarchic child cursors available for reuse, indexed
+     * by their base depth; only allocated if recycling is enabled.
+     */
+    protected SMHierarchicCursor[] _freeHierarchic;
+
+    /**
+     * Released flattening (descendant) cursors available for reuse, indexed
+     * by their base depth; only allocated if recycling is enabled.
+     */
+    protected SMFlatteningCursor[] _freeFlattening;
+
+    /*
+    /**********************************************************************
+    /* Attribute index
+    /**********************************************************************
+     */
+
+    /**
+     * Elements with fewer attributes than this are not indexed, since
+     * linear lookup is just as fast for them.
+     *
+     * @since 2.1
+     */
+    final static int MIN_ATTRS_FOR_INDEX = 5;
+
+    /**
+     * Cursor that pointed to the START_ELEMENT for which attribute index
+     * was last built, if any; along with {@link #_attrIndexNode} used
+     * for determining whether the index is still valid.
+     */
+    protected SMInputCursor _attrIndexOwner;
+
+    /**
+     * Node count of {@link #_attrIndexOwner} at the time attribute
+     * index was built.
+     */
+    protected int _attrIndexNode;
+
+    /**
+     * Number of attributes in the element for which index was built
+     */
+    protected int _attrCount;
+
+    protected String[] _attrLocalNames;
+
+    /**
+     * Namespace URIs of indexed attributes; "" is used for "no namespace"
+     */
+    protected String[] _attrUris;
+
+    /**
+     * Hash area of attribute index: contains attribute index plus
+     * one (so that 0 indicates an empty slot), hashed by local name.
+     */
+    protected int[] _attrHash;
+
+    /**
+     * Decoder used for decoding enumerated values, if any constructed
+     *
+     * @since 2.1
+     */
+    protected EnumValueDecoder _enumDecoder;
+
     public SMInputContext(XMLStreamReader2 sr)
     {
         _streamReader = sr;
     }
 
+    /*
+    /**********************************************************************
+    /* Configuration
+    /**********************************************************************
+     */
+
+    /**
+     * Method for enabling or disabling recycling of child cursors.
+     * When enabled, a child (or descendant) cursor that has been
+     * invalidated (because its parent cursor was advanced past it)
+     * will be reset and reused for the next child cursor created at
+     * the same depth, instead of constructing a new instance.
+     * This eliminates most cursor allocations for documents with
+     * big numbers of small records.
+     *<p>
+     * Note: when enabled, application code <b>must not</b> use
+     * a child cursor after its parent has been advanced (which is
+     * never useful, since such cursors are closed), nor retain references
+     * to them, since the same instance may be returned for another
+     * child cursor. Only instances of {@link SMHierarchicCursor} and
+     * {@link SMFlatteningCursor} (not custom sub-classes) are recycled.
+     *
+     * @since 2.1
+     */
+    public void setCursorRecycling(boolean state)
+    {
+        _cfgRecycleCursors = state;
+        if (!state) {
+            _freeHierarchic = null;
+            _freeFlattening = null;
+        }
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isCursorRecycling() { return _cfgRecycleCursors; }
+
+    /**
+     * Method for indicating whether the underlying stream reader is
+     * a non-blocking reader, one that returns
+     * {@link SMAsyncInput#EVENT_INCOMPLETE} when it runs out of input
+     * (instead of blocking). When enabled, cursors skip sub-trees
+     * event by event, so that skipping can be suspended (and
+     * resumed once more input has been fed), and return
+     * {@link SMEvent#INCOMPLETE} from <code>getNext()</code> when
+     * more input is needed.
+     *
+     * @since 2.1
+     */
+    public void setNonBlocking(boolean state) {
+        _cfgNonBlocking = state;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isNonBlocking() { return _cfgNonBlocking; }
+
     public XMLEvent currentAsEvent()
         throws XMLStreamException
     {
@@ -36,6 +194,254 @@ public final class SMInputContext
 
     protected XMLStreamReader2 getStreamReader() { return _streamReader; }
 
+    /**
+     * Method for checking whether the underlying stream reader is known
+     * to intern element and attribute names, as well as namespace URIs
+     * (as indicated by Stax2 properties
+     * {@link XMLInputFactory2#P_INTERN_NAMES} and
+     * {@link XMLInputFactory2#P_INTERN_NS_URIS}). If so, names can be
+     * compared using identity comparison instead of
+     * {@link String#equals}.
+     *
+     * @since 2.1
+     */
+    public boolean namesInterned()
+    {
+        int state = _namesInterned;
+        if (state == 0) {
+            state = (_hasProperty(XMLInputFactory2.P_INTERN_NAMES)
+                     && _hasProperty(XMLInputFactory2.P_INTERN_NS_URIS)) ? 1 : -1;
+            _namesInterned = state;
+        }
+        return (state > 0);
+    }
+
+    private boolean _hasProperty(String name)
+    {
+        try {
+            return Boolean.TRUE.equals(_streamReader.getProperty(name));
+        } catch (IllegalArgumentException iae) {
+            // Non-Stax2 readers may consider unknown properties an error
+            return false;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Package methods: cursor recycling
+    /**********************************************************************
+     */
+
+    /**
+     * Method called by cursors to construct a child cursor, to
+     * use for traversing children of the current START_ELEMENT;
+     * recycled instance will be returned if available.
+     */
+    SMHierarchicCursor constructHierarchic(SMInputCursor parent, SMFilter f)
+    {
+        if (_cfgRecycleCursors) {
+            SMHierarchicCursor[] free = _freeHierarchic;
+            int depth = _streamReader.getDepth();
+            if (free != null && depth < free.length) {
+                SMHierarchicCursor crsr = free[depth];
+                if (crsr != null) {
+                    free[depth] = null;
+                    crsr.reset(parent, f);
+                    return crsr;
+                }
+            }
+        }
+        return new SMHierarchicCursor(this, parent, f);
+    }
+
+    /**
+     * Method called by cursors to construct a descendant cursor, to
+     * use for traversing descendants of the current START_ELEMENT;
+     * recycled instance will be returned if available.
+     */
+    SMFlatteningCursor constructFlattening(SMInputCursor parent, SMFilter f)
+    {
+        if (_cfgRecycleCursors) {
+            SMFlatteningCursor[] free = _freeFlattening;
+            int depth = _streamReader.getDepth();
+            if (free != null && depth < free.length) {
+                SMFlatteningCursor crsr = free[depth];
+                if (crsr != null) {
+                    free[depth] = null;
+                    crsr.reset(parent, f);
+                    return crsr;
+                }
+            }
+        }
+        return new SMFlatteningCursor(this, parent, f);
+    }
+
+    /**
+     * Method called by a parent cursor when it no longer refers
+     * to given (closed) child cursor, so that it can be reused
+     * if recycling is enabled.
+     */
+    void releaseCursor(SMInputCursor crsr)
+    {
+        if (!_cfgRecycleCursors) {
+            return;
+        }
+        final int depth = crsr.getBaseParentCount();
+        // Only recycle the default implementations, not custom sub-classes
+        Class<?> cls = crsr.getClass();
+        if (cls == SMHierarchicCursor.class) {
+            SMHierarchicCursor[] free = _freeHierarchic;
+            if (free == null || depth >= free.length) {
+                _freeHierarchic = free = _growFree(free, new SMHierarchicCursor[depth + 8]);
+            }
+            free[depth] = (SMHierarchicCursor) crsr;
+        } else if (cls == SMFlatteningCursor.class) {
+            SMFlatteningCursor[] free = _freeFlattening;
+            if (free == null || depth >= free.length) {
+                _freeFlattening = free = _growFree(free, new SMFlatteningCursor[depth + 8]);
+            }
+            free[depth] = (SMFlatteningCursor) crsr;
+        }
+    }
+
+    private static <T> T[] _growFree(T[] old, T[] result)
+    {
+        if (old != null) {
+            System.arraycopy(old, 0, result, 0, old.length);
+        }
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Package methods: typed access
+    /**********************************************************************
+     */
+
+    /**
+     * Method called by cursors to get a decoder for decoding values
+     * of given enumeration type; decoder instance is reused.
+     *
+     * @since 2.1
+     */
+    EnumValueDecoder getEnumDecoder(Class<? extends Enum<?>> enumType)
+    {
+        if (_enumDecoder == null) {
+            _enumDecoder = new EnumValueDecoder();
+        }
+        return _enumDecoder.reset(enumType);
+    }
+
+    /*
+    /**********************************************************************
+    /* Package methods: attribute lookup
+    /**********************************************************************
+     */
+
+    /**
+     * Method called by cursors to find index of specified attribute of
+     * the START_ELEMENT given cursor points to. For elements with
+     * more than a few attributes, a hash-based index is built
+     * on first call, and reused for following calls for the same
+     * element, so that lookups need not scan through attributes.
+     *
+     * @param uri Namespace URI of the attribute; null and "" both mean
+     *   "no namespace"
+     *
+     * @return Index of the attribute, if found; -1 if not
+     *
+     * @since 2.1
+     */
+    int findAttrIndex(SMInputCursor crsr, String uri, String localName)
+    {
+        if (uri == null) {
+            uri = "";
+        }
+        final XMLStreamReader2 sr = _streamReader;
+        if (_attrIndexOwner != crsr || _attrIndexNode != crsr._nodeCount
+            || _attrCount != sr.getAttributeCount()) {
+            int count = sr.getAttributeCount();
+            if (count < MIN_ATTRS_FOR_INDEX) {
+                for (int i = 0; i < count; ++i) {
+                    if (localName.equals(sr.getAttributeLocalName(i))
+                        && uri.equals(_nonNull(sr.getAttributeNamespace(i)))) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            _buildAttrIndex(count);
+            _attrIndexOwner = crsr;
+            _attrIndexNode = crsr._nodeCount;
+        }
+        final int[] hash = _attrHash;
+        final int mask = hash.length - 1;
+        int ix = localName.hashCode() & mask;
+        while (true) {
+            int attrIndex = hash[ix];
+            if (attrIndex == 0) {
+                return -1;
+            }
+            --attrIndex;
+            String ln = _attrLocalNames[attrIndex];
+            if (ln == localName || ln.equals(localName)) {
+                String u = _attrUris[attrIndex];
+                if (u == uri || u.equals(uri)) {
+                    return attrIndex;
+                }
+            }
+            ix = (ix + 1) & mask;
+        }
+    }
+
+    /**
+     * Method called by a cursor when it is being reused, to ensure
+     * that stale attribute index is not used for it.
+     */
+    void invalidateAttrIndex(SMInputCursor crsr)
+    {
+        if (_attrIndexOwner == crsr) {
+            _attrIndexOwner = null;
+        }
+    }
+
+    private void _buildAttrIndex(int count)
+    {
+        // Hash area at least twice the size, to keep collision chains short
+        int size = 16;
+        while (size < (count + count)) {
+            size += size;
+        }
+        if (_attrHash == null || _attrHash.length < size) {
+            _attrHash = new int[size];
+        } else {
+            size = _attrHash.length;
+            Arrays.fill(_attrHash, 0);
+        }
+        if (_attrLocalNames == null || _attrLocalNames.length < count) {
+            _attrLocalNames = new String[Math.max(count, 16)];
+            _attrUris = new String[_attrLocalNames.length];
+        }
+        final XMLStreamReader2 sr = _streamReader;
+        final int[] hash = _attrHash;
+        final int mask = size - 1;
+        for (int i = 0; i < count; ++i) {
+            String ln = sr.getAttributeLocalName(i);
+            _attrLocalNames[i] = ln;
+            _attrUris[i] = _nonNull(sr.getAttributeNamespace(i));
+            int ix = ln.hashCode() & mask;
+            while (hash[ix] != 0) {
+                ix = (ix + 1) & mask;
+            }
+            hash[ix] = i+1;
+        }
+        _attrCount = count;
+    }
+
+    private final static String _nonNull(String str) {
+        return (str == null) ? "" : str;
+    }
+
     /*
     /**********************************************************************
     /* Public API: access to location information
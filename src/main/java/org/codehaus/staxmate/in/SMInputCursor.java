@@ -1,6 +1,7 @@
 package org.codehaus.staxmate.in;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 import javax.xml.namespace.QName;
@@ -12,6 +13,7 @@ import javax.xml.stream.events.XMLEvent;
 
 import org.codehaus.stax2.DTDInfo;
 import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.typed.TypedArrayDecoder;
 import org.codehaus.stax2.typed.TypedXMLStreamException;
 
 /**
@@ -107,6 +109,26 @@ public abstract class SMInputCursor
         ALL_SIBLINGS
     }
 
+    /*
+    /**********************************************************************
+    /* Constants, other
+    /**********************************************************************
+     */
+
+    /**
+     * Size of chunks used when copying decoded binary content
+     * to an output stream.
+     *
+     * @since 2.1
+     */
+    final static int BINARY_CHUNK_SIZE = 4000;
+
+    // // // Constants for incremental typed reads
+
+    final static int TYPED_READ_NONE = 0;
+    final static int TYPED_READ_ARRAY = 1;
+    final static int TYPED_READ_BINARY = 2;
+
     /*
     /**********************************************************************
     /* Configuration
@@ -149,6 +171,16 @@ public abstract class SMInputCursor
      */
     protected Object mData;
 
+    /**
+     * Marker used to indicate that an incremental typed read (of
+     * array or binary content) has been started but not completed;
+     * if so, rest of content needs to be read via typed access methods
+     * as well, to leave stream reader in consistent state.
+     *
+     * @since 2.1
+     */
+    protected int _typedReadState = TYPED_READ_NONE;
+
     /*
     /**********************************************************************
     /* Life cycle, configuration
@@ -158,6 +190,26 @@ public abstract class SMInputCursor
     public SMInputCursor(SMInputContext ctxt, SMInputCursor parent, SMFilter filter)
     {
         super(ctxt, (parent == null) ? 0 : ctxt.getDepth());
+        _initFrom(parent, filter);
+    }
+
+    /**
+     * Method called by {@link SMInputContext} when reusing this
+     * (closed) cursor as a new child cursor of given parent cursor
+     *
+     * @since 2.1
+     */
+    void reset(SMInputCursor parent, SMFilter filter)
+    {
+        resetState();
+        _context.invalidateAttrIndex(this);
+        mData = null;
+        _typedReadState = TYPED_READ_NONE;
+        _initFrom(parent, filter);
+    }
+
+    private final void _initFrom(SMInputCursor parent, SMFilter filter)
+    {
         mFilter = filter;
         /* By default, we use parent cursor's element tracking setting;
          * or "no tracking" if we have no parent
@@ -211,6 +263,18 @@ public abstract class SMInputCursor
         return mElemInfoFactory;
     }
 
+    /**
+     * Method for accessing input context this cursor uses; shared
+     * by all cursors that iterate over the same stream reader.
+     * Context can be used to change configuration settings
+     * that affect all cursors, such as cursor recycling.
+     *
+     * @since 2.1
+     */
+    public final SMInputContext getContext() {
+        return _context;
+    }
+
     /*
     /**********************************************************************
     /* Public API, accessing cursor state information
@@ -457,6 +521,30 @@ public abstract class SMInputCursor
         return _streamReader.getText();
     }
 
+    /**
+     * Method for appending textual content of the current event
+     * that this cursor points to into given buffer, instead of
+     * constructing a String as {@link #getText()} does.
+     * Same restrictions apply as with {@link #getText()}.
+     *
+     * @param buffer Buffer to append text to
+     *
+     * @return Number of characters appended
+     *
+     * @since 2.1
+     */
+    public int getText(SMTextBuffer buffer)
+        throws XMLStreamException
+    {
+        if (!readerAccessible()) {
+            throw _notAccessible("getText");
+        }
+        final XMLStreamReader2 sr = _streamReader;
+        int len = sr.getTextLength();
+        buffer.append(sr.getTextCharacters(), sr.getTextStart(), len);
+        return len;
+    }
+
     /**
      * Method that can collect all text contained within START_ELEMENT
      * currently pointed by this cursor. Collection is done recursively
@@ -485,11 +573,11 @@ public abstract class SMInputCursor
          * also slightly optimize things, by avoiding StringBuilder
          * construction if there's just one node.
          */
-        if (childIt.getNext() == null) {
+        if (childIt._getNextComplete("collectDescendantText") == null) {
             return "";
         }
         String text = childIt.getText(); // has to be a text event
-        if (childIt.getNext() == null) {
+        if (childIt._getNextComplete("collectDescendantText") == null) {
             return text;
         }
 
@@ -501,11 +589,48 @@ public abstract class SMInputCursor
             // Let's assume char array access is more efficient...
             sb.append(sr.getTextCharacters(), sr.getTextStart(),
                       sr.getTextLength());
-        } while (childIt.getNext() != null);
+        } while (childIt._getNextComplete("collectDescendantText") != null);
 
         return sb.toString();
     }
 
+    /**
+     * Method similar to {@link #collectDescendantText(boolean)}, but
+     * instead of constructing a String, will append collected text
+     * into given (reusable) buffer. This allows accessing textual
+     * content (for example, parsing numbers or tokens from it) without
+     * creating intermediate Strings; buffer is not reset by this method.
+     * After collecting text, cursor will be positioned the same way as
+     * with {@link #collectDescendantText(boolean)}.
+     *
+     * @param buffer Buffer to append text to
+     * @param includeIgnorable Whether text for events of type SPACE should
+     *   be ignored in the results or not. If false, SPACE events will be
+     *   skipped; if true, white space will be included in results.
+     *
+     * @return Number of characters appended
+     *
+     * @since 2.1
+     */
+    public int collectDescendantText(SMTextBuffer buffer, boolean includeIgnorable)
+        throws XMLStreamException
+    {
+        if (!readerAccessible()) {
+            throw _notAccessible("collectDescendantText");
+        }
+        SMFilter f = includeIgnorable
+            ? SMFilterFactory.getTextOnlyFilter()
+            : SMFilterFactory.getNonIgnorableTextFilter();
+        SMInputCursor childIt = descendantCursor(f);
+        XMLStreamReader2 sr = childIt._getStreamReader();
+        final int origSize = buffer.size();
+        while (childIt._getNextComplete("collectDescendantText") != null) {
+            buffer.append(sr.getTextCharacters(), sr.getTextStart(),
+                          sr.getTextLength());
+        }
+        return buffer.size() - origSize;
+    }
+
     /**
      * Same as calling {@link #collectDescendantText(boolean)} with 'false':
      * that is, do not include ignorable white space (as determined by DTD
@@ -545,7 +670,7 @@ public abstract class SMInputCursor
 
         // Any text in there?
         XMLStreamReader2 sr = childIt._getStreamReader();
-        while (childIt.getNext() != null) {
+        while (childIt._getNextComplete("processDescendantText") != null) {
             /* 'true' indicates that we are not to lose the text contained
              * (can call getText() multiple times, idempotency). While this
              * may not be as efficient as allowing content to be discarded,
@@ -810,6 +935,14 @@ public abstract class SMInputCursor
      * Method that can be called when this cursor points to START_ELEMENT,
      * and which will return index of specified attribute, if it
      * exists for this element. If not, -1 is returned to denote "not found".
+     *<p>
+     * Since 2.1, lookups for elements with more than a few attributes
+     * use a hash index that is built on first lookup for the element
+     * (see {@link SMInputContext}), so repeated lookups do not need
+     * to scan attributes.
+     *
+     * @param uri Namespace URI of the attribute; null or "" to indicate
+     *   "no namespace"
      *
      * @throws XMLStreamException if either the underlying parser has
      *   problems (cursor not valid or not pointing to START_ELEMENT)
@@ -820,8 +953,7 @@ public abstract class SMInputCursor
         if (!readerAccessible()) {
             throw _notAccessible("getAttrCount");
         }
-        // As of stax2 v3.0 (TypedXMLStreamReader), we have this method:
-        return _streamReader.getAttributeIndex(uri, localName);
+        return _context.findAttrIndex(this, uri, localName);
     }
 
     /**
@@ -1247,15 +1379,310 @@ public abstract class SMInputCursor
         if (!readerAccessible()) {
             throw _notAccessible("getAttrEnumValue");
         }
-        String value = _streamReader.getAttributeValue(index).trim();
-        if (value.length() == 0) {
-            return null;
+        // Decoded using cached per-type lookup, without constructing Strings
+        EnumValueDecoder dec = _context.getEnumDecoder(enumType);
+        _streamReader.getAttributeAs(index, dec);
+        return enumType.cast(dec.getValue());
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API, accessing typed attribute values by name
+    /**********************************************************************
+     */
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as boolean; see {@link #getAttrBooleanValue(int)}
+     * for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of boolean
+     *
+     * @since 2.1
+     */
+    public boolean getAttrBooleanValue(String localName)
+        throws XMLStreamException
+    {
+        return getAttrBooleanValue(_requiredAttrIndex("getAttrBooleanValue", null, localName));
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as boolean; if attribute does not exist,
+     * or its value is not a valid boolean, will return specified default
+     * value instead.
+     *
+     * @since 2.1
+     */
+    public boolean getAttrBooleanValue(String localName, boolean defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrBooleanValue", null, localName);
+        return (ix < 0) ? defValue : getAttrBooleanValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute as boolean;
+     * see {@link #getAttrBooleanValue(int)} for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of boolean
+     *
+     * @since 2.1
+     */
+    public boolean getAttrBooleanValue(QName name)
+        throws XMLStreamException
+    {
+        return getAttrBooleanValue(_requiredAttrIndex("getAttrBooleanValue", name.getNamespaceURI(), name.getLocalPart()));
+    }
+
+    /**
+     * Method for accessing value of specified attribute as boolean;
+     * if attribute does not exist, or its value is not a valid boolean,
+     * will return specified default value instead.
+     *
+     * @since 2.1
+     */
+    public boolean getAttrBooleanValue(QName name, boolean defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrBooleanValue", name.getNamespaceURI(), name.getLocalPart());
+        return (ix < 0) ? defValue : getAttrBooleanValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as int; see {@link #getAttrIntValue(int)}
+     * for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of int
+     *
+     * @since 2.1
+     */
+    public int getAttrIntValue(String localName)
+        throws XMLStreamException
+    {
+        return getAttrIntValue(_requiredAttrIndex("getAttrIntValue", null, localName));
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as int; if attribute does not exist,
+     * or its value is not a valid int, will return specified default
+     * value instead.
+     *
+     * @since 2.1
+     */
+    public int getAttrIntValue(String localName, int defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrIntValue", null, localName);
+        return (ix < 0) ? defValue : getAttrIntValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute as int;
+     * see {@link #getAttrIntValue(int)} for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of int
+     *
+     * @since 2.1
+     */
+    public int getAttrIntValue(QName name)
+        throws XMLStreamException
+    {
+        return getAttrIntValue(_requiredAttrIndex("getAttrIntValue", name.getNamespaceURI(), name.getLocalPart()));
+    }
+
+    /**
+     * Method for accessing value of specified attribute as int;
+     * if attribute does not exist, or its value is not a valid int,
+     * will return specified default value instead.
+     *
+     * @since 2.1
+     */
+    public int getAttrIntValue(QName name, int defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrIntValue", name.getNamespaceURI(), name.getLocalPart());
+        return (ix < 0) ? defValue : getAttrIntValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as long; see {@link #getAttrLongValue(int)}
+     * for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of long
+     *
+     * @since 2.1
+     */
+    public long getAttrLongValue(String localName)
+        throws XMLStreamException
+    {
+        return getAttrLongValue(_requiredAttrIndex("getAttrLongValue", null, localName));
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as long; if attribute does not exist,
+     * or its value is not a valid long, will return specified default
+     * value instead.
+     *
+     * @since 2.1
+     */
+    public long getAttrLongValue(String localName, long defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrLongValue", null, localName);
+        return (ix < 0) ? defValue : getAttrLongValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute as long;
+     * see {@link #getAttrLongValue(int)} for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of long
+     *
+     * @since 2.1
+     */
+    public long getAttrLongValue(QName name)
+        throws XMLStreamException
+    {
+        return getAttrLongValue(_requiredAttrIndex("getAttrLongValue", name.getNamespaceURI(), name.getLocalPart()));
+    }
+
+    /**
+     * Method for accessing value of specified attribute as long;
+     * if attribute does not exist, or its value is not a valid long,
+     * will return specified default value instead.
+     *
+     * @since 2.1
+     */
+    public long getAttrLongValue(QName name, long defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrLongValue", name.getNamespaceURI(), name.getLocalPart());
+        return (ix < 0) ? defValue : getAttrLongValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as double; see {@link #getAttrDoubleValue(int)}
+     * for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of double
+     *
+     * @since 2.1
+     */
+    public double getAttrDoubleValue(String localName)
+        throws XMLStreamException
+    {
+        return getAttrDoubleValue(_requiredAttrIndex("getAttrDoubleValue", null, localName));
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as double; if attribute does not exist,
+     * or its value is not a valid double, will return specified default
+     * value instead.
+     *
+     * @since 2.1
+     */
+    public double getAttrDoubleValue(String localName, double defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrDoubleValue", null, localName);
+        return (ix < 0) ? defValue : getAttrDoubleValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute as double;
+     * see {@link #getAttrDoubleValue(int)} for details.
+     *
+     * @throws XMLStreamException If attribute does not exist, can not be
+     *   accessed, or is not a valid textual representation of double
+     *
+     * @since 2.1
+     */
+    public double getAttrDoubleValue(QName name)
+        throws XMLStreamException
+    {
+        return getAttrDoubleValue(_requiredAttrIndex("getAttrDoubleValue", name.getNamespaceURI(), name.getLocalPart()));
+    }
+
+    /**
+     * Method for accessing value of specified attribute as double;
+     * if attribute does not exist, or its value is not a valid double,
+     * will return specified default value instead.
+     *
+     * @since 2.1
+     */
+    public double getAttrDoubleValue(QName name, double defValue)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrDoubleValue", name.getNamespaceURI(), name.getLocalPart());
+        return (ix < 0) ? defValue : getAttrDoubleValue(ix, defValue);
+    }
+
+    /**
+     * Method for accessing value of specified attribute (that does not
+     * belong to a namespace) as an enumerated value of given type;
+     * returns null if attribute does not exist or has empty value.
+     * See {@link #getAttrEnumValue(int,Class)} for details.
+     *
+     * @since 2.1
+     */
+    public <T extends Enum<T>> T getAttrEnumValue(String localName, Class<T> enumType)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrEnumValue", null, localName);
+        return (ix < 0) ? null : getAttrEnumValue(ix, enumType);
+    }
+
+    /**
+     * Method for accessing value of specified attribute as an enumerated
+     * value of given type; returns null if attribute does not exist
+     * or has empty value.
+     * See {@link #getAttrEnumValue(int,Class)} for details.
+     *
+     * @since 2.1
+     */
+    public <T extends Enum<T>> T getAttrEnumValue(QName name, Class<T> enumType)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex("getAttrEnumValue", name.getNamespaceURI(), name.getLocalPart());
+        return (ix < 0) ? null : getAttrEnumValue(ix, enumType);
+    }
+
+    /**
+     * Helper method for finding index of specified attribute, used by
+     * name-based attribute accessors
+     */
+    private final int _attrIndex(String method, String uri, String localName)
+        throws XMLStreamException
+    {
+        if (!readerAccessible()) {
+            throw _notAccessible(method);
         }
-        try {
-            return Enum.valueOf(enumType, value);
-        } catch (IllegalArgumentException iae) {
-            throw _constructTypedException(value, iae, "Invalid enumeration value '"+value+"'; not one of values of "+enumType.getName());
+        return _context.findAttrIndex(this, uri, localName);
+    }
+
+    private final int _requiredAttrIndex(String method, String uri, String localName)
+        throws XMLStreamException
+    {
+        int ix = _attrIndex(method, uri, localName);
+        if (ix < 0) {
+            String desc = (uri == null || uri.length() == 0) ? localName : ("{"+uri+"}"+localName);
+            throw new XMLStreamException("Missing attribute '"+desc+"' (method "+method+")", getStreamLocation());
         }
+        return ix;
     }
 
     /*
@@ -1515,15 +1942,236 @@ public abstract class SMInputCursor
     {
         _verifyElemAccess("getElemEnumValue");
         _currEvent = SMEvent.END_ELEMENT;
-        String value = _streamReader.getElementText().trim();
-        if (value.length() == 0) {
-            return null;
+        EnumValueDecoder dec = _context.getEnumDecoder(enumType);
+        _streamReader.getElementAs(dec);
+        return enumType.cast(dec.getValue());
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API, accessing typed element array/binary values
+    /**********************************************************************
+     */
+
+    /**
+     * Method that can be used to incrementally decode white space
+     * separated list of <b>int</b> values, contained <b>directly</b>
+     * within START_ELEMENT this cursor points to, into given array.
+     * Decoding is done using Stax2 Typed Access API, without constructing
+     * intermediate Strings, which makes it suitable for long lists.
+     *<p>
+     * Method is to be called repeatedly (with cursor still pointing to
+     * the same START_ELEMENT) until it returns -1, to indicate that all
+     * values have been decoded; after this, cursor is positioned the same
+     * way as with {@link #getElemIntValue()}. Example:
+     *<pre>
+     *  int[] buffer = new int[1000];
+     *  int count;
+     *  while ((count = crsr.readElemIntArray(buffer, 0, buffer.length)) &gt;= 0) {
+     *    // process buffer[0 .. count-1]
+     *  }
+     *</pre>
+     * If cursor is advanced before all values are read, the rest of
+     * the element is skipped as usual.
+     *
+     * @param result Array to decode values into
+     * @param offset Offset of the first array element to assign
+     * @param length Maximum number of values to decode
+     *
+     * @return Number of values decoded (0 or more), if there was content
+     *   to decode; -1 if all content has been decoded
+     *
+     * @throws XMLStreamException if content is not accessible, or
+     *    not convertible to required type
+     *
+     * @since 2.1
+     */
+    public int readElemIntArray(int[] result, int offset, int length)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("readElemIntArray");
+        _typedReadState = TYPED_READ_ARRAY;
+        return _typedReadResult(_streamReader.readElementAsIntArray(result, offset, length));
+    }
+
+    /**
+     * Method similar to {@link #readElemIntArray}, but for decoding
+     * <b>long</b> values.
+     *
+     * @since 2.1
+     */
+    public int readElemLongArray(long[] result, int offset, int length)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("readElemLongArray");
+        _typedReadState = TYPED_READ_ARRAY;
+        return _typedReadResult(_streamReader.readElementAsLongArray(result, offset, length));
+    }
+
+    /**
+     * Method similar to {@link #readElemIntArray}, but for decoding
+     * <b>float</b> values.
+     *
+     * @since 2.1
+     */
+    public int readElemFloatArray(float[] result, int offset, int length)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("readElemFloatArray");
+        _typedReadState = TYPED_READ_ARRAY;
+        return _typedReadResult(_streamReader.readElementAsFloatArray(result, offset, length));
+    }
+
+    /**
+     * Method similar to {@link #readElemIntArray}, but for decoding
+     * <b>double</b> values.
+     *
+     * @since 2.1
+     */
+    public int readElemDoubleArray(double[] result, int offset, int length)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("readElemDoubleArray");
+        _typedReadState = TYPED_READ_ARRAY;
+        return _typedReadResult(_streamReader.readElementAsDoubleArray(result, offset, length));
+    }
+
+    /**
+     * Method that can collect base64-encoded binary content contained
+     * <b>directly</b> within START_ELEMENT this cursor points to, and
+     * return it decoded as byte array.
+     * Decoding uses Stax2 Typed Access API, with default base64 variant.
+     *
+     * @throws XMLStreamException if content is not accessible or
+     *    not valid base64 content
+     *
+     * @since 2.1
+     */
+    public byte[] getElemBinaryValue()
+        throws XMLStreamException
+    {
+        _verifyElemAccess("getElemBinaryValue");
+        _currEvent = SMEvent.END_ELEMENT;
+        return _streamReader.getElementAsBinary();
+    }
+
+    /**
+     * Method that can be used to incrementally decode base64-encoded
+     * binary content contained <b>directly</b> within START_ELEMENT
+     * this cursor points to. Works like {@link #readElemIntArray}:
+     * method is called repeatedly until it returns -1, to indicate
+     * that all content has been decoded.
+     *
+     * @param result Array to decode content into
+     * @param offset Offset of the first byte to assign
+     * @param maxLength Maximum number of bytes to decode
+     *
+     * @return Number of bytes decoded (0 or more), if there was content
+     *   to decode; -1 if all content has been decoded
+     *
+     * @since 2.1
+     */
+    public int readElemBinaryValue(byte[] result, int offset, int maxLength)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("readElemBinaryValue");
+        _typedReadState = TYPED_READ_BINARY;
+        return _typedReadResult(_streamReader.readElementAsBinary(result, offset, maxLength));
+    }
+
+    /**
+     * Method that will decode all base64-encoded binary content
+     * contained <b>directly</b> within START_ELEMENT this cursor
+     * points to, and write it to given output stream, without
+     * holding all of content in memory.
+     *
+     * @return Total number of bytes written
+     *
+     * @since 2.1
+     */
+    public long readElemBinaryValue(OutputStream out)
+        throws IOException, XMLStreamException
+    {
+        _verifyElemAccess("readElemBinaryValue");
+        final XMLStreamReader2 sr = _streamReader;
+        byte[] buffer = new byte[BINARY_CHUNK_SIZE];
+        long total = 0L;
+        int count;
+
+        // set first, so that rest gets skipped if writing or decoding fails
+        _typedReadState = TYPED_READ_BINARY;
+        while ((count = sr.readElementAsBinary(buffer, 0, buffer.length)) >= 0) {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                total += count;
+            }
         }
-        try {
-            return Enum.valueOf(enumType, value);
-        } catch (IllegalArgumentException iae) {
-            throw _constructTypedException(value, iae, "Invalid enumeration value '"+value+"'; not one of values of "+enumType.getName());
+        _typedReadResult(count);
+        return total;
+    }
+
+    /**
+     * Helper method called with result value of incremental typed
+     * read methods: if all content has been read, needs to update
+     * current event to indicate that cursor is no longer positioned
+     * at START_ELEMENT (see {@link #getElemStringValue}).
+     * Note that {@link #_typedReadState} is set before calling
+     * read methods, so that it remains set if decoding fails.
+     */
+    private final int _typedReadResult(int count)
+    {
+        if (count < 0) {
+            _typedReadState = TYPED_READ_NONE;
+            _currEvent = SMEvent.END_ELEMENT;
+        }
+        return count;
+    }
+
+    /**
+     * Method called before advancing (or closing) the cursor, to complete an
+     * incremental typed read that has been started but not finished,
+     * if any. This is done using typed access methods, since stream
+     * readers (including Stax2ReaderAdapter) may keep partially
+     * decoded content buffered.
+     *
+     * @return True if there was an incomplete typed read (and stream
+     *   reader now points to the END_ELEMENT of the element read);
+     *   false if not
+     */
+    final boolean _finishTypedRead()
+        throws XMLStreamException
+    {
+        final int state = _typedReadState;
+        if (state == TYPED_READ_NONE) {
+            return false;
+        }
+        _typedReadState = TYPED_READ_NONE;
+        _currEvent = SMEvent.END_ELEMENT;
+        final XMLStreamReader2 sr = _streamReader;
+        if (state == TYPED_READ_ARRAY) {
+            while (sr.readElementAsArray(SkippingArrayDecoder.instance) >= 0) { }
+        } else {
+            byte[] buffer = new byte[BINARY_CHUNK_SIZE];
+            while (sr.readElementAsBinary(buffer, 0, buffer.length) >= 0) { }
         }
+        return true;
+    }
+
+    /**
+     * Typed array decoder used for skipping rest of typed array content
+     */
+    private final static class SkippingArrayDecoder
+        extends TypedArrayDecoder
+    {
+        final static SkippingArrayDecoder instance = new SkippingArrayDecoder();
+
+        public boolean decodeValue(String input) { return false; }
+
+        public boolean decodeValue(char[] buffer, int start, int end) { return false; }
+
+        public int getCount() { return 0; }
+
+        public boolean hasRoom() { return true; }
     }
 
     /**
@@ -1559,6 +2207,50 @@ public abstract class SMInputCursor
         }
     }
 
+    /*
+    /**********************************************************************
+    /* Public API, capturing element contents
+    /**********************************************************************
+     */
+
+    /**
+     * Method for reading all events of the current START_ELEMENT, up to
+     * and including the matching END_ELEMENT, into a new
+     * {@link SMEventBuffer}, which can then be used for constructing
+     * any number of cursors for traversing captured content (for
+     * example, by calling
+     * {@link org.codehaus.staxmate.SMInputFactory#rootElementCursor(SMEventBuffer)}).
+     *<p>
+     * As with typed element value accessors, after the call cursor
+     * points to END_ELEMENT, and underlying stream reader to the
+     * END_ELEMENT of the captured element.
+     *
+     * @since 2.1
+     */
+    public SMEventBuffer captureElement()
+        throws XMLStreamException
+    {
+        return captureElement(new SMEventBuffer());
+    }
+
+    /**
+     * Method similar to {@link #captureElement()}, but one that appends
+     * events to given buffer; this allows reusing buffers (see
+     * {@link SMEventBuffer#reset}).
+     *
+     * @return Buffer passed in
+     *
+     * @since 2.1
+     */
+    public SMEventBuffer captureElement(SMEventBuffer buffer)
+        throws XMLStreamException
+    {
+        _verifyElemAccess("captureElement");
+        buffer.captureElement(_streamReader, _context.namesInterned());
+        _currEvent = SMEvent.END_ELEMENT;
+        return buffer;
+    }
+
     /*
     /**********************************************************************
     /* Public API, accessing extra application data
@@ -1597,6 +2289,12 @@ public abstract class SMInputCursor
      * the child cursor, if one was active. This is done by iterating over
      * any events child cursor (and its descendants if any) might
      * expose.
+     *<p>
+     * When reading content using a non-blocking parser (see
+     * {@link SMAsyncInput}), may also return {@link SMEvent#INCOMPLETE}
+     * to indicate that more input must be fed before iteration
+     * can continue; calling this method again after feeding more input
+     * will continue from where iteration was left.
      *
      * @return Type of event (from {@link XMLStreamConstants}, such as
      *   {@link XMLStreamConstants#START_ELEMENT}, if a new node was
@@ -1632,6 +2330,27 @@ public abstract class SMInputCursor
         return this;
     }
 
+    /**
+     * Method that does what {@link #getNext()} does, except that
+     * if a non-blocking parser runs out of input (that is, if
+     * {@link SMEvent#INCOMPLETE} would be returned), an exception is
+     * thrown instead. Used by methods that traverse content in one
+     * go and thus can not be suspended.
+     *
+     * @param method Name of the calling method, for the error message
+     *
+     * @since 2.1
+     */
+    protected final SMEvent _getNextComplete(String method)
+        throws XMLStreamException
+    {
+        SMEvent evt = getNext();
+        if (evt == SMEvent.INCOMPLETE) {
+            throw new XMLStreamException("Non-blocking input not supported by "+method+"(): ran out of input");
+        }
+        return evt;
+    }
+
     /**
      * Method that will create a new nested cursor for iterating
      * over all (immediate) child nodes of the start element this cursor
@@ -1836,6 +2555,29 @@ public abstract class SMInputCursor
         return descendantCursor(SMFilterFactory.getMixedFilter());
     }
 
+    /**
+     * Method for constructing an iterator over the START_ELEMENTs
+     * this cursor will iterate over (typically, sibling "records"
+     * iterated over by a child element cursor), mapping each using
+     * given mapper. Iterator advances this cursor lazily, one
+     * element at a time, as records are requested; it can also
+     * read records in batches that can be mapped in parallel (see
+     * {@link SMRecordIterator#nextBatch}).
+     *<p>
+     * Example:
+     *<pre>
+     *  for (Item item : rootCrsr.childElementCursor().recordIterator(itemMapper)) {
+     *     ...
+     *  }
+     *</pre>
+     *
+     * @since 2.1
+     */
+    public <T> SMRecordIterator<T> recordIterator(SMRecordMapper<? extends T> mapper)
+    {
+        return new SMRecordIterator<T>(this, mapper);
+    }
+
     /*
     /**********************************************************************
     /* Public API, convenience methods for exception construction
@@ -0,0 +1,27 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Interface for callback objects that {@link SMPathMatcher} calls
+ * when paths they have been registered for are matched.
+ *
+ * @since 2.1
+ */
+public interface SMPathHandler
+{
+    /**
+     * Method called when a path is matched.
+     *
+     * @param path Path expression that was matched, as registered
+     * @param value For attribute paths, value of the attribute; for
+     *   element paths, all text contained in the element (including
+     *   that of descendant elements)
+     * @param crsr Cursor used for traversal: for attribute paths, points
+     *   to the START_ELEMENT of the element with the attribute;
+     *   for element paths, to the matching END_ELEMENT.
+     *   Handler must not advance the cursor.
+     */
+    public void pathMatched(String path, String value, SMInputCursor crsr)
+        throws XMLStreamException;
+}
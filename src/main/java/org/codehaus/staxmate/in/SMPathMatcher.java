@@ -0,0 +1,482 @@
+package org.codehaus.staxmate.in;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+/**
+ * Helper class for extracting values from documents, by specifying
+ * set of simple location paths, and matching handlers
+ * ({@link SMPathHandler}) to call with matching values.
+ * All paths are matched during a single pass over content, using a
+ * {@link SMFlatteningCursor}; and sub-trees that can not contain matches
+ * are skipped efficiently.
+ *<p>
+ * Supported paths consist of child steps separated by slashes, optionally
+ * followed by an attribute step; for example:
+ *<pre>
+ *   /feed/entry/id
+ *   /feed/entry/link/@href
+ *   /feed/*&#47;title
+ *</pre>
+ * Each step is one of:
+ *<ul>
+ * <li>Plain name ("entry"): matches elements with given local name,
+ *   regardless of namespace
+ *  </li>
+ * <li>Qualified name in "Clark notation" ("{http://www.w3.org/2005/Atom}entry"):
+ *   matches elements with given namespace URI and local name;
+ *   "{}entry" matches elements that do not belong to a namespace
+ *  </li>
+ * <li>Wildcard "*", which matches any element
+ *  </li>
+ *</ul>
+ * and the last step may be an attribute step: "@" followed by a plain or
+ * qualified name (with similar matching rules).
+ *<p>
+ * Paths are matched relative to the cursor passed to {@link #process}:
+ * for a root-level cursor, first step matches the root element; for
+ * a descendant cursor, child elements of the element it was created for.
+ *<p>
+ * Instances should be fully configured before use; after this,
+ * matchers can be reused and shared between threads.
+ *
+ * @since 2.1
+ */
+public class SMPathMatcher
+{
+    /**
+     * Root of the trie of compiled steps; corresponds to the
+     * context of the cursor (not to any matched element)
+     */
+    protected final Node _root = new Node();
+
+    public SMPathMatcher() { }
+
+    /*
+    /**********************************************************************
+    /* Configuration
+    /**********************************************************************
+     */
+
+    /**
+     * Method for adding a path to match, and handler to call with values
+     * of matches.
+     *
+     * @return This matcher, to allow call chaining
+     *
+     * @throws IllegalArgumentException If path is not a valid (supported)
+     *   path expression
+     */
+    public SMPathMatcher addPath(String path, SMPathHandler handler)
+    {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler can not be null");
+        }
+        if (path.length() < 2 || path.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid path '"+path+"': has to start with '/', and contain at least one step");
+        }
+        String[] steps = _splitSteps(path);
+        Node node = _root;
+        for (int i = 0, last = steps.length-1; i <= last; ++i) {
+            String step = steps[i];
+            if (step.length() == 0) {
+                throw new IllegalArgumentException("Invalid path '"+path+"': empty step (descendant axis not supported)");
+            }
+            if (step.charAt(0) == '@') {
+                if (i != last || i == 0) {
+                    throw new IllegalArgumentException("Invalid path '"+path+"': attribute step only allowed as the last step, after an element step");
+                }
+                String[] name = _parseName(path, step.substring(1));
+                /* As with SMInputCursor.getAttrValue(), need to use null
+                 * instead of "" for "no namespace" (due to Sjsxp)
+                 */
+                String uri = name[0];
+                if (uri != null && uri.length() == 0) {
+                    uri = null;
+                }
+                node.addAttrMatch(uri, name[1], path, handler);
+                return this;
+            }
+            String[] name = _parseName(path, step);
+            node = node.addChild(name[0], name[1]);
+        }
+        node.addElemMatch(path, handler);
+        return this;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API, processing
+    /**********************************************************************
+     */
+
+    /**
+     * Method that will traverse through all remaining content of given
+     * flattening cursor, and call handlers for paths matched.
+     * Cursor will be closed once method returns.
+     *
+     * @param crsr Flattening cursor (root-level or descendant cursor) to
+     *   traverse; can not have a filter that filters out element events
+     *   (or, for element paths, text events)
+     */
+    public void process(SMInputCursor crsr)
+        throws XMLStreamException
+    {
+        if (!(crsr instanceof SMFlatteningCursor)) {
+            throw new IllegalArgumentException("Can only process flattening cursors (got "+crsr.getClass().getName()+")");
+        }
+        final SMFlatteningCursor fc = (SMFlatteningCursor) crsr;
+        final XMLStreamReader2 sr = fc._getStreamReader();
+
+        // Sets of trie nodes matching open elements, one per level
+        Node[][] states = new Node[16][];
+        // Offsets of text collected for element matches, or -1
+        int[] textStarts = new int[16];
+        int depth = 0;
+        states[0] = new Node[] { _root };
+        StringBuilder text = null;
+        int collecting = 0;
+        SMEvent evt;
+
+        while ((evt = fc._getNextComplete("SMPathMatcher.process")) != null) {
+            switch (evt) {
+            case START_ELEMENT:
+                {
+                    Node[] matches = _match(states[depth], sr.getNamespaceURI(), sr.getLocalName());
+                    if (matches == null) {
+                        // No matches; skip unless need to collect text
+                        if (collecting == 0) {
+                            fc.skipElement();
+                            break;
+                        }
+                        matches = Node.NO_NODES;
+                    }
+                    if (++depth == states.length) {
+                        states = _grow(states);
+                        int[] old = textStarts;
+                        textStarts = new int[old.length << 1];
+                        System.arraycopy(old, 0, textStarts, 0, old.length);
+                    }
+                    states[depth] = matches;
+                    boolean matchText = false;
+                    boolean hasChildren = false;
+                    for (Node n : matches) {
+                        if (n._attrMatches != null) {
+                            n.matchAttributes(sr, fc);
+                        }
+                        matchText |= (n._elemMatches != null);
+                        hasChildren |= n.hasChildren();
+                    }
+                    if (matchText) {
+                        if (text == null) {
+                            text = new StringBuilder(100);
+                        }
+                        textStarts[depth] = text.length();
+                        ++collecting;
+                    } else {
+                        textStarts[depth] = -1;
+                        // nothing more to find within this sub-tree?
+                        if (!hasChildren && collecting == 0) {
+                            fc.skipElement();
+                            --depth;
+                        }
+                    }
+                }
+                break;
+            case END_ELEMENT:
+                {
+                    int start = textStarts[depth];
+                    if (start >= 0) {
+                        String value = text.substring(start);
+                        for (Node n : states[depth]) {
+                            n.matchElement(value, fc);
+                        }
+                        if (--collecting == 0) {
+                            text.setLength(0);
+                        }
+                    }
+                    states[depth] = null;
+                    --depth;
+                }
+                break;
+            case TEXT:
+            case CDATA:
+                if (collecting > 0) {
+                    text.append(sr.getTextCharacters(), sr.getTextStart(), sr.getTextLength());
+                }
+                break;
+            default: // other events are of no interest
+            }
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * @return Nodes that match element with given name, given set
+     *   of nodes that match its parent; or null if none
+     */
+    protected Node[] _match(Node[] parents, String uri, String localName)
+    {
+        if (uri == null) {
+            uri = "";
+        }
+        Node[] result = null;
+        for (Node parent : parents) {
+            result = _add(result, parent.findExact(uri, localName));
+            result = _add(result, parent.findLocal(localName));
+            result = _add(result, parent._wildcard);
+        }
+        return result;
+    }
+
+    private static Node[] _add(Node[] nodes, Node n)
+    {
+        if (n == null) {
+            return nodes;
+        }
+        if (nodes == null) { // common case, let's not allocate
+            return n._self;
+        }
+        Node[] result = new Node[nodes.length+1];
+        System.arraycopy(nodes, 0, result, 0, nodes.length);
+        result[nodes.length] = n;
+        return result;
+    }
+
+    private static Node[][] _grow(Node[][] old)
+    {
+        Node[][] result = new Node[old.length << 1][];
+        System.arraycopy(old, 0, result, 0, old.length);
+        return result;
+    }
+
+    /**
+     * Helper method for splitting path into steps; needed since
+     * namespace URIs of qualified names may contain slashes
+     */
+    private static String[] _splitSteps(String path)
+    {
+        ArrayList<String> steps = new ArrayList<String>();
+        int start = 1;
+        boolean inUri = false;
+        for (int i = 1, len = path.length(); i < len; ++i) {
+            char c = path.charAt(i);
+            if (c == '{') {
+                inUri = true;
+            } else if (c == '}') {
+                inUri = false;
+            } else if (c == '/' && !inUri) {
+                steps.add(path.substring(start, i));
+                start = i+1;
+            }
+        }
+        steps.add(path.substring(start));
+        return steps.toArray(new String[steps.size()]);
+    }
+
+    /**
+     * @return Two-element array with namespace URI (null for plain
+     *   names, to indicate "any namespace") and local name (null for
+     *   wildcard)
+     */
+    private static String[] _parseName(String path, String step)
+    {
+        if (step.equals("*")) {
+            return new String[] { null, null };
+        }
+        if (step.charAt(0) == '{') {
+            int end = step.indexOf('}');
+            if (end < 0 || end == step.length()-1) {
+                throw new IllegalArgumentException("Invalid path '"+path+"': malformed qualified name '"+step+"'");
+            }
+            return new String[] { step.substring(1, end), step.substring(end+1) };
+        }
+        return new String[] { null, step };
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Node of the trie that paths are compiled to: each node matches
+     * an element step, and contains links to nodes for child steps,
+     * as well as handlers for paths ending at the node.
+     */
+    protected final static class Node
+    {
+        final static Node[] NO_NODES = new Node[0];
+
+        /**
+         * Set containing just this node, to avoid allocations
+         * when matching
+         */
+        final Node[] _self = new Node[] { this };
+
+        /**
+         * Child nodes for steps with qualified names; first keyed
+         * by local name, then namespace URI ("" for "no namespace")
+         */
+        HashMap<String,HashMap<String,Node>> _exact;
+
+        /**
+         * Child nodes for steps with plain names (any namespace)
+         */
+        HashMap<String,Node> _local;
+
+        /**
+         * Child node for wildcard step, if any
+         */
+        Node _wildcard;
+
+        /**
+         * Paths (and matching handlers) that end at this node
+         */
+        ArrayList<Match> _elemMatches;
+
+        /**
+         * Attribute paths (and matching handlers) that end at an
+         * attribute of the element this node matches
+         */
+        ArrayList<Match> _attrMatches;
+
+        /**
+         * @param uri Namespace URI of the step; null for "any namespace"
+         * @param localName Local name of the step; null for wildcard
+         */
+        Node addChild(String uri, String localName)
+        {
+            if (localName == null) {
+                if (_wildcard == null) {
+                    _wildcard = new Node();
+                }
+                return _wildcard;
+            }
+            HashMap<String,Node> nodes;
+            if (uri == null) { // plain name
+                if (_local == null) {
+                    _local = new HashMap<String,Node>();
+                }
+                nodes = _local;
+            } else {
+                if (_exact == null) {
+                    _exact = new HashMap<String,HashMap<String,Node>>();
+                }
+                nodes = _exact.get(localName);
+                if (nodes == null) {
+                    nodes = new HashMap<String,Node>();
+                    _exact.put(localName, nodes);
+                }
+                localName = uri;
+            }
+            Node n = nodes.get(localName);
+            if (n == null) {
+                n = new Node();
+                nodes.put(localName, n);
+            }
+            return n;
+        }
+
+        void addElemMatch(String path, SMPathHandler h)
+        {
+            if (_elemMatches == null) {
+                _elemMatches = new ArrayList<Match>();
+            }
+            _elemMatches.add(new Match(path, h, null, null));
+        }
+
+        void addAttrMatch(String uri, String localName, String path, SMPathHandler h)
+        {
+            if (_attrMatches == null) {
+                _attrMatches = new ArrayList<Match>();
+            }
+            _attrMatches.add(new Match(path, h, uri, localName));
+        }
+
+        boolean hasChildren() {
+            return (_exact != null) || (_local != null) || (_wildcard != null);
+        }
+
+        Node findExact(String uri, String localName)
+        {
+            if (_exact != null) {
+                HashMap<String,Node> nodes = _exact.get(localName);
+                if (nodes != null) {
+                    return nodes.get(uri);
+                }
+            }
+            return null;
+        }
+
+        Node findLocal(String localName) {
+            return (_local == null) ? null : _local.get(localName);
+        }
+
+        void matchAttributes(XMLStreamReader2 sr, SMInputCursor crsr)
+            throws XMLStreamException
+        {
+            for (Match m : _attrMatches) {
+                if (m._attrLocalName == null) { // wildcard: all attributes
+                    for (int i = 0, len = sr.getAttributeCount(); i < len; ++i) {
+                        m._handler.pathMatched(m._path, sr.getAttributeValue(i), crsr);
+                    }
+                    continue;
+                }
+                String value = sr.getAttributeValue(m._attrUri, m._attrLocalName);
+                if (value != null) {
+                    m._handler.pathMatched(m._path, value, crsr);
+                }
+            }
+        }
+
+        void matchElement(String value, SMInputCursor crsr)
+            throws XMLStreamException
+        {
+            if (_elemMatches != null) {
+                for (Match m : _elemMatches) {
+                    m._handler.pathMatched(m._path, value, crsr);
+                }
+            }
+        }
+    }
+
+    /**
+     * Simple container for a registered path, and handler to call
+     */
+    protected final static class Match
+    {
+        final String _path;
+        final SMPathHandler _handler;
+
+        /**
+         * For attribute paths, namespace URI of the attribute; null
+         * for "any namespace"
+         */
+        final String _attrUri;
+
+        /**
+         * For attribute paths, local name of the attribute; null
+         * for wildcard
+         */
+        final String _attrLocalName;
+
+        Match(String path, SMPathHandler h, String attrUri, String attrLocalName)
+        {
+            _path = path;
+            _handler = h;
+            _attrUri = attrUri;
+            _attrLocalName = attrLocalName;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Interface for callback objects that {@link SMRecordSplitter}
+ * calls for record elements it has split off the input document.
+ * Since records are processed concurrently by worker threads,
+ * implementations must be thread-safe.
+ *
+ * @since 2.1
+ */
+public interface SMRecordHandler
+{
+    /**
+     * Method called with a cursor that points to the START_ELEMENT of
+     * a record. Cursor (and any child cursors constructed from it)
+     * is only valid during the call, and must only be used by the
+     * calling thread.
+     *
+     * @param crsr Root-level cursor pointing to the record element
+     * @param index Index of the record (0-based) within the sequence
+     *   of records split off the parent element
+     */
+    public void handleRecord(SMInputCursor crsr, int index)
+        throws XMLStreamException;
+}
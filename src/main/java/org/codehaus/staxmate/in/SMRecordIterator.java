@@ -0,0 +1,209 @@
+package org.codehaus.staxmate.in;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * Iterator over START_ELEMENTs a cursor iterates over ("records"),
+ * each mapped into an application object using a
+ * {@link SMRecordMapper}. Cursor is only advanced when the next
+ * record is needed, so records are read lazily; and since iterator
+ * is also {@link Iterable}, it can be used with "for-each" loops.
+ * Checked exceptions from reading or mapping are thrown wrapped in
+ * {@link IllegalStateException}s, since {@link Iterator} methods can not
+ * throw checked exceptions.
+ *<p>
+ * In addition to one-by-one iteration, records can also be read in
+ * batches using {@link #nextBatch}: records of a batch are captured
+ * into event buffers by the calling thread, and mapped only when
+ * tasks returned are called. This allows parallelizing (potentially
+ * expensive) mapping by submitting batches to an executor:
+ *<pre>
+ *  SMRecordIterator&lt;Item&gt; it = crsr.childElementCursor().recordIterator(mapper);
+ *  List&lt;Callable&lt;Item&gt;&gt; batch;
+ *  while (!(batch = it.nextBatch(256)).isEmpty()) {
+ *     for (Future&lt;Item&gt; f : executor.invokeAll(batch)) {
+ *        ... // in document order
+ *     }
+ *  }
+ *</pre>
+ *<p>
+ * Instances are constructed using {@link SMInputCursor#recordIterator}.
+ *
+ * @param <T> Type of objects records are mapped to
+ *
+ * @since 2.1
+ */
+public class SMRecordIterator<T>
+    implements Iterator<T>, Iterable<T>
+{
+    /**
+     * State in which cursor needs to be advanced to find out whether
+     * there are more records
+     */
+    final static int STATE_ADVANCE = 0;
+
+    /**
+     * State in which cursor points to a record not yet returned
+     */
+    final static int STATE_RECORD = 1;
+
+    /**
+     * State in which there are no more records
+     */
+    final static int STATE_END = 2;
+
+    protected final SMInputCursor _cursor;
+
+    protected final SMRecordMapper<? extends T> _mapper;
+
+    protected int _state = STATE_ADVANCE;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    protected SMRecordIterator(SMInputCursor crsr, SMRecordMapper<? extends T> mapper)
+    {
+        _cursor = crsr;
+        _mapper = mapper;
+    }
+
+    /*
+    /**********************************************************************
+    /* Iterator, Iterable implementation
+    /**********************************************************************
+     */
+
+    /**
+     * Since iteration advances the underlying cursor, iterator can
+     * only be iterated over once: so this method just returns iterator
+     * itself.
+     */
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    public boolean hasNext()
+    {
+        try {
+            return _advance();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public T next()
+    {
+        try {
+            if (!_advance()) {
+                throw new NoSuchElementException();
+            }
+            _state = STATE_ADVANCE;
+            return _mapper.mapRecord(_cursor);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API, batch access
+    /**********************************************************************
+     */
+
+    /**
+     * Method for reading up to specified number of following records,
+     * capturing each into an {@link SMEventBuffer}, and returning
+     * tasks that will map captured records when called. Tasks are
+     * independent of each other and of the cursor, and can thus be
+     * called concurrently (for example, by submitting the whole batch
+     * using <code>ExecutorService.invokeAll</code>); mapper used
+     * must be thread-safe if so.
+     *
+     * @return Tasks for mapping records read, in document order;
+     *   empty list if there are no more records
+     */
+    public List<Callable<T>> nextBatch(int maxRecords)
+        throws XMLStreamException
+    {
+        List<Callable<T>> batch = new ArrayList<Callable<T>>(Math.min(maxRecords, 64));
+        while (batch.size() < maxRecords && _advance()) {
+            _state = STATE_ADVANCE;
+            batch.add(new MapTask<T>(_mapper, _cursor.captureElement()));
+        }
+        return batch;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * @return True if cursor points to the next record to return;
+     *   false if there are no more records
+     */
+    protected boolean _advance()
+        throws XMLStreamException
+    {
+        if (_state == STATE_ADVANCE) {
+            SMEvent evt;
+            while ((evt = _cursor.getNext()) != SMEvent.START_ELEMENT) {
+                if (evt == null) {
+                    _state = STATE_END;
+                    return false;
+                }
+                if (evt == SMEvent.INCOMPLETE) {
+                    throw new XMLStreamException("Non-blocking input not supported by SMRecordIterator");
+                }
+            }
+            _state = STATE_RECORD;
+        }
+        return (_state == STATE_RECORD);
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Task that replays a single captured record and maps it
+     */
+    private final static class MapTask<T>
+        implements Callable<T>
+    {
+        private final SMRecordMapper<? extends T> _mapper;
+
+        private final SMEventBuffer _buffer;
+
+        public MapTask(SMRecordMapper<? extends T> mapper, SMEventBuffer buffer)
+        {
+            _mapper = mapper;
+            _buffer = buffer;
+        }
+
+        public T call()
+            throws XMLStreamException
+        {
+            SMInputCursor crsr = SMInputFactory.rootElementCursor(_buffer);
+            return _mapper.mapRecord(crsr.advance());
+        }
+    }
+}
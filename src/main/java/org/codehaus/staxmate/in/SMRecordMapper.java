@@ -0,0 +1,25 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Interface for objects that map record elements (as pointed to by
+ * a cursor) into application objects; used by
+ * {@link SMRecordPublisher} and {@link SMRecordIterator}.
+ *
+ * @param <T> Type of objects records are mapped to
+ *
+ * @since 2.1
+ */
+public interface SMRecordMapper<T>
+{
+    /**
+     * Method called with a cursor that points to the START_ELEMENT of
+     * a record. Cursor may be advanced (and child cursors constructed)
+     * during the call, but it must not be retained beyond it.
+     *
+     * @return Object record was mapped to; must not be null
+     */
+    public T mapRecord(SMInputCursor crsr)
+        throws XMLStreamException;
+}
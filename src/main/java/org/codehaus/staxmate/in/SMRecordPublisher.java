@@ -0,0 +1,283 @@
+package org.codehaus.staxmate.in;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Publisher that emits "records" (child elements of the element a
+ * cursor points to), mapped into application objects using a
+ * {@link SMRecordMapper}, to a subscriber, following demand the
+ * subscriber signals. Records are read lazily, only when (and as
+ * many as) requested: so when downstream demand is zero, nothing is
+ * read from the underlying stream, and no records need to be buffered
+ * between the parser and a slower consumer.
+ *<p>
+ * Interfaces used ({@link SMRecordSubscriber}, {@link SMRecordSubscription})
+ * have the same semantics as those in
+ * <code>java.util.concurrent.Flow</code> (and Reactive Streams), so that
+ * publisher can be adapted to those APIs with trivial wrappers; but
+ * without requiring JDK 9.
+ *<p>
+ * Records are read by the thread that calls
+ * {@link SMRecordSubscription#request}; requests made concurrently
+ * (or recursively from within {@link SMRecordSubscriber#onNext}) are
+ * merged, and all subscriber callbacks are made serially. Since cursors
+ * are single-pass, publisher only accepts a single subscriber.
+ *<p>
+ * Example:
+ *<pre>
+ *  SMInputCursor root = inputFactory.rootElementCursor(in).advance();
+ *  new SMRecordPublisher&lt;Item&gt;(root, itemMapper).subscribe(sink);
+ *</pre>
+ *
+ * @param <T> Type of objects records are mapped to
+ *
+ * @since 2.1
+ */
+public class SMRecordPublisher<T>
+{
+    protected final SMInputCursor _parent;
+
+    protected final SMRecordMapper<? extends T> _mapper;
+
+    /**
+     * Filter used for selecting record elements among children of the
+     * container element; child elements not accepted by it are skipped.
+     */
+    protected SMFilter _recordFilter = SMFilterFactory.getElementOnlyFilter();
+
+    protected final AtomicBoolean _subscribed = new AtomicBoolean(false);
+
+    /*
+    /**********************************************************************
+    /* Life-cycle, configuration
+    /**********************************************************************
+     */
+
+    /**
+     * @param parent Cursor that points to the START_ELEMENT of the
+     *   record container element
+     * @param mapper Mapper used for converting record elements into
+     *   objects to emit
+     */
+    public SMRecordPublisher(SMInputCursor parent, SMRecordMapper<? extends T> mapper)
+    {
+        _parent = parent;
+        _mapper = mapper;
+    }
+
+    /**
+     * Method for specifying filter used for selecting record elements;
+     * only START_ELEMENTs accepted by the filter are emitted as
+     * records, other child elements are skipped. By default all child
+     * elements are considered records.
+     */
+    public SMRecordPublisher<T> setRecordFilter(SMFilter f)
+    {
+        _recordFilter = (f == null) ? SMFilterFactory.getElementOnlyFilter() : f;
+        return this;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for subscribing to records of this publisher. Subscriber
+     * gets a subscription via {@link SMRecordSubscriber#onSubscribe};
+     * no records are read until it requests some. If publisher already
+     * has a subscriber, new subscriber is notified of failure using
+     * {@link SMRecordSubscriber#onError}.
+     */
+    public void subscribe(SMRecordSubscriber<? super T> subscriber)
+    {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber can not be null");
+        }
+        if (!_subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new RecordSubscription<T>(null, null, null, null));
+            subscriber.onError(new IllegalStateException("Publisher already has a subscriber: records can only be read once"));
+            return;
+        }
+        subscriber.onSubscribe(new RecordSubscription<T>(_parent, _recordFilter, _mapper, subscriber));
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Subscription implementation that reads and emits records. Demand
+     * is tracked using an atomic counter, and emission is done by a
+     * single thread at a time: the one that manages to increment
+     * "work in progress" count from zero; others just increment the
+     * count, to make that thread do another round.
+     * If a subscriber callback throws an exception, subscription is
+     * cancelled and exception is thrown to the caller of
+     * {@link #request}.
+     */
+    private final static class RecordSubscription<T>
+        implements SMRecordSubscription
+    {
+        private final SMInputCursor _parent;
+
+        private final SMFilter _filter;
+
+        private final SMRecordMapper<? extends T> _mapper;
+
+        private final SMRecordSubscriber<? super T> _subscriber;
+
+        private final AtomicLong _demand = new AtomicLong();
+
+        private final AtomicInteger _wip = new AtomicInteger();
+
+        /**
+         * Set when subscription has been cancelled or completed (or
+         * failed); no more signals are sent after this
+         */
+        private volatile boolean _done;
+
+        /**
+         * Set if a non-positive amount was requested (so positive value
+         * means "none"); reported to the subscriber by the emitting thread.
+         */
+        private volatile long _badRequest = 1L;
+
+        /**
+         * Cursor used for reading records; constructed when
+         * first record is requested
+         */
+        private SMInputCursor _crsr;
+
+        private int _count;
+
+        public RecordSubscription(SMInputCursor parent, SMFilter f,
+                                  SMRecordMapper<? extends T> mapper, SMRecordSubscriber<? super T> subscriber)
+        {
+            _parent = parent;
+            _filter = f;
+            _mapper = mapper;
+            _subscriber = subscriber;
+            // no subscriber means this is a dummy subscription
+            _done = (subscriber == null);
+        }
+
+        public void request(long n)
+        {
+            if (_done) {
+                return;
+            }
+            if (n <= 0L) {
+                _badRequest = n;
+            } else {
+                while (true) {
+                    long curr = _demand.get();
+                    if (curr == Long.MAX_VALUE) {
+                        break;
+                    }
+                    long total = curr + n;
+                    if (total < 0L) { // overflow, i.e. unbounded
+                        total = Long.MAX_VALUE;
+                    }
+                    if (_demand.compareAndSet(curr, total)) {
+                        break;
+                    }
+                }
+            }
+            if (_wip.getAndIncrement() != 0) { // someone else is emitting
+                return;
+            }
+            int missed = 1;
+            boolean ok = false;
+            try {
+                do {
+                    _emit();
+                    missed = _wip.addAndGet(-missed);
+                } while (missed != 0);
+                ok = true;
+            } finally {
+                /* Subscriber callback threw an exception (which is against
+                 * the contract): cancel, but leave the subscription in
+                 * consistent state so that later requests do not stall
+                 */
+                if (!ok) {
+                    _done = true;
+                    _wip.set(0);
+                }
+            }
+        }
+
+        public void cancel() {
+            _done = true;
+        }
+
+        private void _emit()
+        {
+            final long requested = _demand.get();
+            long emitted = 0L;
+
+            while (!_done) {
+                if (_badRequest <= 0L) {
+                    _done = true;
+                    _subscriber.onError(new IllegalArgumentException("Number of records requested must be positive (got "+_badRequest+")"));
+                    return;
+                }
+                if (emitted == requested) {
+                    break;
+                }
+                T record;
+                try {
+                    record = _readRecord();
+                } catch (Throwable t) {
+                    _done = true;
+                    _subscriber.onError(t);
+                    return;
+                }
+                if (record == null) {
+                    _done = true;
+                    _subscriber.onComplete();
+                    return;
+                }
+                _subscriber.onNext(record);
+                ++emitted;
+            }
+            if (emitted > 0L && requested != Long.MAX_VALUE) {
+                _demand.addAndGet(-emitted);
+            }
+        }
+
+        /**
+         * @return Next record mapped, if any; null if there are no
+         *   more records
+         */
+        private T _readRecord()
+            throws XMLStreamException
+        {
+            if (_crsr == null) {
+                _crsr = _parent.childCursor(_filter);
+            }
+            SMEvent evt;
+            while ((evt = _crsr.getNext()) != SMEvent.START_ELEMENT) {
+                if (evt == null) {
+                    return null;
+                }
+                if (evt == SMEvent.INCOMPLETE) {
+                    throw new XMLStreamException("Non-blocking input not supported by SMRecordPublisher");
+                }
+            }
+            T record = _mapper.mapRecord(_crsr);
+            if (record == null) {
+                throw new XMLStreamException("Record mapper returned null for record #"+_count);
+            }
+            ++_count;
+            return record;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.codehaus.staxmate.in;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * Helper class that can be used to process "record-oriented" documents
+ * (ones where a container element has a long sequence of similar
+ * child elements) in parallel. Child elements of the container
+ * (records) are read sequentially by the calling thread, and each
+ * record is captured into a compact in-memory event buffer; buffers
+ * are then handed to an {@link Executor}, which replays them through
+ * a new {@link SMInputCursor} and calls {@link SMRecordHandler}
+ * with it. This way only the (inherently sequential) tokenization is
+ * done by the reading thread, and all record processing work can be
+ * done concurrently.
+ *<p>
+ * Number of records that have been read but not yet processed is
+ * limited (see {@link #setMaxPendingRecords}); when the limit is
+ * reached, reading thread blocks until a worker has completed a record.
+ * This limits the amount of memory used for buffering, if handlers
+ * can not keep up with parsing.
+ *<p>
+ * Note that records are not necessarily processed in document order:
+ * record index passed to the handler can be used to reconstruct the
+ * ordering if necessary. Also note that namespace bindings declared
+ * outside of a record are not visible via namespace context of replayed
+ * records (namespace URIs of elements and attributes are retained, so
+ * this only matters for QName-valued content).
+ *<p>
+ * Example:
+ *<pre>
+ *  ExecutorService exec = Executors.newFixedThreadPool(4);
+ *  SMInputCursor root = inputFactory.rootElementCursor(in).advance();
+ *  int count = new SMRecordSplitter(exec, handler).process(root);
+ *</pre>
+ *
+ * @since 2.1
+ */
+public class SMRecordSplitter
+{
+    /**
+     * Default maximum number of records that may be buffered, waiting
+     * for (or under) processing.
+     */
+    public final static int DEFAULT_MAX_PENDING = 64;
+
+    protected final Executor _executor;
+
+    protected final SMRecordHandler _handler;
+
+    protected int _maxPending = DEFAULT_MAX_PENDING;
+
+    /**
+     * Filter used for selecting record elements among children of the
+     * container element; child elements not accepted by it are skipped.
+     */
+    protected SMFilter _recordFilter = SMFilterFactory.getElementOnlyFilter();
+
+    /*
+    /**********************************************************************
+    /* Life-cycle, configuration
+    /**********************************************************************
+     */
+
+    public SMRecordSplitter(Executor executor, SMRecordHandler handler)
+    {
+        _executor = executor;
+        _handler = handler;
+    }
+
+    /**
+     * Method for specifying maximum number of records that may be read
+     * but not yet processed at any given point.
+     */
+    public SMRecordSplitter setMaxPendingRecords(int max)
+    {
+        if (max < 1) {
+            throw new IllegalArgumentException("Maximum number of pending records must be positive (got "+max+")");
+        }
+        _maxPending = max;
+        return this;
+    }
+
+    public int getMaxPendingRecords() { return _maxPending; }
+
+    /**
+     * Method for specifying filter used for selecting record elements;
+     * only START_ELEMENTs accepted by the filter are processed as
+     * records, other child elements are skipped. By default all child
+     * elements are considered records.
+     */
+    public SMRecordSplitter setRecordFilter(SMFilter f)
+    {
+        _recordFilter = (f == null) ? SMFilterFactory.getElementOnlyFilter() : f;
+        return this;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method that will split all record elements that are children of
+     * the START_ELEMENT given cursor points to, and have them processed
+     * by the executor. Method returns once all records have been
+     * processed; after this, parent cursor can be advanced as usual
+     * (records are read using a child cursor of it).
+     *<p>
+     * If processing of any record fails, no more records are submitted,
+     * and the first failure is thrown (wrapped in an
+     * {@link XMLStreamException} that indicates index of the failed
+     * record) once already submitted records have completed. If reading
+     * the input fails, exception is thrown immediately, without waiting
+     * for submitted records.
+     *
+     * @return Number of records submitted for processing
+     */
+    public int process(SMInputCursor parent)
+        throws XMLStreamException
+    {
+        final int maxPending = _maxPending;
+        final Semaphore permits = new Semaphore(maxPending);
+        final AtomicReference<XMLStreamException> failure = new AtomicReference<XMLStreamException>();
+        SMInputCursor crsr = parent.childCursor(_recordFilter);
+        int count = 0;
+
+        try {
+            while (failure.get() == null && crsr._getNextComplete("SMRecordSplitter.process") != null) {
+                if (crsr.getCurrEvent() != SMEvent.START_ELEMENT) {
+                    continue;
+                }
+                // acquire first, to limit the amount of buffered content
+                permits.acquire();
+                try {
+                    SMEventBuffer buffer = crsr.captureElement(new SMEventBuffer());
+                    _executor.execute(new RecordTask(_handler, buffer, count, permits, failure));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw new XMLStreamException("Executor rejected record #"+count+": "+e.getMessage(), e);
+                } catch (XMLStreamException e) {
+                    permits.release();
+                    throw e;
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                ++count;
+            }
+            // wait for all submitted records to complete
+            permits.acquire(maxPending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XMLStreamException("Interrupted while waiting for records to be processed", e);
+        }
+
+        XMLStreamException fail = failure.get();
+        if (fail != null) {
+            throw fail;
+        }
+        return count;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Task that replays a single captured record and calls the handler
+     */
+    private final static class RecordTask
+        implements Runnable
+    {
+        private final SMRecordHandler _handler;
+
+        private final SMEventBuffer _buffer;
+
+        private final int _index;
+
+        private final Semaphore _permits;
+
+        private final AtomicReference<XMLStreamException> _failure;
+
+        public RecordTask(SMRecordHandler handler, SMEventBuffer buffer, int index,
+                          Semaphore permits, AtomicReference<XMLStreamException> failure)
+        {
+            _handler = handler;
+            _buffer = buffer;
+            _index = index;
+            _permits = permits;
+            _failure = failure;
+        }
+
+        public void run()
+        {
+            try {
+                // no point in processing if we already failed
+                if (_failure.get() == null) {
+                    SMInputCursor crsr = SMInputFactory.rootElementCursor(_buffer);
+                    _handler.handleRecord(crsr.advance(), _index);
+                }
+            } catch (Throwable t) {
+                _failure.compareAndSet(null, new XMLStreamException("Failed to process record #"+_index+": "+t.getMessage(), t));
+            } finally {
+                _permits.release();
+            }
+        }
+    }
+}
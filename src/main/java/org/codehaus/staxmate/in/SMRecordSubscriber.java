@@ -0,0 +1,33 @@
+package org.codehaus.staxmate.in;
+
+/**
+ * Interface for objects that receive records emitted by
+ * {@link SMRecordPublisher}. Semantics are the same as those of
+ * <code>java.util.concurrent.Flow.Subscriber</code> (and
+ * Reactive Streams <code>Subscriber</code>): publisher first calls
+ * {@link #onSubscribe}, after which it calls {@link #onNext} at most
+ * as many times as subscriber has requested records, followed by either
+ * {@link #onComplete} or {@link #onError} (unless subscription is
+ * cancelled). Calls are never made concurrently.
+ *
+ * @param <T> Type of records received
+ *
+ * @since 2.1
+ */
+public interface SMRecordSubscriber<T>
+{
+    public void onSubscribe(SMRecordSubscription subscription);
+
+    public void onNext(T record);
+
+    /**
+     * Method called if reading of the input, or mapping of a record fails;
+     * no more records are delivered after this call.
+     */
+    public void onError(Throwable t);
+
+    /**
+     * Method called once all records have been delivered.
+     */
+    public void onComplete();
+}
@@ -0,0 +1,33 @@
+package org.codehaus.staxmate.in;
+
+/**
+ * Handle that {@link SMRecordPublisher} passes to its subscriber,
+ * used for signalling demand for records, or cancelling the
+ * subscription. Semantics are the same as those of
+ * <code>java.util.concurrent.Flow.Subscription</code> (and
+ * Reactive Streams <code>Subscription</code>).
+ *
+ * @since 2.1
+ */
+public interface SMRecordSubscription
+{
+    /**
+     * Method for requesting up to given number of additional records
+     * to be delivered to the subscriber. Records are read (and mapped)
+     * by the thread that calls this method, and only as many as
+     * have been requested; calls made from within
+     * {@link SMRecordSubscriber#onNext} will not recurse, but just
+     * increase the demand.
+     *
+     * @param n Number of additional records to deliver; must be positive
+     *   ({@link Long#MAX_VALUE} indicates unbounded demand)
+     */
+    public void request(long n);
+
+    /**
+     * Method for indicating that no more records are to be delivered.
+     * Underlying cursor is left where it was (not advanced to the end
+     * of the parent element).
+     */
+    public void cancel();
+}
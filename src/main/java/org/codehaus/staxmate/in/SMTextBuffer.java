@@ -0,0 +1,147 @@
+package org.codehaus.staxmate.in;
+
+/**
+ * Simple growable character buffer that {@link SMInputCursor} can
+ * append textual content into (see
+ * {@link SMInputCursor#collectDescendantText(SMTextBuffer,boolean)}
+ * and {@link SMInputCursor#getText(SMTextBuffer)}), to allow
+ * accessing text without constructing a String for each element.
+ *<p>
+ * Buffers are meant to be reused: calling {@link #reset} clears the
+ * contents but retains the underlying array, so that once buffer has
+ * grown to its working size, no further allocations are needed.
+ * Contents can be accessed directly using {@link #getBuffer} and
+ * {@link #size} (for example, to parse numbers from), or via
+ * {@link CharSequence} methods.
+ *<p>
+ * Instances are not thread-safe.
+ *
+ * @since 2.1
+ */
+public final class SMTextBuffer
+    implements CharSequence
+{
+    final static int DEFAULT_CAPACITY = 200;
+
+    /**
+     * Array that contains contents of the buffer; may be longer
+     * than the actual contents
+     */
+    private char[] _buffer;
+
+    /**
+     * Number of characters in {@link #_buffer} that are in use
+     */
+    private int _size;
+
+    public SMTextBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SMTextBuffer(int initialCapacity) {
+        _buffer = new char[Math.max(16, initialCapacity)];
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for accessing the underlying character array; contents
+     * are in range of <code>[0, size())</code>.
+     * Note that the array instance may change when content is appended.
+     */
+    public char[] getBuffer() { return _buffer; }
+
+    /**
+     * @return Number of characters contained in this buffer
+     */
+    public int size() { return _size; }
+
+    /**
+     * Method that clears contents of this buffer, without releasing
+     * the underlying array.
+     */
+    public void reset() { _size = 0; }
+
+    public SMTextBuffer append(char[] ch, int offset, int len)
+    {
+        if (len > 0) {
+            int end = _size + len;
+            if (end > _buffer.length) {
+                _expand(end);
+            }
+            System.arraycopy(ch, offset, _buffer, _size, len);
+            _size = end;
+        }
+        return this;
+    }
+
+    public SMTextBuffer append(String str)
+    {
+        int len = str.length();
+        if (len > 0) {
+            int end = _size + len;
+            if (end > _buffer.length) {
+                _expand(end);
+            }
+            str.getChars(0, len, _buffer, _size);
+            _size = end;
+        }
+        return this;
+    }
+
+    /**
+     * Method for constructing a String that contains contents
+     * of this buffer.
+     */
+    public String contentsAsString() {
+        return new String(_buffer, 0, _size);
+    }
+
+    /*
+    /**********************************************************************
+    /* CharSequence implementation
+    /**********************************************************************
+     */
+
+    public int length() { return _size; }
+
+    public char charAt(int index)
+    {
+        if (index >= _size) {
+            throw new IndexOutOfBoundsException("Index "+index+" out of range, size "+_size);
+        }
+        return _buffer[index];
+    }
+
+    public CharSequence subSequence(int start, int end)
+    {
+        if (start < 0 || end > _size || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range ["+start+", "+end+"), size "+_size);
+        }
+        return new String(_buffer, start, end-start);
+    }
+
+    @Override
+    public String toString() {
+        return contentsAsString();
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    private void _expand(int minSize)
+    {
+        // Let's grow by 50% at least, to keep number of copies low
+        int newSize = Math.max(minSize, _buffer.length + (_buffer.length >> 1));
+        char[] old = _buffer;
+        _buffer = new char[newSize];
+        System.arraycopy(old, 0, _buffer, 0, _size);
+    }
+}
@@ -47,5 +47,10 @@ public class SimpleFilter
     {
        return (mAllowedTypes & (1 << evt.getEventCode())) != 0;
     }
-}
 
+    @Override
+    FilterTerm asTerm() {
+        // sub-classes may change accept(), so can only use with this class
+        return (getClass() == SimpleFilter.class) ? FilterTerm.types(mAllowedTypes) : null;
+    }
+}
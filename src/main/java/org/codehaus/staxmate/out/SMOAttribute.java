@@ -26,4 +26,16 @@ public class SMOAttribute
         ctxt.writeAttribute(_namespace, _localName, _value);
         return true;
     }
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendAttribute(_namespace, _localName, _value);
+    }
 }
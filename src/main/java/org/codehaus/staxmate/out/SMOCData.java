@@ -40,6 +40,15 @@ public abstract class SMOCData
     protected abstract boolean _output(SMOutputContext ctxt, boolean canClose)
         throws XMLStreamException;
 
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected abstract void _compact(SMOCompactContent dst)
+        throws XMLStreamException;
+
     /*
     ////////////////////////////////////////////////////////////////
     // Sub-classes
@@ -62,6 +71,13 @@ public abstract class SMOCData
             ctxt.writeCData(mText);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CDATA, mText);
+        }
     }
     
     private final static class ArrayBased
@@ -80,6 +96,13 @@ public abstract class SMOCData
             ctxt.writeCData(mBuf, 0, mBuf.length);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CDATA, mBuf, 0, mBuf.length);
+        }
     }
 
     private final static class ArrayBased3
@@ -101,5 +124,12 @@ public abstract class SMOCData
             ctxt.writeCData(mBuf, mOffset, mLen);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CDATA, mBuf, mOffset, mLen);
+        }
     }
 }
@@ -35,6 +35,15 @@ public abstract class SMOCharacters
     
     protected abstract boolean _output(SMOutputContext ctxt, boolean canClose)
         throws XMLStreamException;
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected abstract void _compact(SMOCompactContent dst)
+        throws XMLStreamException;
     
     /*
     ////////////////////////////////////////////////////////////////
@@ -57,6 +66,13 @@ public abstract class SMOCharacters
             ctxt.writeCharacters(mText);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CHARACTERS, mText);
+        }
     }
 
     private final static class ArrayBased
@@ -75,6 +91,13 @@ public abstract class SMOCharacters
             ctxt.writeCharacters(mBuf, 0, mBuf.length);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CHARACTERS, mBuf, 0, mBuf.length);
+        }
     }
 
     private final static class ArrayBased3
@@ -96,5 +119,12 @@ public abstract class SMOCharacters
             ctxt.writeCharacters(mBuf, mOffset, mLen);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendText(SMOCompactContent.OP_CHARACTERS, mBuf, mOffset, mLen);
+        }
     }
 }
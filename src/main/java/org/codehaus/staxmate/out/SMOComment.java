@@ -22,4 +22,16 @@ public class SMOComment
         ctxt.writeComment(mText);
         return true;
     }
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendText(SMOCompactContent.OP_COMMENT, mText);
+    }
 }
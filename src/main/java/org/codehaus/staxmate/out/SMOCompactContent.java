@@ -0,0 +1,754 @@
+package org.codehaus.staxmate.out;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Container class for storing a sequence of buffered nodes (complete
+ * elements, attributes, text, typed values and so on) in compact encoded
+ * form, instead of as a linked list of node objects. Content is encoded
+ * into a single char array as opcodes followed by their arguments;
+ * names and namespaces are referenced using indexes into the symbol
+ * table of the owning {@link SMOutputContext}, and text and typed values
+ * are stored inline.
+ *<p>
+ * Instances are only constructed when compact buffering is enabled
+ * (see {@link SMOutputContext#setCompactBuffering}), and the whole
+ * sequence is output ("replayed") when the node itself is output.
+ *<p>
+ * If a spill threshold is configured (see
+ * {@link SMOutputContext#setBufferSpillThreshold}), encoded content
+ * is written to a temporary file whenever the amount kept in memory
+ * exceeds the threshold, and read back in segments when output; so
+ * memory usage stays bounded regardless of amount of content buffered.
+ * Content is always spilled at opcode boundaries, so that each segment
+ * can be replayed as is.
+ *
+ * @since 2.1
+ */
+public final class SMOCompactContent
+    extends SMSimpleOutput
+{
+    final static char OP_START_ELEMENT = 1;
+    final static char OP_END_ELEMENT = 2;
+    final static char OP_ATTRIBUTE = 3;
+    final static char OP_NAMESPACE = 4;
+    final static char OP_CHARACTERS = 5;
+    final static char OP_CDATA = 6;
+    final static char OP_COMMENT = 7;
+    final static char OP_ENTITY_REF = 8;
+    final static char OP_PROC_INSTR = 9;
+    final static char OP_BOOLEAN = 10;
+    final static char OP_INT = 11;
+    final static char OP_LONG = 12;
+    final static char OP_DOUBLE = 13;
+    final static char OP_INT_ARRAY = 14;
+    final static char OP_LONG_ARRAY = 15;
+    final static char OP_FLOAT_ARRAY = 16;
+    final static char OP_DOUBLE_ARRAY = 17;
+    final static char OP_BINARY = 18;
+
+    final static int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * Context that owns the symbol table used for names and namespaces
+     */
+    final SMOutputContext _context;
+
+    /**
+     * Buffer that contains encoded content not (yet) spilled
+     */
+    char[] _buffer;
+
+    int _length;
+
+    // // // Spilled content
+
+    /**
+     * Temporary file that contains content spilled so far, if any
+     */
+    File _spillFile;
+
+    RandomAccessFile _spillOut;
+
+    /**
+     * Lengths (in chars) of segments spilled, in order
+     */
+    int[] _spilledSegments;
+
+    int _spilledSegmentCount;
+
+    long _spilledLength;
+
+    /**
+     * Flag set if spilled content was deleted before being output
+     * (see {@link SMOutputContext#deleteSpillFiles}), meaning that
+     * content can no longer be output.
+     */
+    boolean _spillDiscarded;
+
+    /**
+     * Scratch buffer used for writing and reading back spilled content;
+     * reused for all segments
+     */
+    ByteBuffer _spillBuffer;
+
+    // // // Output state; only used while content is being output
+
+    /**
+     * Buffer from which content is being read
+     */
+    char[] _readBuffer;
+
+    int _ptr;
+
+    /**
+     * Namespace counts of encoded elements currently open
+     */
+    int[] _nsCounts;
+
+    /**
+     * Default namespaces in scope of encoded elements currently open
+     */
+    SMNamespace[] _defaultNs;
+
+    int _depth;
+
+    SMOCompactContent(SMOutputContext ctxt)
+    {
+        super();
+        _context = ctxt;
+        _buffer = new char[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * @return Number of chars used for encoded content so far, including
+     *   content spilled to disk
+     */
+    public long size() { return _spilledLength + _length; }
+
+    /**
+     * @return True if some of the content has been spilled to a
+     *   temporary file
+     *
+     * @since 2.1
+     */
+    public boolean isSpilled() { return (_spillFile != null); }
+
+    /*
+    ////////////////////////////////////////////////////////////////
+    // Encoding
+    ////////////////////////////////////////////////////////////////
+     */
+
+    void appendStartElement(SMNamespace ns, String localName)
+        throws XMLStreamException
+    {
+        _putOp(OP_START_ELEMENT);
+        _putSymbol(ns);
+        _putSymbol(localName);
+    }
+
+    void appendEndElement()
+        throws XMLStreamException
+    {
+        _putOp(OP_END_ELEMENT);
+    }
+
+    void appendAttribute(SMNamespace ns, String localName, String value)
+        throws XMLStreamException
+    {
+        _putOp(OP_ATTRIBUTE);
+        _putSymbol(ns);
+        _putSymbol(localName);
+        _putString(value);
+    }
+
+    void appendNamespace(SMNamespace ns, SMNamespace parentDefaultNs, int parentNsCount)
+        throws XMLStreamException
+    {
+        _putOp(OP_NAMESPACE);
+        _putSymbol(ns);
+        _putSymbol(parentDefaultNs);
+        _putInt(parentNsCount);
+    }
+
+    /**
+     * @param op Type of text: one of {@link #OP_CHARACTERS},
+     *   {@link #OP_CDATA} or {@link #OP_COMMENT}
+     */
+    void appendText(char op, String text)
+        throws XMLStreamException
+    {
+        _putOp(op);
+        _putString(text);
+    }
+
+    void appendText(char op, char[] buf, int offset, int len)
+        throws XMLStreamException
+    {
+        _putOp(op);
+        _ensure(2 + len);
+        _putInt(len);
+        System.arraycopy(buf, offset, _buffer, _length, len);
+        _length += len;
+    }
+
+    void appendEntityRef(String name)
+        throws XMLStreamException
+    {
+        _putOp(OP_ENTITY_REF);
+        _putSymbol(name);
+    }
+
+    void appendProcInstr(String target, String data)
+        throws XMLStreamException
+    {
+        _putOp(OP_PROC_INSTR);
+        _putSymbol(target);
+        _putString(data);
+    }
+
+    void appendValue(boolean value)
+        throws XMLStreamException
+    {
+        _putOp(OP_BOOLEAN);
+        _ensure(1);
+        _buffer[_length++] = value ? (char) 1 : (char) 0;
+    }
+
+    void appendValue(int value)
+        throws XMLStreamException
+    {
+        _putOp(OP_INT);
+        _putInt(value);
+    }
+
+    void appendValue(long value)
+        throws XMLStreamException
+    {
+        _putOp(OP_LONG);
+        _putLong(value);
+    }
+
+    void appendValue(double value)
+        throws XMLStreamException
+    {
+        _putOp(OP_DOUBLE);
+        _putLong(Double.doubleToRawLongBits(value));
+    }
+
+    void appendValue(int[] value)
+        throws XMLStreamException
+    {
+        _putOp(OP_INT_ARRAY);
+        _ensure(2 + 2 * value.length);
+        _putInt(value.length);
+        for (int i = 0; i < value.length; ++i) {
+            _putInt(value[i]);
+        }
+    }
+
+    void appendValue(long[] value)
+        throws XMLStreamException
+    {
+        _putOp(OP_LONG_ARRAY);
+        _ensure(2 + 4 * value.length);
+        _putInt(value.length);
+        for (int i = 0; i < value.length; ++i) {
+            _putLong(value[i]);
+        }
+    }
+
+    void appendValue(float[] value)
+        throws XMLStreamException
+    {
+        _putOp(OP_FLOAT_ARRAY);
+        _ensure(2 + 2 * value.length);
+        _putInt(value.length);
+        for (int i = 0; i < value.length; ++i) {
+            _putInt(Float.floatToRawIntBits(value[i]));
+        }
+    }
+
+    void appendValue(double[] value)
+        throws XMLStreamException
+    {
+        _putOp(OP_DOUBLE_ARRAY);
+        _ensure(2 + 4 * value.length);
+        _putInt(value.length);
+        for (int i = 0; i < value.length; ++i) {
+            _putLong(Double.doubleToRawLongBits(value[i]));
+        }
+    }
+
+    void appendBinary(byte[] value)
+        throws XMLStreamException
+    {
+        _putOp(OP_BINARY);
+        final int len = value.length;
+        _ensure(2 + (len + 1) / 2);
+        _putInt(len);
+        // two bytes per char
+        char[] buf = _buffer;
+        int ix = 0;
+        for (int end = len - 1; ix < end; ix += 2) {
+            buf[_length++] = (char) (((value[ix] & 0xFF) << 8) | (value[ix+1] & 0xFF));
+        }
+        if (ix < len) {
+            buf[_length++] = (char) ((value[ix] & 0xFF) << 8);
+        }
+    }
+
+    /**
+     * Method for appending all of content of another compact content
+     * node: since both share the symbol table of the context, contents
+     * can be copied as is. Other node is not to be used after this call.
+     */
+    void appendContent(SMOCompactContent other)
+        throws XMLStreamException
+    {
+        other._verifyNotDiscarded();
+        if (other._spillFile != null) {
+            try {
+                FileChannel ch = other._spillOut.getChannel();
+                ch.position(0L);
+                for (int i = 0; i < other._spilledSegmentCount; ++i) {
+                    _spillIfNeeded();
+                    int len = other._spilledSegments[i];
+                    _ensure(len);
+                    _readSegment(ch, _buffer, _length, len);
+                    _length += len;
+                }
+            } catch (IOException ioe) {
+                throw new XMLStreamException(ioe);
+            } finally {
+                other._deleteSpillFile();
+            }
+        }
+        _spillIfNeeded();
+        _ensure(other._length);
+        System.arraycopy(other._buffer, 0, _buffer, _length, other._length);
+        _length += other._length;
+    }
+
+    /*
+    ////////////////////////////////////////////////////////////////
+    // SMOutputtable implementation
+    ////////////////////////////////////////////////////////////////
+     */
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendContent(this);
+    }
+
+    @Override
+    protected boolean _output(SMOutputContext ctxt, boolean canClose)
+        throws XMLStreamException
+    {
+        _verifyNotDiscarded();
+        _depth = 0;
+        if (_spillFile != null) {
+            try {
+                FileChannel ch = _spillOut.getChannel();
+                ch.position(0L);
+                // can't use main buffer, content in it not yet output
+                char[] buf = new char[_spilledSegments[0]];
+                for (int i = 0; i < _spilledSegmentCount; ++i) {
+                    int len = _spilledSegments[i];
+                    if (buf.length < len) {
+                        buf = new char[len];
+                    }
+                    _readSegment(ch, buf, 0, len);
+                    _replay(ctxt, buf, len);
+                }
+            } catch (IOException ioe) {
+                throw new XMLStreamException(ioe);
+            } finally {
+                _deleteSpillFile();
+            }
+        }
+        _replay(ctxt, _buffer, _length);
+        _readBuffer = null;
+        _nsCounts = null;
+        _defaultNs = null;
+        return true;
+    }
+
+    /**
+     * Method for outputting given segment of encoded content. Since
+     * elements may span multiple segments, information about open
+     * elements is kept in instance fields.
+     */
+    private void _replay(SMOutputContext ctxt, final char[] buf, final int segmentEnd)
+        throws XMLStreamException
+    {
+        /* Elements encoded are always complete, so we just need to keep
+         * track of what is needed for writing end elements
+         */
+        _readBuffer = buf;
+        _ptr = 0;
+        while (_ptr < segmentEnd) {
+            switch (buf[_ptr++]) {
+            case OP_START_ELEMENT:
+                {
+                    SMNamespace ns = (SMNamespace) _getSymbol();
+                    String localName = (String) _getSymbol();
+                    int depth = _depth;
+                    if (_nsCounts == null) {
+                        _nsCounts = new int[16];
+                        _defaultNs = new SMNamespace[16];
+                    } else if (depth == _nsCounts.length) {
+                        int[] counts = new int[depth + depth];
+                        System.arraycopy(_nsCounts, 0, counts, 0, depth);
+                        _nsCounts = counts;
+                        SMNamespace[] defs = new SMNamespace[depth + depth];
+                        System.arraycopy(_defaultNs, 0, defs, 0, depth);
+                        _defaultNs = defs;
+                    }
+                    _nsCounts[depth] = ctxt.getNamespaceCount();
+                    _defaultNs[depth] = ctxt.writeStartElement(ns, localName);
+                    _depth = depth + 1;
+                }
+                break;
+            case OP_END_ELEMENT:
+                --_depth;
+                ctxt.writeEndElement(_nsCounts[_depth], _defaultNs[_depth]);
+                break;
+            case OP_ATTRIBUTE:
+                {
+                    SMNamespace ns = (SMNamespace) _getSymbol();
+                    String localName = (String) _getSymbol();
+                    ctxt.writeAttribute(ns, localName, _getString());
+                }
+                break;
+            case OP_NAMESPACE:
+                {
+                    SMNamespace ns = (SMNamespace) _getSymbol();
+                    SMNamespace parentDefaultNs = (SMNamespace) _getSymbol();
+                    int parentNsCount = _getInt();
+                    // within an encoded element, we know the actual values
+                    if (_depth > 0) {
+                        parentDefaultNs = _defaultNs[_depth-1];
+                        parentNsCount = _nsCounts[_depth-1];
+                    }
+                    ctxt.predeclareNamespace(ns, parentDefaultNs, parentNsCount);
+                }
+                break;
+            case OP_CHARACTERS:
+                {
+                    int len = _getInt();
+                    ctxt.writeCharacters(buf, _ptr, len);
+                    _ptr += len;
+                }
+                break;
+            case OP_CDATA:
+                {
+                    int len = _getInt();
+                    ctxt.writeCData(buf, _ptr, len);
+                    _ptr += len;
+                }
+                break;
+            case OP_COMMENT:
+                ctxt.writeComment(_getString());
+                break;
+            case OP_ENTITY_REF:
+                ctxt.writeEntityRef((String) _getSymbol());
+                break;
+            case OP_PROC_INSTR:
+                {
+                    String target = (String) _getSymbol();
+                    ctxt.writeProcessingInstruction(target, _getString());
+                }
+                break;
+            case OP_BOOLEAN:
+                ctxt.writeValue(buf[_ptr++] != 0);
+                break;
+            case OP_INT:
+                ctxt.writeValue(_getInt());
+                break;
+            case OP_LONG:
+                ctxt.writeValue(_getLong());
+                break;
+            case OP_DOUBLE:
+                ctxt.writeValue(Double.longBitsToDouble(_getLong()));
+                break;
+            case OP_INT_ARRAY:
+                {
+                    int[] value = new int[_getInt()];
+                    for (int i = 0; i < value.length; ++i) {
+                        value[i] = _getInt();
+                    }
+                    ctxt.writeValue(value, 0, value.length);
+                }
+                break;
+            case OP_LONG_ARRAY:
+                {
+                    long[] value = new long[_getInt()];
+                    for (int i = 0; i < value.length; ++i) {
+                        value[i] = _getLong();
+                    }
+                    ctxt.writeValue(value, 0, value.length);
+                }
+                break;
+            case OP_FLOAT_ARRAY:
+                {
+                    float[] value = new float[_getInt()];
+                    for (int i = 0; i < value.length; ++i) {
+                        value[i] = Float.intBitsToFloat(_getInt());
+                    }
+                    ctxt.writeValue(value, 0, value.length);
+                }
+                break;
+            case OP_DOUBLE_ARRAY:
+                {
+                    double[] value = new double[_getInt()];
+                    for (int i = 0; i < value.length; ++i) {
+                        value[i] = Double.longBitsToDouble(_getLong());
+                    }
+                    ctxt.writeValue(value, 0, value.length);
+                }
+                break;
+            case OP_BINARY:
+                {
+                    byte[] value = new byte[_getInt()];
+                    int ix = 0;
+                    for (int end = value.length - 1; ix < end; ix += 2) {
+                        char c = buf[_ptr++];
+                        value[ix] = (byte) (c >> 8);
+                        value[ix+1] = (byte) c;
+                    }
+                    if (ix < value.length) {
+                        value[ix] = (byte) (buf[_ptr++] >> 8);
+                    }
+                    ctxt.writeBinary(value, 0, value.length);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Internal error: unrecognized opcode "+((int) buf[_ptr-1])+" at "+(_ptr-1));
+            }
+        }
+    }
+
+    /*
+    ////////////////////////////////////////////////////////////////
+    // Internal methods
+    ////////////////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method called at opcode boundaries, to spill content buffered
+     * so far if it exceeds the configured threshold.
+     */
+    private void _spillIfNeeded()
+        throws XMLStreamException
+    {
+        int threshold = _context._cfgSpillThreshold;
+        if (threshold <= 0 || _length < threshold) {
+            return;
+        }
+        try {
+            if (_spillFile == null) {
+                _spillFile = File.createTempFile("staxmate", ".buf", _context._cfgSpillDirectory);
+                _context.addSpilledContent(this);
+                _spillOut = new RandomAccessFile(_spillFile, "rw");
+                _spilledSegments = new int[16];
+            } else if (_spilledSegmentCount == _spilledSegments.length) {
+                int[] segs = new int[_spilledSegmentCount + _spilledSegmentCount];
+                System.arraycopy(_spilledSegments, 0, segs, 0, _spilledSegmentCount);
+                _spilledSegments = segs;
+            }
+            ByteBuffer bb = _ioBuffer(_length);
+            bb.asCharBuffer().put(_buffer, 0, _length);
+            FileChannel ch = _spillOut.getChannel();
+            while (bb.hasRemaining()) {
+                ch.write(bb);
+            }
+        } catch (IOException ioe) {
+            _deleteSpillFile();
+            throw new XMLStreamException(ioe);
+        }
+        _spilledSegments[_spilledSegmentCount++] = _length;
+        _spilledLength += _length;
+        _length = 0;
+    }
+
+    private void _readSegment(FileChannel ch, char[] buf, int offset, int len)
+        throws IOException
+    {
+        ByteBuffer bb = _ioBuffer(len);
+        while (bb.hasRemaining()) {
+            if (ch.read(bb) < 0) {
+                throw new IOException("Unexpected end of spill file: truncated?");
+            }
+        }
+        bb.flip();
+        bb.asCharBuffer().get(buf, offset, len);
+    }
+
+    /**
+     * @return Scratch buffer for writing or reading given number of
+     *   chars of spilled content, cleared and limited to that length
+     */
+    private ByteBuffer _ioBuffer(int chars)
+    {
+        final int bytes = chars * 2;
+        ByteBuffer bb = _spillBuffer;
+        if (bb == null || bb.capacity() < bytes) {
+            _spillBuffer = bb = ByteBuffer.allocate(bytes);
+        } else {
+            bb.clear();
+            bb.limit(bytes);
+        }
+        return bb;
+    }
+
+    /**
+     * Method called once spilled content has been read back (or
+     * can not be), to close and delete the temporary file.
+     */
+    private void _deleteSpillFile()
+    {
+        if (_spillOut != null) {
+            try {
+                _spillOut.close();
+            } catch (IOException ioe) { }
+            _spillOut = null;
+        }
+        if (_spillFile != null) {
+            _spillFile.delete();
+            _spillFile = null;
+            _context.removeSpilledContent(this);
+        }
+        _spilledSegments = null;
+        _spilledSegmentCount = 0;
+        _spilledLength = 0L;
+        _spillBuffer = null;
+    }
+
+    /**
+     * Method called by the context when spilled content is deleted
+     * without being output.
+     */
+    void _discardSpilled()
+    {
+        _deleteSpillFile();
+        _spillDiscarded = true;
+    }
+
+    private void _verifyNotDiscarded()
+        throws XMLStreamException
+    {
+        if (_spillDiscarded) {
+            throw new XMLStreamException("Can not output buffered content: its spilled part has been deleted (see SMOutputContext.deleteSpillFiles())");
+        }
+    }
+
+    private void _ensure(int count)
+    {
+        int needed = _length + count;
+        if (needed > _buffer.length) {
+            char[] buf = new char[Math.max(needed, _buffer.length + _buffer.length)];
+            System.arraycopy(_buffer, 0, buf, 0, _length);
+            _buffer = buf;
+        }
+    }
+
+    private void _putOp(char op)
+        throws XMLStreamException
+    {
+        _spillIfNeeded();
+        _ensure(1);
+        _buffer[_length++] = op;
+    }
+
+    private void _putInt(int value)
+    {
+        _ensure(2);
+        _buffer[_length++] = (char) (value >>> 16);
+        _buffer[_length++] = (char) value;
+    }
+
+    private void _putLong(long value)
+    {
+        _putInt((int) (value >>> 32));
+        _putInt((int) value);
+    }
+
+    /**
+     * Symbol references are encoded as a single char for the first
+     * 32k symbols, and as two chars (with the highest bit of the first
+     * one set) for the rest.
+     */
+    private void _putSymbol(Object symbol)
+    {
+        int id = _context.getCompactSymbolId(symbol);
+        _ensure(2);
+        if (id < 0x8000) {
+            _buffer[_length++] = (char) id;
+        } else {
+            _buffer[_length++] = (char) (0x8000 | (id >>> 16));
+            _buffer[_length++] = (char) id;
+        }
+    }
+
+    private void _putString(String str)
+    {
+        if (str == null) {
+            _putInt(-1);
+            return;
+        }
+        int len = str.length();
+        _ensure(2 + len);
+        _putInt(len);
+        str.getChars(0, len, _buffer, _length);
+        _length += len;
+    }
+
+    private int _getInt()
+    {
+        final char[] buf = _readBuffer;
+        int value = (buf[_ptr] << 16) | buf[_ptr+1];
+        _ptr += 2;
+        return value;
+    }
+
+    private long _getLong()
+    {
+        long hi = _getInt();
+        return (hi << 32) | (_getInt() & 0xFFFFFFFFL);
+    }
+
+    private Object _getSymbol()
+    {
+        int id = _readBuffer[_ptr++];
+        if ((id & 0x8000) != 0) {
+            id = ((id & 0x7FFF) << 16) | _readBuffer[_ptr++];
+        }
+        return _context.getCompactSymbol(id);
+    }
+
+    private String _getString()
+    {
+        int len = _getInt();
+        if (len < 0) {
+            return null;
+        }
+        String str = new String(_readBuffer, _ptr, len);
+        _ptr += len;
+        return str;
+    }
+}
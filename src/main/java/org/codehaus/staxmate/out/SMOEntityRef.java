@@ -18,4 +18,16 @@ public class SMOEntityRef
         ctxt.writeEntityRef(mName);
         return true;
     }
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendEntityRef(mName);
+    }
 }
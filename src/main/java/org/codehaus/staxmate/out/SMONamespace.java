@@ -35,4 +35,16 @@ public class SMONamespace
         ctxt.predeclareNamespace(_namespace, _parentDefaultNS, _parentNsCount);
         return true;
     }
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendNamespace(_namespace, _parentDefaultNS, _parentNsCount);
+    }
 }
@@ -20,4 +20,16 @@ public class SMOProcInstr
         ctxt.writeProcessingInstruction(mTarget, mData);
         return true;
     }
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendProcInstr(mTarget, mData);
+    }
 }
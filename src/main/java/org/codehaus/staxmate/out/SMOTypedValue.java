@@ -21,8 +21,70 @@ public abstract class SMOTypedValue
     public static SMOTypedValue create(long value) { return new LongValue(value); }
     public static SMOTypedValue create(double value) { return new DoubleValue(value); }
 
+    /*
+    ////////////////////////////////////////////////////////////////
+    // Factory methods, arrays and binary content; all make a copy
+    // of the value range (since caller may reuse the array), but
+    // do not convert values to Strings.
+    ////////////////////////////////////////////////////////////////
+     */
+
+    /**
+     * @since 2.1
+     */
+    public static SMOTypedValue create(int[] value, int offset, int len) {
+        int[] copy = new int[len];
+        System.arraycopy(value, offset, copy, 0, len);
+        return new IntArrayValue(copy);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public static SMOTypedValue create(long[] value, int offset, int len) {
+        long[] copy = new long[len];
+        System.arraycopy(value, offset, copy, 0, len);
+        return new LongArrayValue(copy);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public static SMOTypedValue create(float[] value, int offset, int len) {
+        float[] copy = new float[len];
+        System.arraycopy(value, offset, copy, 0, len);
+        return new FloatArrayValue(copy);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public static SMOTypedValue create(double[] value, int offset, int len) {
+        double[] copy = new double[len];
+        System.arraycopy(value, offset, copy, 0, len);
+        return new DoubleArrayValue(copy);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public static SMOTypedValue createBinary(byte[] value, int offset, int len) {
+        byte[] copy = new byte[len];
+        System.arraycopy(value, offset, copy, 0, len);
+        return new BinaryValue(copy);
+    }
+
     protected abstract boolean _output(SMOutputContext ctxt, boolean canClose)
         throws XMLStreamException;
+
+    @Override
+    protected boolean _canCompact() {
+        return true;
+    }
+
+    @Override
+    protected abstract void _compact(SMOCompactContent dst)
+        throws XMLStreamException;
     
     /*
     ////////////////////////////////////////////////////////////////
@@ -41,6 +103,13 @@ public abstract class SMOTypedValue
             ctxt.writeValue(_value);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
     }
 
     private final static class IntValue extends SMOTypedValue
@@ -54,6 +123,13 @@ public abstract class SMOTypedValue
             ctxt.writeValue(_value);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
     }
 
     private final static class LongValue extends SMOTypedValue
@@ -67,6 +143,13 @@ public abstract class SMOTypedValue
             ctxt.writeValue(_value);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
     }
 
     private final static class DoubleValue extends SMOTypedValue
@@ -80,5 +163,112 @@ public abstract class SMOTypedValue
             ctxt.writeValue(_value);
             return true;
         }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
+    }
+
+    private final static class IntArrayValue extends SMOTypedValue
+    {
+        final int[] _value;
+
+        IntArrayValue(int[] v) { _value = v; }
+
+        protected boolean _output(SMOutputContext ctxt, boolean canClose) throws XMLStreamException
+        {
+            ctxt.writeValue(_value, 0, _value.length);
+            return true;
+        }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
+    }
+
+    private final static class LongArrayValue extends SMOTypedValue
+    {
+        final long[] _value;
+
+        LongArrayValue(long[] v) { _value = v; }
+
+        protected boolean _output(SMOutputContext ctxt, boolean canClose) throws XMLStreamException
+        {
+            ctxt.writeValue(_value, 0, _value.length);
+            return true;
+        }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
+    }
+
+    private final static class FloatArrayValue extends SMOTypedValue
+    {
+        final float[] _value;
+
+        FloatArrayValue(float[] v) { _value = v; }
+
+        protected boolean _output(SMOutputContext ctxt, boolean canClose) throws XMLStreamException
+        {
+            ctxt.writeValue(_value, 0, _value.length);
+            return true;
+        }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
+    }
+
+    private final static class DoubleArrayValue extends SMOTypedValue
+    {
+        final double[] _value;
+
+        DoubleArrayValue(double[] v) { _value = v; }
+
+        protected boolean _output(SMOutputContext ctxt, boolean canClose) throws XMLStreamException
+        {
+            ctxt.writeValue(_value, 0, _value.length);
+            return true;
+        }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendValue(_value);
+        }
+    }
+
+    private final static class BinaryValue extends SMOTypedValue
+    {
+        final byte[] _value;
+
+        BinaryValue(byte[] v) { _value = v; }
+
+        protected boolean _output(SMOutputContext ctxt, boolean canClose) throws XMLStreamException
+        {
+            ctxt.writeBinary(_value, 0, _value.length);
+            return true;
+        }
+
+        @Override
+        protected void _compact(SMOCompactContent dst)
+            throws XMLStreamException
+        {
+            dst.appendBinary(_value);
+        }
     }
 }
@@ -1,5 +1,9 @@
 package org.codehaus.staxmate.out;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 import javax.xml.stream.XMLStreamException;
 
 /**
@@ -18,6 +22,13 @@ import javax.xml.stream.XMLStreamException;
 public abstract class SMOutputContainer
     extends SMOutputtable
 {
+    /**
+     * Size of chunks in which binary content read from an input stream
+     * is written; needs to be a multiple of 3 to avoid base64 padding
+     * between chunks.
+     */
+    final static int BINARY_CHUNK_SIZE = 3 * 1000;
+
     /**
      * Context of this node; defines things like the underlying stream
      * writer and known namespaces.
@@ -286,7 +297,7 @@ public abstract class SMOutputContainer
     /*
     ///////////////////////////////////////////////////////////
     // Typed Access output methods for adding typed
-    // (boolean, int, long) content as character data
+    // (boolean, int, long, arrays, binary) content as character data
     ///////////////////////////////////////////////////////////
     */
 
@@ -365,6 +376,144 @@ public abstract class SMOutputContainer
         }
     }
 
+    /**
+     * Typed output method for outputting given range of
+     * int values as (textual) xml content, as white space
+     * separated list of values.
+     * With streams that support Typed Access API values are written
+     * without constructing intermediate Strings; and if content needs
+     * to be buffered, values are copied and kept in their binary form.
+     *
+     * @since 2.1
+     */
+    public void addValue(int[] value, int offset, int len)
+        throws XMLStreamException
+    {
+        if (_canOutputNewChild()) {
+            _context.writeValue(value, offset, len);
+        } else {
+            _linkNewChild(_context.createValue(value, offset, len));
+        }
+    }
+
+    /**
+     * Typed output method for outputting given range of
+     * long values as (textual) xml content; see
+     * {@link #addValue(int[],int,int)} for details.
+     *
+     * @since 2.1
+     */
+    public void addValue(long[] value, int offset, int len)
+        throws XMLStreamException
+    {
+        if (_canOutputNewChild()) {
+            _context.writeValue(value, offset, len);
+        } else {
+            _linkNewChild(_context.createValue(value, offset, len));
+        }
+    }
+
+    /**
+     * Typed output method for outputting given range of
+     * float values as (textual) xml content; see
+     * {@link #addValue(int[],int,int)} for details.
+     *
+     * @since 2.1
+     */
+    public void addValue(float[] value, int offset, int len)
+        throws XMLStreamException
+    {
+        if (_canOutputNewChild()) {
+            _context.writeValue(value, offset, len);
+        } else {
+            _linkNewChild(_context.createValue(value, offset, len));
+        }
+    }
+
+    /**
+     * Typed output method for outputting given range of
+     * double values as (textual) xml content; see
+     * {@link #addValue(int[],int,int)} for details.
+     *
+     * @since 2.1
+     */
+    public void addValue(double[] value, int offset, int len)
+        throws XMLStreamException
+    {
+        if (_canOutputNewChild()) {
+            _context.writeValue(value, offset, len);
+        } else {
+            _linkNewChild(_context.createValue(value, offset, len));
+        }
+    }
+
+    /**
+     * Typed output method for outputting given binary content
+     * as base64 encoded (textual) xml content.
+     * If content needs to be buffered, a copy of the byte range
+     * is kept, and it is only encoded when output.
+     *
+     * @since 2.1
+     */
+    public void addBinary(byte[] data, int offset, int len)
+        throws XMLStreamException
+    {
+        if (_canOutputNewChild()) {
+            _context.writeBinary(data, offset, len);
+        } else {
+            _linkNewChild(_context.createBinary(data, offset, len));
+        }
+    }
+
+    /**
+     * Typed output method for outputting all content of given
+     * input stream as base64 encoded (textual) xml content.
+     * If content can be output directly, it is read and encoded in
+     * chunks; otherwise the whole content is read and buffered.
+     * Stream is not closed by this method.
+     *
+     * @return Number of bytes read from the stream
+     *
+     * @since 2.1
+     */
+    public long addBinary(InputStream in)
+        throws IOException, XMLStreamException
+    {
+        /* Chunks need to be multiples of 3 bytes, so that there is
+         * no padding between encoded chunks
+         */
+        byte[] buffer = new byte[BINARY_CHUNK_SIZE];
+        if (!_canOutputNewChild()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.length);
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, count);
+            }
+            byte[] data = bytes.toByteArray();
+            _linkNewChild(_context.createBinary(data, 0, data.length));
+            return data.length;
+        }
+        long total = 0L;
+        int ptr = 0;
+        while (true) {
+            int count = in.read(buffer, ptr, buffer.length - ptr);
+            if (count < 0) {
+                break;
+            }
+            ptr += count;
+            total += count;
+            // only write full chunks, until the end
+            if (ptr == buffer.length) {
+                _context.writeBinary(buffer, 0, ptr);
+                ptr = 0;
+            }
+        }
+        if (ptr > 0) {
+            _context.writeBinary(buffer, 0, ptr);
+        }
+        return total;
+    }
+
     /*
     ////////////////////////////////////////////////////////
     // Output methods for Elements, attributes, buffered
@@ -391,12 +540,26 @@ public abstract class SMOutputContainer
          */
         ns = _verifyNamespaceArg(ns);
 
+        ctxt._elementsAdded = true;
+        if (ctxt._cfgDirectOutput) {
+            /* In direct mode we are never blocked, but previous child (if
+             * any) needs to be closed first; new one is written right away,
+             * and it's the only child we need to keep track of (no linking
+             * needed)
+             */
+            _canOutputNewChild();
+            SMOutputElement newElem = ctxt.createElement(localName, ns);
+            _firstChild = _lastChild = newElem;
+            newElem._parent = this;
+            newElem.doWriteStartElement();
+            return newElem;
+        }
         // Ok, let's see if we are blocked already
         boolean blocked = !_canOutputNewChild();
-        SMOutputElement newElem = new SMOutputElement(ctxt, localName, ns);
+        // (reuses a closed element, if recycling is enabled)
+        SMOutputElement newElem = ctxt.createElement(localName, ns);
         _linkNewChild(newElem);
         newElem.linkParent(this, blocked);
-
         return newElem;
     }
 
@@ -441,6 +604,9 @@ public abstract class SMOutputContainer
     public SMBufferable addBuffered(SMBufferable buffered)
         throws XMLStreamException
     {
+        if (_context._cfgDirectOutput) {
+            _context.throwDirectBuffering();
+        }
         // Ok; first, let's see if we are blocked already
         boolean blocked = !_canOutputNewChild();
         _linkNewChild((SMOutputtable) buffered);
@@ -493,6 +659,9 @@ public abstract class SMOutputContainer
      */
     public SMBufferedFragment createBufferedFragment()
     {
+        if (_context._cfgDirectOutput) {
+            _context.throwDirectBuffering();
+        }
         return new SMBufferedFragment(getContext());
     }
 
@@ -505,6 +674,9 @@ public abstract class SMOutputContainer
      */
     public SMBufferedElement createBufferedElement(SMNamespace ns, String localName)
     {
+        if (_context._cfgDirectOutput) {
+            _context.throwDirectBuffering();
+        }
         // [STAXMATE-26] fix:
         ns = _verifyNamespaceArg(ns);
         return new SMBufferedElement(getContext(), localName, ns);
@@ -588,17 +760,70 @@ public abstract class SMOutputContainer
     */
 
     protected void _linkNewChild(SMOutputtable n)
+        throws XMLStreamException
     {
+        _context._elementsAdded = true;
         SMOutputtable last = _lastChild;
         if (last == null) {
             _lastChild = n;
             _firstChild = n;
         } else {
+            /* If there is a last child, output is blocked (otherwise
+             * it would have been output already): if so, may need to
+             * compact it
+             */
+            if (_context._cfgCompactBuffering) {
+                last = _compactLastChild(last);
+            }
             last._linkNext(n);
             _lastChild = n;
         }
     }
 
+    /**
+     * Method called in compact buffering mode (see
+     * {@link SMOutputContext#setCompactBuffering}) before linking a new
+     * child, to encode the current last child into the compact content
+     * node preceding it (or a new one, if there is no such node),
+     * if possible.
+     *
+     * @return Child that is now the last child of this container
+     *
+     * @since 2.1
+     */
+    private SMOutputtable _compactLastChild(SMOutputtable last)
+        throws XMLStreamException
+    {
+        if (!last._canCompact()) {
+            return last;
+        }
+        /* Need to find the preceding child; usually either there is
+         * none, or it is the compact node, so no need for double linking
+         */
+        SMOutputtable prev = null;
+        if (last != _firstChild) {
+            prev = _firstChild;
+            while (prev._next != last) {
+                prev = prev._next;
+            }
+        }
+        SMOCompactContent dst;
+        if (prev instanceof SMOCompactContent) {
+            dst = (SMOCompactContent) prev;
+            dst._next = null;
+        } else {
+            dst = _context.createCompactContent();
+            if (prev == null) {
+                _firstChild = dst;
+            } else {
+                prev._next = dst;
+            }
+        }
+        last._compact(dst);
+        _lastChild = dst;
+        return dst;
+    }
+
     /**
      * Method that will try to close and output all child nodes that
      * can be (ones that are not buffered), and returns true if that
@@ -646,6 +871,25 @@ public abstract class SMOutputContainer
         return true;
     }
 
+    /**
+     * Method called in direct output mode (see
+     * {@link SMOutputContext#setDirectOutput}) to close the child
+     * element that is currently open, if any: in direct mode, it is the
+     * only child container keeps track of.
+     *
+     * @since 2.1
+     */
+    protected final void _closeDirectChild()
+        throws XMLStreamException
+    {
+        SMOutputtable child = _firstChild;
+        if (child != null) {
+            _firstChild = null;
+            _lastChild = null;
+            ((SMOutputElement) child)._closeDirect();
+        }
+    }
+
     protected final void _forceChildOutput()
         throws XMLStreamException
     {
@@ -1,5 +1,6 @@
 package org.codehaus.staxmate.out;
 
+import java.io.File;
 import java.util.*;
 
 import javax.xml.XMLConstants;
@@ -38,6 +39,12 @@ public final class SMOutputContext
      */
     final static int DEF_NS_STACK_SIZE = 16;
 
+    /**
+     * Size of the namespace lookup cache (see {@link #_nsCacheUris});
+     * needs to be a power of two.
+     */
+    final static int NS_CACHE_SIZE = 32;
+
     protected final static SMNamespace NS_EMPTY =
         new SMGlobalNamespace("", XMLConstants.DEFAULT_NS_PREFIX);
     protected final static SMNamespace NS_XML =
@@ -87,6 +94,116 @@ public final class SMOutputContext
      */
     boolean _cfgPreferDefaultNs = false;
 
+    /**
+     * Configuration flag that specifies whether content is to be
+     * written in "direct" mode, in which no buffering is allowed
+     * (see {@link #setDirectOutput}).
+     *
+     * @since 2.1
+     */
+    boolean _cfgDirectOutput = false;
+
+    /**
+     * Flag set once elements (or buffered content) have been added
+     * using this context, after which output mode can not be changed
+     * (see {@link #setDirectOutput}).
+     *
+     * @since 2.1
+     */
+    boolean _elementsAdded = false;
+
+    /**
+     * Configuration flag that specifies whether closed output elements
+     * are to be recycled (see {@link #setElementRecycling}).
+     *
+     * @since 2.1
+     */
+    boolean _cfgRecycleElements = false;
+
+    /**
+     * Configuration flag that specifies whether element recycling
+     * is to be verified instead of actually reusing elements
+     * (see {@link #setElementRecyclingChecks}).
+     *
+     * @since 2.1
+     */
+    boolean _cfgRecyclingChecks = false;
+
+    /**
+     * Configuration flag that specifies whether blocked content is to
+     * be buffered in compact encoded form (see
+     * {@link #setCompactBuffering}).
+     *
+     * @since 2.1
+     */
+    boolean _cfgCompactBuffering = false;
+
+    /**
+     * Number of chars of compact buffered content a single node may
+     * keep in memory before spilling it to a temporary file; 0 means
+     * content is never spilled (see {@link #setBufferSpillThreshold}).
+     *
+     * @since 2.1
+     */
+    int _cfgSpillThreshold = 0;
+
+    /**
+     * Directory in which temporary files for spilled content are
+     * created; null for the default temporary directory.
+     *
+     * @since 2.1
+     */
+    File _cfgSpillDirectory;
+
+    /**
+     * Compact content nodes that currently have temporary files for
+     * spilled content; tracked so that the files can be deleted if
+     * document is closed or abandoned without outputting all content.
+     *
+     * @since 2.1
+     */
+    ArrayList<SMOCompactContent> _spilledContent;
+
+    /*
+    //////////////////////////////////////////////////////
+    // Element recycling
+    //////////////////////////////////////////////////////
+    */
+
+    /**
+     * Maximum number of closed elements kept for reuse: since
+     * elements are usually closed and created in alternation, this
+     * need not be big.
+     */
+    final static int MAX_FREE_ELEMENTS = 16;
+
+    /**
+     * Closed elements available for reuse, if recycling enabled
+     */
+    SMOutputElement[] _freeElements;
+
+    int _freeElementCount = 0;
+
+    /*
+    //////////////////////////////////////////////////////
+    // Compact buffering
+    //////////////////////////////////////////////////////
+    */
+
+    /**
+     * Lookup table from names and namespaces used in compact buffered
+     * content to their indexes in {@link #_compactSymbols}.
+     */
+    HashMap<Object,Integer> _compactSymbolIds;
+
+    /**
+     * Names and namespaces used in compact buffered content, indexed
+     * by their ids; index 0 is reserved for null.
+     */
+    Object[] _compactSymbols;
+
+    int _compactSymbolCount = 0;
+
     /*
     //////////////////////////////////////////////////////
     // State
@@ -99,6 +216,17 @@ public final class SMOutputContext
      * this context.
      */
     HashMap<String, SMNamespace> _localNsMap = null;
+
+    /**
+     * Small direct-mapped cache of namespaces recently looked up by
+     * URI, indexed by hash code of the URI: entries only match if
+     * the URI String is the same instance, which is usually the case
+     * for literal (interned) URIs. This avoids map lookups for
+     * documents that use lots of namespaces.
+     */
+    String[] _nsCacheUris = null;
+
+    SMNamespace[] _nsCacheNs = null;
     
     /**
      * Currently active default namespace; one that is in effect within
@@ -116,6 +244,20 @@ public final class SMOutputContext
      * Number of bound namespaces in {@link _nsStack}
      */
     int _boundNsCount = 0;
+
+    /**
+     * Lookup table from prefixes of currently bound non-default
+     * namespaces to their indexes in {@link #_nsStack}, so that checks
+     * for bound prefixes need not scan the whole stack.
+     */
+    HashMap<String,Integer> _boundPrefixes = null;
+
+    /**
+     * For each entry in {@link #_nsStack}, index of the earlier binding
+     * of the same prefix it masks, if any (-1 if none): needed to
+     * restore {@link #_boundPrefixes} when namespace is unbound.
+     */
+    int[] _maskedBindings = null;
     
     /**
      * Namespace of the last START_ELEMENT output.
@@ -214,6 +356,188 @@ public final class SMOutputContext
         // Important: need to set counter to 0, starts with -1
         _indentSuppress = 0;
     }
+
+    /**
+     * Method for enabling or disabling "direct" output mode, in which
+     * all content is written straight through to the underlying stream
+     * writer: no node objects are created or linked for added content,
+     * and each container only keeps track of its currently open child
+     * element (if any), to be able to close it when more content is added.
+     * This reduces per-node overhead for documents that never use
+     * buffered containers (see {@link SMBufferable}); in direct mode any
+     * attempt to construct or add buffered containers results in an
+     * {@link IllegalStateException}.
+     *<p>
+     * Mode has to be set before any elements (or buffered content)
+     * have been added using this context.
+     *
+     * @throws IllegalStateException If mode is changed after elements
+     *   have been added
+     *
+     * @since 2.1
+     */
+    public void setDirectOutput(boolean state)
+    {
+        if (state != _cfgDirectOutput && _elementsAdded) {
+            throw new IllegalStateException("Can not change direct output mode after elements have been added");
+        }
+        _cfgDirectOutput = state;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isDirectOutput() { return _cfgDirectOutput; }
+
+    /**
+     * Method for enabling or disabling recycling of output elements.
+     * When enabled, unbuffered elements (instances of
+     * {@link SMOutputElement}, but not its sub-classes like
+     * {@link SMBufferedElement}) that have been closed are reused
+     * for elements added later on. This eliminates most element
+     * allocations for big documents with flat structure.
+     *<p>
+     * Note: when enabled, application code <b>must not</b> use or
+     * retain references to elements after they have been closed (which
+     * happens when a sibling is added after them, or a parent
+     * is closed), since the same instance may be returned for another
+     * element. Recycling checks (see {@link #setElementRecyclingChecks})
+     * can be enabled to verify that this is not done.
+     *
+     * @since 2.1
+     */
+    public void setElementRecycling(boolean state)
+    {
+        _cfgRecycleElements = state;
+        if (!state) {
+            _freeElements = null;
+            _freeElementCount = 0;
+        }
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isElementRecycling() { return _cfgRecycleElements; }
+
+    /**
+     * Method for enabling or disabling "debug mode" for element
+     * recycling: when enabled (and recycling is enabled), closed elements
+     * are not actually reused, but marked as released, so that any use
+     * of them (which would be a bug when they are reused) results in an
+     * {@link IllegalStateException}. This is useful for verifying that
+     * application code is safe to use with element recycling.
+     *
+     * @since 2.1
+     */
+    public void setElementRecyclingChecks(boolean state) {
+        _cfgRecyclingChecks = state;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isElementRecyclingChecks() { return _cfgRecyclingChecks; }
+
+    /**
+     * Method for enabling or disabling compact buffering. When enabled,
+     * content that can not be output right away (due to a buffered
+     * container, or preceding buffered sibling of an ancestor)
+     * is not kept as linked node objects (one per element, attribute,
+     * text segment or typed value), but is encoded into compact
+     * content nodes as soon as possible: this greatly reduces memory
+     * usage when lots of content gets buffered.
+     *<p>
+     * Note that this changes semantics of buffered content slightly:
+     * since encoded content can not be modified, elements are closed
+     * when a sibling is added after them (or after their ancestor),
+     * just as unbuffered elements would be; so no attributes or
+     * children can be added to them after this. Buffered containers
+     * (see {@link SMBufferable}), and elements that contain them,
+     * are never compacted.
+     *
+     * @since 2.1
+     */
+    public void setCompactBuffering(boolean state) {
+        _cfgCompactBuffering = state;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public boolean isCompactBuffering() { return _cfgCompactBuffering; }
+
+    /**
+     * Method for specifying maximum amount of compact buffered content
+     * (in chars of encoded content; see {@link #setCompactBuffering})
+     * that a single buffered sequence may keep in memory: content beyond
+     * this is spilled to a temporary file, and read back when it is
+     * output. This allows generating documents with arbitrarily
+     * big buffered (out-of-order) sections within fixed amount of memory.
+     * Temporary files are deleted once their contents have been output,
+     * or if document is closed or abandoned before that (see
+     * {@link #deleteSpillFiles}).
+     *<p>
+     * Note that spilling is only done for compact buffered content, so
+     * compact buffering needs to be enabled as well.
+     *
+     * @param maxChars Maximum number of chars to keep in memory per
+     *   buffered sequence; 0 (default) to never spill content
+     *
+     * @since 2.1
+     */
+    public void setBufferSpillThreshold(int maxChars)
+    {
+        if (maxChars < 0) {
+            throw new IllegalArgumentException("Spill threshold can not be negative (got "+maxChars+")");
+        }
+        _cfgSpillThreshold = maxChars;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public int getBufferSpillThreshold() { return _cfgSpillThreshold; }
+
+    /**
+     * Method for specifying directory in which temporary files for
+     * spilled content (see {@link #setBufferSpillThreshold}) are
+     * created; if null (default), default temporary-file directory
+     * is used.
+     *
+     * @since 2.1
+     */
+    public void setBufferSpillDirectory(File dir) {
+        _cfgSpillDirectory = dir;
+    }
+
+    /**
+     * @since 2.1
+     */
+    public File getBufferSpillDirectory() { return _cfgSpillDirectory; }
+
+    /**
+     * Method that will delete temporary files of all spilled content
+     * (see {@link #setBufferSpillThreshold}) that has not yet been
+     * output. Called automatically when the root container is closed
+     * (whether successfully or not) and when the underlying writer is
+     * closed; but should also be called by applications that abandon
+     * a document without closing it, for example after a failure.
+     * Buffered content whose spilled part has been deleted can not be
+     * output any more.
+     *
+     * @since 2.1
+     */
+    public void deleteSpillFiles()
+    {
+        if (_spilledContent != null && !_spilledContent.isEmpty()) {
+            SMOCompactContent[] nodes = _spilledContent.toArray(new SMOCompactContent[_spilledContent.size()]);
+            _spilledContent.clear();
+            for (SMOCompactContent node : nodes) {
+                node._discardSpilled();
+            }
+        }
+    }
     
     /*
     //////////////////////////////////////////////////////
@@ -306,6 +630,9 @@ public final class SMOutputContext
     public SMBufferedFragment createBufferedFragment()
         throws XMLStreamException
     {
+        if (_cfgDirectOutput) {
+            throwDirectBuffering();
+        }
         return new SMBufferedFragment(this);
     }
 
@@ -394,6 +721,140 @@ public final class SMOutputContext
         return SMOTypedValue.create(value);
     }
 
+    /**
+     * @since 2.1
+     */
+    public SMOutputtable createValue(int[] value, int offset, int len) {
+        return SMOTypedValue.create(value, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public SMOutputtable createValue(long[] value, int offset, int len) {
+        return SMOTypedValue.create(value, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public SMOutputtable createValue(float[] value, int offset, int len) {
+        return SMOTypedValue.create(value, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public SMOutputtable createValue(double[] value, int offset, int len) {
+        return SMOTypedValue.create(value, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public SMOutputtable createBinary(byte[] value, int offset, int len) {
+        return SMOTypedValue.createBinary(value, offset, len);
+    }
+
+    // // // Recyclable element instances
+
+    /**
+     * Method for constructing an output element, reusing a closed
+     * element instance if one is available.
+     *
+     * @since 2.1
+     */
+    SMOutputElement createElement(String localName, SMNamespace ns)
+    {
+        int count = _freeElementCount;
+        if (count > 0) {
+            _freeElementCount = --count;
+            SMOutputElement elem = _freeElements[count];
+            _freeElements[count] = null;
+            elem._reset(localName, ns);
+            return elem;
+        }
+        return new SMOutputElement(this, localName, ns);
+    }
+
+    /**
+     * Method called by elements that have been closed, when element
+     * recycling is enabled.
+     *
+     * @since 2.1
+     */
+    void releaseElement(SMOutputElement elem)
+    {
+        if (_cfgRecyclingChecks) {
+            elem._released = true;
+            return;
+        }
+        SMOutputElement[] free = _freeElements;
+        if (free == null) {
+            _freeElements = free = new SMOutputElement[MAX_FREE_ELEMENTS];
+        }
+        if (_freeElementCount < free.length) {
+            free[_freeElementCount++] = elem;
+        }
+    }
+
+    // // // Compact buffering
+
+    SMOCompactContent createCompactContent() {
+        return new SMOCompactContent(this);
+    }
+
+    void addSpilledContent(SMOCompactContent node)
+    {
+        if (_spilledContent == null) {
+            _spilledContent = new ArrayList<SMOCompactContent>();
+        }
+        _spilledContent.add(node);
+    }
+
+    void removeSpilledContent(SMOCompactContent node)
+    {
+        if (_spilledContent != null) {
+            _spilledContent.remove(node);
+        }
+    }
+
+    /**
+     * Method for finding id of given name or namespace in the symbol
+     * table used for compact buffered content, adding it if necessary.
+     *
+     * @since 2.1
+     */
+    int getCompactSymbolId(Object symbol)
+    {
+        if (symbol == null) {
+            return 0;
+        }
+        if (_compactSymbolIds == null) {
+            _compactSymbolIds = new HashMap<Object,Integer>();
+            _compactSymbols = new Object[32];
+            _compactSymbolCount = 1; // since 0 is for null
+        } else {
+            Integer id = _compactSymbolIds.get(symbol);
+            if (id != null) {
+                return id.intValue();
+            }
+        }
+        int id = _compactSymbolCount++;
+        if (id == _compactSymbols.length) {
+            Object[] syms = new Object[id + id];
+            System.arraycopy(_compactSymbols, 0, syms, 0, id);
+            _compactSymbols = syms;
+        }
+        _compactSymbols[id] = symbol;
+        _compactSymbolIds.put(symbol, Integer.valueOf(id));
+        return id;
+    }
+
+    Object getCompactSymbol(int id) {
+        return (id == 0) ? null : _compactSymbols[id];
+    }
+
     /*
     //////////////////////////////////////////////////////
     // Namespace handling
@@ -401,32 +862,31 @@ public final class SMOutputContext
     */
 
     public final SMNamespace getNamespace(String uri)
+    {
+        return getNamespace(uri, null);
+    }
+
+    public final SMNamespace getNamespace(String uri, String prefPrefix)
     {
         if (uri == null || uri.length() == 0) {
             return NS_EMPTY;
         }
-        if (_localNsMap != null) {
-            SMNamespace ns = (SMNamespace) _localNsMap.get(uri);
-            if (ns != null) {
-                return ns;
-            }
-        }
-        SMNamespace ns = (SMNamespace) sGlobalNsMap.get(uri);
-        if (ns == null) {
-            ns = new SMLocalNamespace(this, uri, _cfgPreferDefaultNs, null);
-            if (_localNsMap == null) {
-                _localNsMap = new HashMap<String,SMNamespace>();
-            }
-            _localNsMap.put(uri, ns);
+        int ix = uri.hashCode() & (NS_CACHE_SIZE - 1);
+        String[] cachedUris = _nsCacheUris;
+        if (cachedUris == null) {
+            _nsCacheUris = cachedUris = new String[NS_CACHE_SIZE];
+            _nsCacheNs = new SMNamespace[NS_CACHE_SIZE];
+        } else if (cachedUris[ix] == uri) {
+            return _nsCacheNs[ix];
         }
+        SMNamespace ns = _findNamespace(uri, prefPrefix);
+        cachedUris[ix] = uri;
+        _nsCacheNs[ix] = ns;
         return ns;
     }
 
-    public final SMNamespace getNamespace(String uri, String prefPrefix)
+    private SMNamespace _findNamespace(String uri, String prefPrefix)
     {
-        if (uri == null || uri.length() == 0) {
-            return NS_EMPTY;
-        }
         if (_localNsMap != null) {
             SMNamespace ns = _localNsMap.get(uri);
             if (ns != null) {
@@ -768,6 +1228,12 @@ public final class SMOutputContext
                 while (i-- > parentNsCount) {
                     SMNamespace ns = _nsStack[i];
                     _nsStack[i] = null;
+                    int masked = _maskedBindings[i];
+                    if (masked < 0) {
+                        _boundPrefixes.remove(ns.getBoundPrefix());
+                    } else {
+                        _boundPrefixes.put(ns.getBoundPrefix(), Integer.valueOf(masked));
+                    }
                     ns._unbind();
                 }
             }
@@ -837,6 +1303,44 @@ public final class SMOutputContext
         _streamWriter.writeDouble(d);
     }
 
+    /**
+     * @since 2.1
+     */
+    public void writeValue(int[] v, int offset, int len) throws XMLStreamException {
+        _streamWriter.writeIntArray(v, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public void writeValue(long[] v, int offset, int len) throws XMLStreamException {
+        _streamWriter.writeLongArray(v, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public void writeValue(float[] v, int offset, int len) throws XMLStreamException {
+        _streamWriter.writeFloatArray(v, offset, len);
+    }
+
+    /**
+     * @since 2.1
+     */
+    public void writeValue(double[] v, int offset, int len) throws XMLStreamException {
+        _streamWriter.writeDoubleArray(v, offset, len);
+    }
+
+    /**
+     * Method for writing given binary content as base64 encoded
+     * textual content (using default base64 variant).
+     *
+     * @since 2.1
+     */
+    public void writeBinary(byte[] data, int offset, int len) throws XMLStreamException {
+        _streamWriter.writeBinary(data, offset, len);
+    }
+
     /*
     //////////////////////////////////////////////////////
     // Methods for dealing with buffering and stream state
@@ -858,6 +1362,7 @@ public final class SMOutputContext
      */
     public void closeWriterCompletely() throws XMLStreamException
     {
+        deleteSpillFiles();
         _streamWriter.closeCompletely();
     }
 
@@ -878,14 +1383,8 @@ public final class SMOutputContext
 
     public boolean isPrefixBound(String prefix)
     {
-        for (int i = _boundNsCount; --i >= 0; ) {
-            SMNamespace ns = _nsStack[i];
-            if (prefix.equals(ns.getBoundPrefix())) {
-                /* Note: StaxMate never creates masking bindings, so we
-                 * know it's still active
-                 */
-                return true;
-            }
+        if (_boundNsCount > 0 && _boundPrefixes.containsKey(prefix)) {
+            return true;
         }
         /* So far so good. But perhaps it's bound in the root NamespaceContext?
          */
@@ -904,11 +1403,10 @@ public final class SMOutputContext
      */
     public boolean isPrefixBoundLocally(String prefix, int parentNsCount)
     {
-        for (int i = parentNsCount; i < _boundNsCount; ++i) {
-            SMNamespace ns = _nsStack[i];
-            if (prefix.equals(ns.getBoundPrefix())) {
-                return true;
-            }
+        if (_boundNsCount > parentNsCount) {
+            // latest binding for the prefix is the local one, if any
+            Integer ix = _boundPrefixes.get(prefix);
+            return (ix != null) && (ix.intValue() >= parentNsCount);
         }
         return false;
     }
@@ -964,12 +1462,20 @@ public final class SMOutputContext
         SMNamespace[] stack = _nsStack;
         if (stack == null) {
             _nsStack = stack = new SMNamespace[DEF_NS_STACK_SIZE];
+            _maskedBindings = new int[DEF_NS_STACK_SIZE];
+            _boundPrefixes = new HashMap<String,Integer>();
         } else if (_boundNsCount >= stack.length) {
             _nsStack = new SMNamespace[stack.length * 2];
             System.arraycopy(stack, 0, _nsStack, 0, stack.length);
             stack = _nsStack;
+            int[] masked = new int[stack.length];
+            System.arraycopy(_maskedBindings, 0, masked, 0, _boundNsCount);
+            _maskedBindings = masked;
         }
-        stack[_boundNsCount++] = ns;
+        int ix = _boundNsCount++;
+        stack[ix] = ns;
+        Integer prev = _boundPrefixes.put(prefix, Integer.valueOf(ix));
+        _maskedBindings[ix] = (prev == null) ? -1 : prev.intValue();
 
         // And then write it out
         ns._bindAs(prefix);
@@ -990,4 +1496,13 @@ public final class SMOutputContext
             _streamWriter.writeRaw(ind);
         }
     }
+
+    /**
+     * Method called when buffered containers are used in direct
+     * output mode, which is not allowed.
+     */
+    void throwDirectBuffering()
+    {
+        throw new IllegalStateException("Buffered containers can not be used in direct output mode");
+    }
 }
@@ -27,7 +27,7 @@ public class SMOutputElement
      * Local name of the element, name without preceding prefix or colon
      * (in namespace mode). In non-namespace mode fully-qualified name.
      */
-    protected final String _localName;
+    protected String _localName;
 
     /**
      * Namespace of this element.
@@ -35,7 +35,17 @@ public class SMOutputElement
      * Note: can never be null -- event the default (empty) namespace
      * is presented by a global shared namespace instance.
      */
-    protected final SMNamespace _namespace;
+    protected SMNamespace _namespace;
+
+    /**
+     * Flag set when element has been closed and released for recycling,
+     * when recycling checks are enabled (see
+     * {@link SMOutputContext#setElementRecyclingChecks}): such elements
+     * are never reused, and any further use of them is reported as an error.
+     *
+     * @since 2.1
+     */
+    protected boolean _released;
 
     /*
     /////////////////////////////////////////////
@@ -84,6 +94,25 @@ public class SMOutputElement
         _namespace = ns;
     }
 
+    /**
+     * Method called by {@link SMOutputContext} when a closed element
+     * instance is recycled, to make it look like a newly constructed one.
+     *
+     * @since 2.1
+     */
+    protected void _reset(String localName, SMNamespace ns)
+    {
+        _next = null;
+        _parent = null;
+        _firstChild = null;
+        _lastChild = null;
+        _localName = localName;
+        _namespace = ns;
+        _outputState = OUTPUT_NONE;
+        _parentDefaultNs = null;
+        _parentNsCount = 0;
+    }
+
     public void linkParent(SMOutputContainer parent, boolean blocked)
         throws XMLStreamException
     {
@@ -106,6 +135,9 @@ public class SMOutputElement
      * Method that can be used to get the local name of this element
      */
     public String getLocalName() {
+        if (_released) {
+            _throwClosed();
+        }
         return _localName;
     }
     
@@ -119,6 +151,9 @@ public class SMOutputElement
      * @return Namespace of this element.
      */
     public SMNamespace getNamespace() {
+        if (_released) {
+            _throwClosed();
+        }
         return _namespace;
     }
 
@@ -343,9 +378,53 @@ public class SMOutputElement
         if (_firstChild == null) { // no children -> ok
             return true;
         }
+        if (_context._cfgDirectOutput) { // only open child element to close
+            _closeDirectChild();
+            return true;
+        }
         return _closeAndOutputChildren();
     }
 
+    /**
+     * Plain elements can be compacted if they have not yet been output
+     * (output is blocked), and neither they nor any of their
+     * descendants are buffered (buffered ones may still be modified and
+     * released later on).
+     */
+    @Override
+    protected boolean _canCompact()
+    {
+        if (_outputState != OUTPUT_NONE || getClass() != SMOutputElement.class) {
+            return false;
+        }
+        for (SMOutputtable child = _firstChild; child != null; child = child._next) {
+            if (!child._canCompact()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compacting an element also closes it, similar to how it would
+     * get closed if it was not buffered: this because its contents
+     * can not be modified after being encoded.
+     */
+    @Override
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        dst.appendStartElement(_namespace, _localName);
+        SMOutputtable child = _firstChild;
+        _firstChild = null;
+        _lastChild = null;
+        _outputState = OUTPUT_CLOSED;
+        for (; child != null; child = child._next) {
+            child._compact(dst);
+        }
+        dst.appendEndElement();
+    }
+
     @Override
     public void getPath(StringBuilder sb)
     {
@@ -393,11 +472,53 @@ public class SMOutputElement
         _parentDefaultNs = ctxt.writeStartElement(_namespace, _localName);
     }
 
+    /**
+     * Method called in direct output mode to close this element, along
+     * with its open child element, if any.
+     *
+     * @since 2.1
+     */
+    protected final void _closeDirect()
+        throws XMLStreamException
+    {
+        if (_firstChild != null) {
+            _closeDirectChild();
+        }
+        doWriteEndElement();
+    }
+
     protected void doWriteEndElement()
         throws XMLStreamException
     {
         _outputState = OUTPUT_CLOSED;
-        _context.writeEndElement(_parentNsCount, _parentDefaultNs);
+        final SMOutputContext ctxt = _context;
+        ctxt.writeEndElement(_parentNsCount, _parentDefaultNs);
+        // Only plain unbuffered elements are recycled
+        if (ctxt._cfgRecycleElements && getClass() == SMOutputElement.class) {
+            ctxt.releaseElement(this);
+        }
+    }
+
+    @Override
+    protected void _throwClosed()
+    {
+        if (_released) {
+            _throwReleased();
+        }
+        super._throwClosed();
+    }
+
+    /**
+     * Method for indicating that an element that has been released for
+     * recycling is still being used, which means that application
+     * has retained a reference to it after it was closed.
+     *
+     * @since 2.1
+     */
+    protected void _throwReleased()
+    {
+        throw new IllegalStateException("Illegal call for element (path = '"+getPath()
+                                        +"') that was closed and released for recycling: reference to it retained after it was closed?");
     }
 
     /**
@@ -406,6 +527,9 @@ public class SMOutputElement
      */
     protected void _throwClosedForAttrs()
     {
+        if (_released) {
+            _throwReleased();
+        }
         String desc = (_outputState == OUTPUT_CLOSED) ?
             "ELEMENT-CLOSED" : "CHILDREN-ADDED";
         throw new IllegalStateException
@@ -415,6 +539,9 @@ public class SMOutputElement
 
     protected void _throwClosedForNsDecls()
     {
+        if (_released) {
+            _throwReleased();
+        }
         String desc = (_outputState == OUTPUT_CLOSED) ?
             "ELEMENT-CLOSED" : "CHILDREN-ADDED";
         throw new IllegalStateException
@@ -75,4 +75,34 @@ public abstract class SMOutputtable
      */
     protected abstract void _forceOutput(SMOutputContext ctxt)
         throws XMLStreamException;
+
+    /*
+    /////////////////////////////////////////////////////
+    // Compact buffering
+    /////////////////////////////////////////////////////
+     */
+
+    /**
+     * Method called when compact buffering is enabled (see
+     * {@link SMOutputContext#setCompactBuffering}), to check whether
+     * this node (and its contents, if any) could be encoded into
+     * a compact content node using {@link #_compact}.
+     *
+     * @since 2.1
+     */
+    protected boolean _canCompact() {
+        return false;
+    }
+
+    /**
+     * Method called to encode this node into given compact content
+     * node; only called if {@link #_canCompact} returned true.
+     *
+     * @since 2.1
+     */
+    protected void _compact(SMOCompactContent dst)
+        throws XMLStreamException
+    {
+        throw new IllegalStateException("Instances of "+getClass()+" can not be compacted");
+    }
 }
@@ -80,7 +80,14 @@ public class SMRootFragment
         if (!_active) {
             throwIfClosed();
         }
-        return (_firstChild == null) || _closeAndOutputChildren();
+        if (_firstChild == null) {
+            return true;
+        }
+        if (_context._cfgDirectOutput) { // only open child element to close
+            _closeDirectChild();
+            return true;
+        }
+        return _closeAndOutputChildren();
     }
 
     public void getPath(StringBuilder sb)
@@ -112,10 +119,15 @@ public class SMRootFragment
         if (!_active) {
             return;
         }
-        // Let's first try to close them nicely:
-        if (!_output(_context, true)) {
-            // but if that doesn't work, should just unbuffer all children...
-            _forceOutput(_context);
+        try {
+            // Let's first try to close them nicely:
+            if (!_output(_context, true)) {
+                // but if that doesn't work, should just unbuffer all children...
+                _forceOutput(_context);
+            }
+        } finally {
+            // no content can be output after this, even if we failed
+            _context.deleteSpillFiles();
         }
         // Either way, we are now closed:
         _active = false;
@@ -0,0 +1,64 @@
+package org.codehaus.staxmate.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Simple {@link InputStream} implementation that reads contents of
+ * a {@link ByteBuffer}: mostly useful for direct (off-heap) buffers,
+ * since contents of heap buffers can be accessed as byte arrays.
+ * Stream reads from a duplicate of the buffer passed in, so position
+ * of the original buffer is not modified.
+ *
+ * @since 2.1
+ */
+public final class ByteBufferInputStream
+    extends InputStream
+{
+    private final ByteBuffer _buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer)
+    {
+        _buffer = buffer.duplicate();
+    }
+
+    @Override
+    public int read()
+    {
+        if (!_buffer.hasRemaining()) {
+            return -1;
+        }
+        return _buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0) {
+            return 0;
+        }
+        int left = _buffer.remaining();
+        if (left == 0) {
+            return -1;
+        }
+        len = Math.min(len, left);
+        _buffer.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+        if (n <= 0L) {
+            return 0L;
+        }
+        int count = (int) Math.min(n, (long) _buffer.remaining());
+        _buffer.position(_buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return _buffer.remaining();
+    }
+}
@@ -0,0 +1,164 @@
+package org.codehaus.staxmate.util;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link InputStream} implementation that reads contents of a file
+ * by memory-mapping it (using {@link FileChannel#map}), instead of
+ * using read system calls and intermediate buffering. Files are mapped
+ * in chunks of limited size, since a single mapped buffer can not
+ * exceed 2 GB; this also limits the amount of address space used at
+ * any given time.
+ *<p>
+ * Note that JDK does not allow explicit unmapping of buffers: mapped
+ * chunks are released when they are garbage collected.
+ *
+ * @since 2.1
+ */
+public final class MappedFileInputStream
+    extends InputStream
+{
+    /**
+     * Default size of chunks mapped: 64 megabytes
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile _file;
+
+    private final FileChannel _channel;
+
+    private final long _length;
+
+    private final int _chunkSize;
+
+    /**
+     * Currently mapped chunk, if any
+     */
+    private MappedByteBuffer _chunk;
+
+    /**
+     * File offset of the start of {@link #_chunk} if one is mapped;
+     * otherwise offset of the next byte to read
+     */
+    private long _chunkStart;
+
+    public MappedFileInputStream(File f)
+        throws IOException
+    {
+        this(f, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedFileInputStream(File f, int chunkSize)
+        throws IOException
+    {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive (got "+chunkSize+")");
+        }
+        _file = new RandomAccessFile(f, "r");
+        _channel = _file.getChannel();
+        _length = _channel.size();
+        _chunkSize = chunkSize;
+    }
+
+    /*
+    /**********************************************************************
+    /* InputStream implementation
+    /**********************************************************************
+     */
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        if (!_ensureData()) {
+            return -1;
+        }
+        return _chunk.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        if (len == 0) {
+            return 0;
+        }
+        if (!_ensureData()) {
+            return -1;
+        }
+        len = Math.min(len, _chunk.remaining());
+        _chunk.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n)
+        throws IOException
+    {
+        if (n <= 0L) {
+            return 0L;
+        }
+        long pos = _position();
+        long newPos = Math.min(_length, pos + n);
+        if (_chunk != null && (newPos - _chunkStart) < _chunk.limit()) {
+            _chunk.position((int) (newPos - _chunkStart));
+        } else {
+            _chunk = null;
+            _chunkStart = newPos;
+        }
+        return newPos - pos;
+    }
+
+    @Override
+    public int available()
+    {
+        return (int) Math.min(Integer.MAX_VALUE, _length - _position());
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        _chunk = null;
+        // also closes the channel
+        _file.close();
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    private long _position()
+    {
+        return (_chunk == null) ? _chunkStart : (_chunkStart + _chunk.position());
+    }
+
+    /**
+     * Method called to ensure that there is at least one byte available
+     * in the current chunk, mapping the next chunk if necessary.
+     *
+     * @return True if there is more data; false if end of file has been
+     *   reached
+     */
+    private boolean _ensureData()
+        throws IOException
+    {
+        if (_chunk != null) {
+            if (_chunk.hasRemaining()) {
+                return true;
+            }
+            _chunkStart += _chunk.limit();
+            _chunk = null;
+        }
+        long left = _length - _chunkStart;
+        if (left <= 0L) {
+            return false;
+        }
+        _chunk = _channel.map(FileChannel.MapMode.READ_ONLY, _chunkStart, Math.min(left, (long) _chunkSize));
+        return true;
+    }
+}
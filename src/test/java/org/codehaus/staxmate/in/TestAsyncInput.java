@@ -0,0 +1,323 @@
+package org.codehaus.staxmate.in;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.Executor;
+
+import javax.xml.stream.*;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * Unit tests for verifying that cursors work as expected with
+ * non-blocking (async) parsers: that is, that iteration (including
+ * skipping of sub-trees) can be suspended at any point when parser
+ * runs out of input, and resumed after more input is fed.
+ */
+public class TestAsyncInput
+    extends ReaderTestBase
+{
+    final static String XML = "<root>"
+        +"<a>x<skip><deep>1<deeper>2</deeper></deep></skip>y</a>"
+        +"<f><g><h/></g>z</f>"
+        +"<b><c/><c>y<i/></c><c/></b>"
+        +"<e><e1>t<e2/></e1><e3>u</e3></e>"
+        +"<d/></root>";
+
+    final static String EXP = "[root][a]xy[f][b][c][e]S:e1 S:e3 T:u E:e3 [d]";
+
+    public void testBlocking()
+        throws Exception
+    {
+        XMLStreamReader sr = getStaxInputFactory().createXMLStreamReader(new StringReader(XML));
+        assertEquals(EXP, _traverse(SMInputFactory.rootElementCursor(sr), null));
+    }
+
+    public void testSuspendAndResume()
+        throws Exception
+    {
+        // fake async input: each "byte" fed allows one event to be read
+        for (int chunk : new int[] { 1, 2, 3, 5, 1000 }) {
+            XMLStreamReader sr = getStaxInputFactory().createXMLStreamReader(new StringReader(XML));
+            FakeAsyncInput input = new FakeAsyncInput(new CreditReader(sr));
+            Feeder feeder = new Feeder(input, new byte[200], chunk);
+            assertEquals(EXP, _traverse(SMInputFactory.rootElementCursor(input), feeder));
+            assertTrue(feeder.feeds > 0);
+        }
+    }
+
+    public void testNonAsyncFactory()
+        throws Exception
+    {
+        SMAsyncInput input;
+        try {
+            input = getInputFactory().createAsyncInput();
+        } catch (XMLStreamException e) {
+            assertException(e, "does not support non-blocking");
+            return;
+        }
+        // Stax implementation supports async parsing; if so, let's verify it
+        byte[] data = XML.getBytes("UTF-8");
+        Feeder feeder = new Feeder(input, data, 7);
+        assertEquals(EXP, _traverse(SMInputFactory.rootElementCursor(input), feeder));
+    }
+
+    /*
+    /**********************************************************************
+    /* Tests for methods that can not be suspended: these must fail,
+    /* instead of looping forever, if they run out of input
+    /**********************************************************************
+     */
+
+    public void testIncompleteCollectText()
+        throws Exception
+    {
+        try {
+            _incompleteCursor().collectDescendantText(false);
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "collectDescendantText");
+        }
+    }
+
+    public void testIncompleteCollectTextToBuffer()
+        throws Exception
+    {
+        try {
+            _incompleteCursor().collectDescendantText(new SMTextBuffer(), true);
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "collectDescendantText");
+        }
+    }
+
+    public void testIncompleteProcessText()
+        throws Exception
+    {
+        try {
+            _incompleteCursor().processDescendantText(new StringWriter(), false);
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "processDescendantText");
+        }
+    }
+
+    public void testIncompleteDispatcher()
+        throws Exception
+    {
+        SMElementDispatcher disp = new SMElementDispatcher()
+            .setDefaultHandler(new SMElementHandler() {
+                    public void handleElement(SMInputCursor crsr) { }
+                });
+        try {
+            disp.processChildren(_incompleteCursor());
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "SMElementDispatcher");
+        }
+    }
+
+    public void testIncompletePathMatcher()
+        throws Exception
+    {
+        SMPathMatcher m = new SMPathMatcher()
+            .addPath("/a/skip", new SMPathHandler() {
+                    public void pathMatched(String path, String value, SMInputCursor crsr) { }
+                });
+        try {
+            m.process(_incompleteCursor().descendantCursor());
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "SMPathMatcher");
+        }
+    }
+
+    public void testIncompleteSplitter()
+        throws Exception
+    {
+        Executor direct = new Executor() {
+                public void execute(Runnable r) { r.run(); }
+            };
+        SMRecordSplitter splitter = new SMRecordSplitter(direct, new SMRecordHandler() {
+                public void handleRecord(SMInputCursor crsr, int index) { }
+            });
+        try {
+            splitter.process(_incompleteCursor());
+            fail("Expected exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "SMRecordSplitter");
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    /**
+     * @return Cursor that points to the first child element of the
+     *   root element of {@link #XML}, with no more input available
+     */
+    private SMInputCursor _incompleteCursor()
+        throws XMLStreamException
+    {
+        XMLStreamReader sr = getStaxInputFactory().createXMLStreamReader(new StringReader(XML));
+        FakeAsyncInput input = new FakeAsyncInput(new CreditReader(sr));
+        // one event at a time, so that there is nothing left over
+        Feeder feeder = new Feeder(input, new byte[200], 1);
+        SMInputCursor rootc = SMInputFactory.rootElementCursor(input);
+        assertToken(SMEvent.START_ELEMENT, _next(rootc, feeder));
+        SMInputCursor crsr = rootc.childElementCursor();
+        assertToken(SMEvent.START_ELEMENT, _next(crsr, feeder));
+        assertTrue(input.needMoreInput());
+        return crsr;
+    }
+
+    private String _traverse(SMInputCursor rootc, Feeder feeder)
+        throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+        assertToken(SMEvent.START_ELEMENT, _next(rootc, feeder));
+        sb.append('[').append(rootc.getLocalName()).append(']');
+        SMInputCursor crsr = rootc.childElementCursor();
+        while (_next(crsr, feeder) != null) {
+            String name = crsr.getLocalName();
+            sb.append('[').append(name).append(']');
+            if ("a".equals(name)) { // nested element skipped by filter
+                SMInputCursor textc = crsr.childCursor(SMFilterFactory.getTextOnlyFilter());
+                while (_next(textc, feeder) != null) {
+                    sb.append(textc.getText());
+                }
+            } else if ("b".equals(name)) { // child cursor left unfinished
+                SMInputCursor childc = crsr.childElementCursor();
+                assertToken(SMEvent.START_ELEMENT, _next(childc, feeder));
+                sb.append('[').append(childc.getLocalName()).append(']');
+            } else if ("e".equals(name)) { // explicit skipping
+                SMInputCursor descc = crsr.descendantCursor();
+                SMEvent evt;
+                while ((evt = _next(descc, feeder)) != null) {
+                    if (evt == SMEvent.START_ELEMENT) {
+                        sb.append("S:").append(descc.getLocalName());
+                        if ("e1".equals(descc.getLocalName())) {
+                            ((SMFlatteningCursor) descc).skipElement();
+                        }
+                    } else if (evt == SMEvent.END_ELEMENT) {
+                        sb.append("E:").append(descc.getLocalName());
+                    } else {
+                        sb.append("T:").append(descc.getText());
+                    }
+                    sb.append(' ');
+                }
+            }
+            // and "f" is skipped without child cursor
+        }
+        assertNull(_next(rootc, feeder));
+        return sb.toString();
+    }
+
+    private SMEvent _next(SMInputCursor crsr, Feeder feeder)
+        throws XMLStreamException
+    {
+        SMEvent evt;
+        while ((evt = crsr.getNext()) == SMEvent.INCOMPLETE) {
+            assertNotNull(feeder);
+            feeder.feed();
+        }
+        return evt;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    final static class Feeder
+    {
+        final SMAsyncInput _input;
+        final byte[] _data;
+        final int _chunk;
+        int _offset = 0;
+        int feeds = 0;
+
+        public Feeder(SMAsyncInput input, byte[] data, int chunk)
+        {
+            _input = input;
+            _data = data;
+            _chunk = chunk;
+        }
+
+        public void feed() throws XMLStreamException
+        {
+            assertTrue(_input.needMoreInput());
+            ++feeds;
+            int len = Math.min(_chunk, _data.length - _offset);
+            if (len == 0) {
+                _input.endOfInput();
+            } else {
+                _input.feedInput(_data, _offset, len);
+                _offset += len;
+            }
+        }
+    }
+
+    /**
+     * Stream reader that simulates a non-blocking parser, by only
+     * allowing as many events to be read as it has been given
+     * "credits" for.
+     */
+    final static class CreditReader
+        extends StreamReaderDelegate
+    {
+        int _credits = 0;
+        boolean _endOfInput = false;
+        boolean _incomplete = true;
+
+        public CreditReader(XMLStreamReader sr) {
+            super(sr);
+        }
+
+        @Override
+        public int next() throws XMLStreamException
+        {
+            if (_credits == 0 && !_endOfInput) {
+                _incomplete = true;
+                return SMAsyncInput.EVENT_INCOMPLETE;
+            }
+            _incomplete = false;
+            --_credits;
+            return super.next();
+        }
+
+        @Override
+        public int getEventType() {
+            return _incomplete ? SMAsyncInput.EVENT_INCOMPLETE : super.getEventType();
+        }
+    }
+
+    final static class FakeAsyncInput
+        extends SMAsyncInput
+    {
+        final CreditReader _reader;
+
+        public FakeAsyncInput(CreditReader r)
+        {
+            super(r);
+            _reader = r;
+        }
+
+        public boolean needMoreInput() {
+            return (_reader._credits == 0) && !_reader._endOfInput;
+        }
+
+        public void feedInput(byte[] data, int offset, int len) {
+            _reader._credits += len;
+        }
+
+        public void endOfInput() {
+            _reader._endOfInput = true;
+        }
+    }
+}
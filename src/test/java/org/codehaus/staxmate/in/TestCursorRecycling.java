@@ -0,0 +1,98 @@
+package org.codehaus.staxmate.in;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that optional recycling of child cursors
+ * (see {@link SMInputContext#setCursorRecycling}) works as expected.
+ */
+public class TestCursorRecycling
+    extends ReaderTestBase
+{
+    final static String XML =
+        "<root>"
+        +"<record id='1'><a>x</a><b>1</b></record>"
+        +"<record id='2'><a>y<i>!</i></a><b>2</b></record>"
+        +"<record id='3'><a>z</a><b>3</b></record>"
+        +"</root>";
+
+    public void testDefaultNoRecycling()
+        throws XMLStreamException
+    {
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new java.io.StringReader(XML)).advance();
+        assertFalse(rootc.getContext().isCursorRecycling());
+        SMInputCursor recc = rootc.childElementCursor();
+        assertNotNull(recc.getNext());
+        SMInputCursor fields1 = recc.childElementCursor();
+        assertNotNull(recc.getNext());
+        SMInputCursor fields2 = recc.childElementCursor();
+        assertNotSame(fields1, fields2);
+        // closed cursors must stay closed
+        assertNull(fields1.getNext());
+    }
+
+    public void testChildCursorRecycling()
+        throws XMLStreamException
+    {
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new java.io.StringReader(XML)).advance();
+        rootc.getContext().setCursorRecycling(true);
+        SMInputCursor recc = rootc.childElementCursor();
+        SMInputCursor prevFields = null;
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+
+        while (recc.getNext() != null) {
+            ++count;
+            assertEquals(String.valueOf(count), recc.getAttrValue("id"));
+            SMInputCursor fields = recc.childElementCursor();
+            // first one is new, but after that should get the same one
+            if (prevFields != null) {
+                assertSame(prevFields, fields);
+            }
+            // recycled cursor must look like a new one
+            assertNull(fields.getCurrEvent());
+            assertEquals(0, fields.getNodeCount());
+            assertEquals(0, fields.getElementCount());
+            assertEquals(2, fields.getParentCount());
+            assertNull(fields.getData());
+            fields.setData("data");
+
+            assertEquals(SMEvent.START_ELEMENT, fields.getNext());
+            assertElem(fields, null, "a");
+            sb.append(fields.collectDescendantText(false));
+            assertEquals(SMEvent.START_ELEMENT, fields.getNext());
+            assertElem(fields, null, "b");
+            assertEquals(count, fields.getElemIntValue());
+            // Let's not read the end, parent has to skip
+            prevFields = fields;
+        }
+        assertEquals(3, count);
+        assertEquals("xy!z", sb.toString());
+        assertNull(rootc.getNext());
+    }
+
+    public void testDescendantCursorRecycling()
+        throws XMLStreamException
+    {
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new java.io.StringReader(XML)).advance();
+        rootc.getContext().setCursorRecycling(true);
+        SMInputCursor recc = rootc.childElementCursor();
+        SMInputCursor prevDesc = null;
+        int count = 0;
+
+        while (recc.getNext() != null) {
+            SMInputCursor desc = recc.descendantElementCursor();
+            if (prevDesc != null) {
+                assertSame(prevDesc, desc);
+            }
+            while (desc.getNext() != null) {
+                if (desc.getCurrEvent() == SMEvent.START_ELEMENT) {
+                    ++count;
+                }
+            }
+            prevDesc = desc;
+        }
+        // 2 children for each record, plus one grandchild
+        assertEquals(7, count);
+    }
+}
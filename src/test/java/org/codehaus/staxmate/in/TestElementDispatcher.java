@@ -0,0 +1,101 @@
+package org.codehaus.staxmate.in;
+
+import java.io.StringReader;
+import java.util.*;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for {@link SMElementDispatcher} (and underlying
+ * name index)
+ */
+public class TestElementDispatcher
+    extends ReaderTestBase
+{
+    final static String NS = "http://ns";
+
+    final static String XML =
+        "<root xmlns:x='"+NS+"'>"
+        +"<record><a>1</a><x:a>2</x:a><b>3</b><c>4</c></record>"
+        +"<record><b>5</b><a>6</a><x:a>7</x:a></record>"
+        +"</root>";
+
+    public void testNameIndex()
+    {
+        ArrayList<QName> names = new ArrayList<QName>();
+        for (int i = 0; i < 40; ++i) {
+            names.add(new QName("name"+i));
+            names.add(new QName(NS, "name"+i));
+        }
+        NameIndex index = new NameIndex(names);
+        assertEquals(80, index.size());
+        for (int i = 0; i < 40; ++i) {
+            String ln = "name"+i;
+            // identity comparisons require interned Strings
+            assertEquals(2*i, index.find(null, ln.intern(), true));
+            assertEquals(2*i, index.find("", ln.intern(), true));
+            assertEquals(2*i+1, index.find(NS, ln.intern(), true));
+            // but can also compare non-interned ones
+            assertEquals(2*i, index.find(null, new String(ln), false));
+            assertEquals(2*i+1, index.find(new String(NS), new String(ln), false));
+        }
+        assertEquals(-1, index.find(null, "name40", true));
+        assertEquals(-1, index.find("urn:other", "name1", false));
+    }
+
+    public void testDispatchChildren()
+        throws XMLStreamException
+    {
+        final StringBuilder sb = new StringBuilder();
+        SMElementDispatcher disp = new SMElementDispatcher()
+            .addHandler("a", new Appender("a", sb))
+            .addHandler(new QName(NS, "a"), new Appender("xa", sb))
+            .addHandler("b", new Appender("b", sb));
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor recc = rootc.childElementCursor();
+        int count = 0;
+        while (recc.getNext() != null) {
+            count += disp.processChildren(recc);
+            sb.append('|');
+        }
+        assertEquals(6, count);
+        assertEquals("a1xa2b3|b5a6xa7|", sb.toString());
+    }
+
+    public void testDefaultHandler()
+        throws XMLStreamException
+    {
+        final StringBuilder sb = new StringBuilder();
+        SMElementDispatcher disp = new SMElementDispatcher()
+            .addHandler("c", new Appender("c", sb))
+            .setDefaultHandler(new Appender("?", sb));
+        // also: later registrations replace earlier ones
+        disp.addHandler("c", new Appender("C", sb));
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor recc = rootc.childElementCursor().advance();
+        SMInputCursor fields = recc.childElementCursor();
+        int count = 0;
+        while (fields.getNext() != null) {
+            assertTrue(disp.dispatch(fields));
+            ++count;
+        }
+        assertEquals(4, count);
+        assertEquals("?1?2?3C4", sb.toString());
+    }
+
+    final static class Appender implements SMElementHandler
+    {
+        final String _id;
+        final StringBuilder _sb;
+
+        public Appender(String id, StringBuilder sb) {
+            _id = id;
+            _sb = sb;
+        }
+
+        public void handleElement(SMInputCursor crsr) throws XMLStreamException {
+            _sb.append(_id).append(crsr.getElemStringValue());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.codehaus.staxmate.in;
+
+import java.io.*;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.codehaus.stax2.XMLStreamReader2;
+
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * Unit tests for verifying that capturing elements into
+ * {@link SMEventBuffer}s, and replaying them, works as expected.
+ */
+public class TestEventBuffer
+    extends ReaderTestBase
+{
+    public void testMultiPass()
+        throws Exception
+    {
+        String XML = "<root><rec id='1' type='a'><name>abc</name><value>1 2 3</value></rec>"
+            +"<rec id='2' type='b'><name>def</name><value>4</value></rec><last /></root>";
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor();
+        assertNotNull(crsr.getNext());
+        SMEventBuffer buffer = crsr.captureElement();
+        // 3 start elements, 3 end elements, 2 text events
+        assertEquals(8, buffer.size());
+
+        // live cursor must be able to continue normally
+        assertNotNull(crsr.getNext());
+        assertEquals(2, crsr.getAttrIntValue("id"));
+        assertNotNull(crsr.getNext());
+        assertEquals("last", crsr.getLocalName());
+        assertNull(crsr.getNext());
+
+        // and buffered content can be traversed multiple times
+        for (int i = 0; i < 3; ++i) {
+            SMInputCursor bc = SMInputFactory.rootElementCursor(buffer).advance();
+            assertElem(bc, null, "rec");
+            assertEquals(1, bc.getAttrIntValue("id"));
+            assertEquals("a", bc.getAttrValue("type"));
+            assertTrue(bc.getContext().namesInterned());
+            SMInputCursor child = bc.childElementCursor();
+            assertNotNull(child.getNext());
+            assertTrue(child.hasLocalName("name"));
+            assertEquals("abc", child.getElemStringValue());
+            assertNotNull(child.getNext());
+            int[] values = new int[5];
+            assertEquals(3, child.readElemIntArray(values, 0, values.length));
+            assertEquals(3, values[2]);
+            assertNull(child.getNext());
+            assertNull(bc.getNext());
+        }
+
+        // including with flattening cursors
+        SMInputCursor fc = SMInputFactory.flatteningCursor(buffer.createReader(), null);
+        StringBuilder sb = new StringBuilder();
+        while (fc.getNext() != null) {
+            if (fc.getCurrEvent() == SMEvent.START_ELEMENT) {
+                sb.append('<').append(fc.getLocalName()).append('>');
+            } else if (fc.getCurrEvent() == SMEvent.TEXT) {
+                sb.append(fc.getText());
+            } else if (fc.getCurrEvent() == SMEvent.END_ELEMENT) {
+                sb.append("</").append(fc.getLocalName()).append('>');
+            }
+        }
+        assertEquals("<rec><name>abc</name><value>1 2 3</value></rec>", sb.toString());
+    }
+
+    public void testReuse()
+        throws Exception
+    {
+        String XML = "<root><a x='1'>text</a><b y='2' /></root>";
+        SMInputCursor crsr = getInputFactory().rootElementCursor(new StringReader(XML)).advance()
+            .childElementCursor();
+        SMEventBuffer buffer = new SMEventBuffer();
+        assertNotNull(crsr.getNext());
+        crsr.captureElement(buffer);
+        assertEquals(3, buffer.size());
+        buffer.reset();
+        assertEquals(0, buffer.size());
+        assertNotNull(crsr.getNext());
+        assertSame(buffer, crsr.captureElement(buffer));
+        assertEquals(2, buffer.size());
+
+        SMInputCursor bc = SMInputFactory.rootElementCursor(buffer).advance();
+        assertElem(bc, null, "b");
+        assertEquals(2, bc.getAttrIntValue("y"));
+        assertNull(bc.getAttrValue("x"));
+        assertNull(bc.getNext());
+    }
+
+    /**
+     * Test for verifying that event buffers replay contents faithfully
+     */
+    public void testEventBufferReplay()
+        throws Exception
+    {
+        String XML = "<root xmlns='urn:a'><leaf xmlns:b='urn:b' b:attr='1' attr2='x'>"
+            +"text<!--comment--><?target data?><b:child /><![CDATA[cdata]]></leaf></root>";
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+        SMEventBuffer buffer = crsr.captureElement();
+        assertToken(SMEvent.END_ELEMENT, crsr.getCurrEvent());
+        assertNull(crsr.getNext());
+
+        XMLStreamReader2 r = buffer.createReader();
+        assertTokenType(XMLStreamConstants.START_DOCUMENT, r);
+        assertTokenType(XMLStreamConstants.START_ELEMENT, r.next());
+        assertElem(r, "urn:a", "leaf");
+        assertEquals(1, r.getNamespaceCount());
+        assertEquals("b", r.getNamespacePrefix(0));
+        assertEquals("urn:b", r.getNamespaceContext().getNamespaceURI("b"));
+        assertEquals(2, r.getAttributeCount());
+        assertEquals("1", r.getAttributeValue("urn:b", "attr"));
+        assertEquals("x", r.getAttributeValue(null, "attr2"));
+        assertEquals(new QName("urn:b", "attr", "b"), r.getAttributeName(0));
+
+        assertTokenType(XMLStreamConstants.CHARACTERS, r.next());
+        assertEquals("text", r.getText());
+        assertTokenType(XMLStreamConstants.COMMENT, r.next());
+        assertEquals("comment", r.getText());
+        assertTokenType(XMLStreamConstants.PROCESSING_INSTRUCTION, r.next());
+        assertEquals("target", r.getPITarget());
+        assertEquals("data", r.getPIData());
+        assertTokenType(XMLStreamConstants.START_ELEMENT, r.next());
+        assertElem(r, "urn:b", "child");
+        assertEquals(2, r.getDepth());
+        assertTokenType(XMLStreamConstants.END_ELEMENT, r.next());
+        assertElem(r, "urn:b", "child");
+        // some parsers (like sjsxp) report CDATA sections as CHARACTERS
+        int type = r.next();
+        assertTrue(type == XMLStreamConstants.CDATA || type == XMLStreamConstants.CHARACTERS);
+        assertEquals("cdata", new String(r.getTextCharacters(), r.getTextStart(), r.getTextLength()));
+        assertTokenType(XMLStreamConstants.END_ELEMENT, r.next());
+        assertElem(r, "urn:a", "leaf");
+        assertNull(r.getNamespaceContext().getNamespaceURI("c"));
+        assertTokenType(XMLStreamConstants.END_DOCUMENT, r.next());
+        assertFalse(r.hasNext());
+    }
+
+    /**
+     * Test for verifying that names are interned when captured from
+     * a reader that does not intern them.
+     */
+    public void testNonInternedNames()
+        throws Exception
+    {
+        String XML = "<root><leaf attr='1'>text</leaf></root>";
+        XMLStreamReader sr = new StreamReaderDelegate(getStaxInputFactory().createXMLStreamReader(new StringReader(XML))) {
+            public String getLocalName() {
+                return new String(super.getLocalName());
+            }
+            public String getAttributeLocalName(int index) {
+                return new String(super.getAttributeLocalName(index));
+            }
+        };
+        assertTokenType(XMLStreamConstants.START_ELEMENT, sr.next());
+        SMEventBuffer buffer = new SMEventBuffer();
+        buffer.captureElement(sr);
+
+        XMLStreamReader2 r = buffer.createReader();
+        assertTokenType(XMLStreamConstants.START_ELEMENT, r.next());
+        assertSame("root", r.getLocalName());
+        assertTokenType(XMLStreamConstants.START_ELEMENT, r.next());
+        assertSame("leaf", r.getLocalName());
+        assertSame("attr", r.getAttributeLocalName(0));
+    }
+}
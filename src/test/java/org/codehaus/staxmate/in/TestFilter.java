@@ -1,9 +1,15 @@
 package org.codehaus.staxmate.in;
 
 import java.io.StringReader;
+import java.util.*;
 
+import javax.xml.namespace.QName;
 import javax.xml.stream.*;
 
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.ri.Stax2ReaderAdapter;
+
 import org.codehaus.staxmate.SMInputFactory;
 
 /**
@@ -159,5 +165,136 @@ public class TestFilter
 
         sr.close();
     }
-}
 
+    public void testElementNameFilter()
+        throws Exception
+    {
+        final String XML = "<root xmlns:x='urn:x'><a /><x:a /><b><a>1</a></b></root>";
+        // first with default reader (Woodstox and Aalto intern names)
+        XMLStreamReader2 sr = Stax2ReaderAdapter.wrapIfNecessary(getCoalescingReader(XML));
+        _verifyElementNameFilter(sr, SMFilterFactory.getElementOnlyFilter("a"), "/a/a/a/a");
+        sr = Stax2ReaderAdapter.wrapIfNecessary(getCoalescingReader(XML));
+        _verifyElementNameFilter(sr, SMFilterFactory.getElementOnlyFilter(new QName("urn:x", "a")), "/x:a/x:a");
+
+        // and then one that does not
+        sr = new NonInterningWrapper(getCoalescingReader(XML));
+        assertFalse(SMInputFactory.flatteningCursor(sr, null).getContext().namesInterned());
+        _verifyElementNameFilter(sr, SMFilterFactory.getElementOnlyFilter("a"), "/a/a/a/a");
+        sr = new NonInterningWrapper(getCoalescingReader(XML));
+        _verifyElementNameFilter(sr, SMFilterFactory.getElementOnlyFilter(new QName("urn:x", "a")), "/x:a/x:a");
+    }
+
+    public void testElementNameSetFilter()
+        throws Exception
+    {
+        final String XML = "<root xmlns:x='urn:x'><a /><x:a /><b><a>1</a></b><c /></root>";
+        Set<QName> names = new HashSet<QName>();
+        names.add(new QName("urn:x", "a"));
+        names.add(new QName("b"));
+        names.add(new QName("c"));
+        SMFilter f = SMFilterFactory.getElementOnlyFilter(names);
+
+        _verifyElementNameFilter(Stax2ReaderAdapter.wrapIfNecessary(getCoalescingReader(XML)), f, "/x:a/x:a/b/b/c/c");
+        _verifyElementNameFilter(new NonInterningWrapper(getCoalescingReader(XML)), f, "/x:a/x:a/b/b/c/c");
+    }
+
+    public void testCompositeFilters()
+        throws Exception
+    {
+        final String XML = "<root><a id='1'>x<b id='2'/></a><c>y<a>z</a></c></root>";
+        SMFilter elems = SMFilterFactory.getElementOnlyFilter();
+        SMFilter text = SMFilterFactory.getTextOnlyFilter();
+        SMFilter idAttr = SMFilterFactory.getAttributeFilter("id");
+        SMFilter aElem = SMFilterFactory.getElementOnlyFilter("a");
+
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(elems, idAttr), "/a/b");
+        _verifyFilter(XML, idAttr, "/a/b");
+        _verifyFilter(XML, SMFilterFactory.getOrFilter(aElem, text), "/a/[x]/a/[y]/a/[z]/a");
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(aElem,
+                SMFilterFactory.getNotFilter(idAttr)), "/a/a/a");
+        // depth: 'root' has parent count of 0, 'a' 1 (or 2)
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(elems,
+                SMFilterFactory.getDepthFilter(1, 1)), "/a/a/c/c");
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(text,
+                SMFilterFactory.getDepthFilter(2, 100)), "/[x]/[y]/[z]");
+        // nulls match everything
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(null, text), "/[x]/[y]/[z]");
+        _verifyFilter(XML, SMFilterFactory.getOrFilter(), "");
+        // nested composites, names from multiple filters
+        _verifyFilter(XML, SMFilterFactory.getOrFilter(
+                SMFilterFactory.getAndFilter(aElem, idAttr),
+                SMFilterFactory.getElementOnlyFilter("c")), "/a/c/c");
+
+        // and finally, custom filters that are just called as is
+        SMFilter custom = new SMFilter() {
+            public boolean accept(SMEvent evt, SMInputCursor caller) throws XMLStreamException {
+                return (evt == SMEvent.TEXT) && caller.getText().equals("y");
+            }
+        };
+        _verifyFilter(XML, SMFilterFactory.getOrFilter(custom, idAttr), "/a/b/[y]");
+        _verifyFilter(XML, SMFilterFactory.getAndFilter(text,
+                SMFilterFactory.getNotFilter(custom)), "/[x]/[z]");
+    }
+
+    private void _verifyFilter(String xml, SMFilter f, String exp)
+        throws XMLStreamException
+    {
+        XMLStreamReader sr = getCoalescingReader(xml);
+        SMInputCursor crsr = SMInputFactory.flatteningCursor(sr, f);
+        StringBuilder sb = new StringBuilder();
+        SMEvent evt;
+        while ((evt = crsr.getNext()) != null) {
+            sb.append('/');
+            if (evt.isElementEvent()) {
+                sb.append(crsr.getLocalName());
+            } else {
+                sb.append('[').append(crsr.getText()).append(']');
+            }
+        }
+        assertEquals(exp, sb.toString());
+        sr.close();
+    }
+
+    private void _verifyElementNameFilter(XMLStreamReader2 sr, SMFilter f, String exp)
+        throws XMLStreamException
+    {
+        SMInputCursor crsr = SMInputFactory.flatteningCursor(sr, f);
+        StringBuilder sb = new StringBuilder();
+        while (crsr.getNext() != null) {
+            sb.append('/').append(crsr.getPrefixedName());
+        }
+        assertEquals(exp, sb.toString());
+        sr.close();
+    }
+
+    /**
+     * Helper class used to simulate stream readers that do not intern
+     * names
+     */
+    final static class NonInterningWrapper extends Stax2ReaderAdapter
+    {
+        public NonInterningWrapper(XMLStreamReader sr) {
+            super(sr);
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            if (XMLInputFactory2.P_INTERN_NAMES.equals(name)
+                || XMLInputFactory2.P_INTERN_NS_URIS.equals(name)) {
+                throw new IllegalArgumentException("Unrecognized property '"+name+"'");
+            }
+            return super.getProperty(name);
+        }
+
+        @Override
+        public String getLocalName() {
+            return new String(super.getLocalName());
+        }
+
+        @Override
+        public String getNamespaceURI() {
+            String uri = super.getNamespaceURI();
+            return (uri == null) ? null : new String(uri);
+        }
+    }
+}
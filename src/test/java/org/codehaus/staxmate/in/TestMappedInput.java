@@ -0,0 +1,111 @@
+package org.codehaus.staxmate.in;
+
+import java.io.*;
+import java.util.Arrays;
+
+import javax.xml.stream.*;
+
+import org.codehaus.staxmate.SMInputFactory;
+import org.codehaus.staxmate.util.MappedFileInputStream;
+
+/**
+ * Unit tests for verifying that reading files using memory-mapping
+ * works as expected.
+ */
+public class TestMappedInput
+    extends ReaderTestBase
+{
+    public void testMappedFile()
+        throws Exception
+    {
+        final int COUNT = 2000;
+        File f = _createFile(COUNT);
+        try {
+            for (SMInputFactory.MappingMode mode : SMInputFactory.MappingMode.values()) {
+                SMInputCursor rootc = getInputFactory().rootElementCursor(f, mode).advance();
+                assertEquals("root", rootc.getLocalName());
+                SMInputCursor crsr = rootc.childElementCursor();
+                int count = 0;
+                while (crsr.getNext() != null) {
+                    assertEquals(count, crsr.getAttrIntValue(0));
+                    assertEquals("Entry #"+count, crsr.getElemStringValue());
+                    ++count;
+                }
+                assertEquals(COUNT, count);
+                rootc.getStreamReader().closeCompletely();
+            }
+        } finally {
+            f.delete();
+        }
+    }
+
+    public void testMappedStreamChunks()
+        throws Exception
+    {
+        File f = _createFile(100);
+        try {
+            byte[] expected = _readAll(new FileInputStream(f));
+            // with tiny chunks, to verify chunk boundaries are handled
+            MappedFileInputStream in = new MappedFileInputStream(f, 7);
+            byte[] actual = new byte[expected.length];
+            int i = 0;
+            // first a few single bytes
+            for (; i < 10; ++i) {
+                actual[i] = (byte) in.read();
+            }
+            // and then skip
+            assertEquals(5L, in.skip(5L));
+            System.arraycopy(expected, i, actual, i, 5);
+            i += 5;
+            assertEquals(expected.length - i, in.available());
+            int count;
+            while ((count = in.read(actual, i, Math.min(100, actual.length - i))) > 0) {
+                i += count;
+            }
+            assertEquals(expected.length, i);
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(actual, 0, 1));
+            in.close();
+            assertTrue(Arrays.equals(expected, actual));
+
+            // also reading with default chunk size
+            in = new MappedFileInputStream(f);
+            assertTrue(Arrays.equals(expected, _readAll(in)));
+        } finally {
+            f.delete();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    private File _createFile(int count)
+        throws IOException
+    {
+        File f = File.createTempFile("staxmate", ".xml");
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        w.write("<root>\n");
+        for (int i = 0; i < count; ++i) {
+            w.write("<entry id='"+i+"'>Entry #"+i+"</entry>\n");
+        }
+        w.write("</root>");
+        w.close();
+        return f;
+    }
+
+    private byte[] _readAll(InputStream in)
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int count;
+        while ((count = in.read(buf)) > 0) {
+            bytes.write(buf, 0, count);
+        }
+        in.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package org.codehaus.staxmate.in;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that reading from NIO byte buffers and
+ * channels works as expected.
+ */
+public class TestNioInput
+    extends ReaderTestBase
+{
+    final static String XML = "<root><a x='1'>abc</a><b>\u00e9\u20ac</b></root>";
+
+    public void testHeapBuffer()
+        throws Exception
+    {
+        byte[] data = XML.getBytes("UTF-8");
+        // let's add some leading and trailing garbage
+        byte[] padded = new byte[data.length + 20];
+        System.arraycopy(data, 0, padded, 10, data.length);
+        ByteBuffer bb = ByteBuffer.wrap(padded, 10, data.length);
+        _verify(getInputFactory().rootElementCursor(bb));
+        assertEquals(10, bb.position());
+
+        // and with a slice (non-zero array offset)
+        ByteBuffer slice = bb.slice();
+        assertEquals(10, slice.arrayOffset());
+        _verify(getInputFactory().rootElementCursor(slice));
+    }
+
+    public void testDirectBuffer()
+        throws Exception
+    {
+        byte[] data = XML.getBytes("UTF-8");
+        ByteBuffer bb = ByteBuffer.allocateDirect(data.length + 5);
+        bb.put((byte) 'x');
+        bb.put(data);
+        bb.flip();
+        bb.position(1);
+        _verify(getInputFactory().rootElementCursor(bb));
+        assertEquals(1, bb.position());
+        assertEquals(data.length, bb.remaining());
+    }
+
+    public void testChannel()
+        throws Exception
+    {
+        byte[] data = XML.getBytes("UTF-8");
+        _verify(getInputFactory().rootElementCursor(Channels.newChannel(new ByteArrayInputStream(data))));
+    }
+
+    private void _verify(SMInputCursor rootc)
+        throws XMLStreamException
+    {
+        assertNotNull(rootc.getNext());
+        assertEquals("root", rootc.getLocalName());
+        SMInputCursor crsr = rootc.childElementCursor();
+        assertNotNull(crsr.getNext());
+        assertEquals(1, crsr.getAttrIntValue(0));
+        assertEquals("abc", crsr.getElemStringValue());
+        assertNotNull(crsr.getNext());
+        assertEquals("\u00e9\u20ac", crsr.getElemStringValue());
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+}
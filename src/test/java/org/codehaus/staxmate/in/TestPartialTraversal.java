@@ -147,6 +147,38 @@ public class TestPartialTraversal
     assertNull(a_iterator.getNext());
   }
   
+  // Filtered-out siblings are skipped as whole sub-trees
+  public void testFilteredSubtreeSkipping() throws Exception
+  {
+    assertGotNextElementNamed(a_iterator,"A1");
+
+    SMInputCursor b_iterator = a_iterator.childCursor(SMFilterFactory.getElementOnlyFilter("A1B2"));
+    assertGotNextElementNamed(b_iterator,"A1B2");
+    assertNull(b_iterator.getNext());
+
+    assertNull(a_iterator.getNext());
+  }
+
+  // Partially traversed descendant cursor, pointing to nested elements
+  public void testPartialDescendantIteration() throws Exception
+  {
+    assertGotNextElementNamed(a_iterator,"A1");
+
+    SMInputCursor b_iterator = a_iterator.childElementCursor();
+    assertGotNextElementNamed(b_iterator,"A1B1");
+
+    SMInputCursor desc = b_iterator.descendantElementCursor();
+    assertGotNextElementNamed(desc,"A1B1C1");
+    assertGotNextElementNamed(desc,"A1B1C1D1");
+
+    assertGotNextElementNamed(b_iterator,"A1B2");
+    desc = b_iterator.descendantElementCursor();
+    assertGotNextElementNamed(desc,"A1B2C1");
+    assertNull(b_iterator.getNext());
+
+    assertNull(a_iterator.getNext());
+  }
+
   // It works, is everything right with the world!?
   
   public void assertGotNextElementNamed(SMInputCursor cursor, String name) throws Exception
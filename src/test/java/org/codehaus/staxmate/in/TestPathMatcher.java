@@ -0,0 +1,112 @@
+package org.codehaus.staxmate.in;
+
+import java.io.StringReader;
+import java.util.*;
+
+import javax.xml.stream.*;
+
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * Unit tests for {@link SMPathMatcher}
+ */
+public class TestPathMatcher
+    extends ReaderTestBase
+{
+    final static String ATOM = "http://www.w3.org/2005/Atom";
+
+    final static String XML =
+        "<feed xmlns='"+ATOM+"'>"
+        +"<title>Feed</title>"
+        +"<entry><id>1</id><title>First <b>entry</b></title><link href='http://a' rel='x' /></entry>"
+        +"<ignored><entry><id>-1</id></entry></ignored>"
+        +"<entry><link href='http://b' /><id>2</id><content><id>nested</id></content></entry>"
+        +"</feed>";
+
+    public void testSimplePaths()
+        throws XMLStreamException
+    {
+        Collector c = new Collector();
+        SMPathMatcher m = new SMPathMatcher()
+            .addPath("/feed/entry/id", c)
+            .addPath("/feed/entry/link/@href", c)
+            .addPath("/feed/title", c);
+        m.process(_cursor(XML));
+        assertEquals("[/feed/title=Feed, /feed/entry/id=1, /feed/entry/link/@href=http://a,"
+                +" /feed/entry/link/@href=http://b, /feed/entry/id=2]", c.toString());
+    }
+
+    public void testWildcardsAndNamespaces()
+        throws XMLStreamException
+    {
+        Collector c = new Collector();
+        SMPathMatcher m = new SMPathMatcher()
+            .addPath("/{"+ATOM+"}feed/*/{"+ATOM+"}title", c)
+            .addPath("/feed/*/*/id", c)
+            .addPath("/{}feed/entry/id", c) // wrong namespace, never matches
+            .addPath("/feed/entry/link/@*", c);
+        m.process(_cursor(XML));
+        assertEquals("[/{"+ATOM+"}feed/*/{"+ATOM+"}title=First entry,"
+                +" /feed/entry/link/@*=http://a, /feed/entry/link/@*=x,"
+                +" /feed/*/*/id=-1, /feed/entry/link/@*=http://b, /feed/*/*/id=nested]",
+                c.toString());
+    }
+
+    public void testNestedMatches()
+        throws XMLStreamException
+    {
+        Collector c = new Collector();
+        SMPathMatcher m = new SMPathMatcher()
+            .addPath("/feed/entry", c)
+            .addPath("/feed/entry/content/id", c);
+        m.process(_cursor(XML));
+        assertEquals("[/feed/entry=1First entry, /feed/entry/content/id=nested, /feed/entry=2nested]",
+                c.toString());
+    }
+
+    public void testDescendantCursor()
+        throws XMLStreamException
+    {
+        // paths are relative to the cursor, so can process sub-trees too
+        Collector c = new Collector();
+        SMPathMatcher m = new SMPathMatcher().addPath("/entry/id", c);
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor childc = rootc.childElementCursor();
+        while (childc.getNext() != null) {
+            if (childc.hasLocalName("ignored")) {
+                m.process(childc.descendantCursor());
+            }
+        }
+        assertEquals("[/entry/id=-1]", c.toString());
+    }
+
+    public void testInvalidPaths()
+    {
+        Collector c = new Collector();
+        for (String path : new String[] { "", "/", "feed", "/feed//id", "/@attr", "/feed/@a/b", "/{urn:x/a" }) {
+            try {
+                new SMPathMatcher().addPath(path, c);
+                fail("Expected exception for path '"+path+"'");
+            } catch (IllegalArgumentException e) {
+                assertException(e, "Invalid path");
+            }
+        }
+    }
+
+    private SMInputCursor _cursor(String xml) throws XMLStreamException
+    {
+        return SMInputFactory.flatteningCursor(getStaxInputFactory().createXMLStreamReader(new StringReader(xml)), null);
+    }
+
+    final static class Collector implements SMPathHandler
+    {
+        final ArrayList<String> _matches = new ArrayList<String>();
+
+        public void pathMatched(String path, String value, SMInputCursor crsr) {
+            _matches.add(path+"="+value);
+        }
+
+        @Override
+        public String toString() { return _matches.toString(); }
+    }
+}
@@ -0,0 +1,99 @@
+package org.codehaus.staxmate.in;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that {@link SMRecordIterator} works as
+ * expected, both for one-by-one and batched access.
+ */
+public class TestRecordIterator
+    extends ReaderTestBase
+{
+    final static SMRecordMapper<String> MAPPER = new SMRecordMapper<String>() {
+        public String mapRecord(SMInputCursor crsr) throws XMLStreamException {
+            String id = crsr.getAttrValue("id");
+            return id + ":" + crsr.childElementCursor().advance().getElemStringValue();
+        }
+    };
+
+    public void testIteration()
+        throws Exception
+    {
+        SMRecordIterator<String> it = _rootCursor(50).childElementCursor().recordIterator(MAPPER);
+        int i = 0;
+        for (String str : it) {
+            assertEquals(i+":value"+i, str);
+            // hasNext() may be called any number of times
+            if (i < 49) {
+                assertTrue(it.hasNext());
+                assertTrue(it.hasNext());
+            }
+            ++i;
+        }
+        assertEquals(50, i);
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("Expected exception");
+        } catch (NoSuchElementException e) { }
+    }
+
+    public void testBatches()
+        throws Exception
+    {
+        ExecutorService exec = Executors.newFixedThreadPool(3);
+        try {
+            SMRecordIterator<String> it = _rootCursor(95).childElementCursor().recordIterator(MAPPER);
+            // can mix and match one-by-one, batched access
+            assertEquals("0:value0", it.next());
+            int i = 1;
+            List<Callable<String>> batch;
+            while (!(batch = it.nextBatch(10)).isEmpty()) {
+                assertTrue(batch.size() <= 10);
+                for (Future<String> f : exec.invokeAll(batch)) {
+                    assertEquals(i+":value"+i, f.get());
+                    ++i;
+                }
+            }
+            assertEquals(95, i);
+            assertFalse(it.hasNext());
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    public void testFailure()
+        throws Exception
+    {
+        SMRecordIterator<String> it = _rootCursor(3).childElementCursor().recordIterator(new SMRecordMapper<String>() {
+            public String mapRecord(SMInputCursor crsr) throws XMLStreamException {
+                return String.valueOf(crsr.getElemIntValue());
+            }
+        });
+        try {
+            it.next();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof XMLStreamException);
+        }
+    }
+
+    private SMInputCursor _rootCursor(int count)
+        throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder("<root>");
+        for (int i = 0; i < count; ++i) {
+            sb.append("<r id='").append(i).append("'><x>value").append(i).append("</x></r>\n<?pi?>");
+        }
+        sb.append("</root>");
+        return getInputFactory().rootElementCursor(new StringReader(sb.toString())).advance();
+    }
+}
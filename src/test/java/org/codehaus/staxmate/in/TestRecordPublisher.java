@@ -0,0 +1,201 @@
+package org.codehaus.staxmate.in;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that {@link SMRecordPublisher} emits records
+ * as expected, following demand signalled by the subscriber.
+ */
+public class TestRecordPublisher
+    extends ReaderTestBase
+{
+    public void testDemand()
+        throws Exception
+    {
+        IdMapper mapper = new IdMapper(-1);
+        Collector coll = new Collector(0L);
+        new SMRecordPublisher<Integer>(_rootCursor(100), mapper).subscribe(coll);
+        assertNotNull(coll.subscription);
+        assertEquals(0, mapper.calls);
+
+        coll.subscription.request(3);
+        assertEquals(3, coll.records.size());
+        // nothing should have been read beyond what was requested
+        assertEquals(3, mapper.calls);
+        assertFalse(coll.completed);
+
+        coll.subscription.request(Long.MAX_VALUE);
+        coll.subscription.request(Long.MAX_VALUE);
+        assertTrue(coll.completed);
+        assertNull(coll.error);
+        assertEquals(100, coll.records.size());
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(Integer.valueOf(i), coll.records.get(i));
+        }
+    }
+
+    public void testRequestFromOnNext()
+        throws Exception
+    {
+        // requesting one at a time from onNext must not recurse
+        final int COUNT = 20000;
+        Collector coll = new Collector(1L);
+        new SMRecordPublisher<Integer>(_rootCursor(COUNT), new IdMapper(-1)).subscribe(coll);
+        assertTrue(coll.completed);
+        assertEquals(COUNT, coll.records.size());
+    }
+
+    public void testFailureAndCancel()
+        throws Exception
+    {
+        Collector coll = new Collector(0L);
+        new SMRecordPublisher<Integer>(_rootCursor(10), new IdMapper(5)).subscribe(coll);
+        coll.subscription.request(100);
+        assertEquals(5, coll.records.size());
+        assertNotNull(coll.error);
+        assertException(coll.error, "bad record");
+        assertFalse(coll.completed);
+
+        coll = new Collector(0L);
+        SMRecordPublisher<Integer> pub = new SMRecordPublisher<Integer>(_rootCursor(10), new IdMapper(-1));
+        pub.subscribe(coll);
+        coll.subscription.request(2);
+        coll.subscription.cancel();
+        coll.subscription.request(2);
+        assertEquals(2, coll.records.size());
+        assertFalse(coll.completed);
+
+        // can only subscribe once
+        Collector coll2 = new Collector(0L);
+        pub.subscribe(coll2);
+        assertNotNull(coll2.error);
+        assertException(coll2.error, "already has a subscriber");
+
+        // and demand must be positive
+        coll = new Collector(0L);
+        new SMRecordPublisher<Integer>(_rootCursor(10), new IdMapper(-1)).subscribe(coll);
+        coll.subscription.request(0L);
+        assertNotNull(coll.error);
+        assertException(coll.error, "must be positive");
+    }
+
+    public void testFailingSubscriber()
+        throws Exception
+    {
+        IdMapper mapper = new IdMapper(-1);
+        Collector coll = new Collector(0L) {
+                @Override
+                public void onNext(Integer record) {
+                    super.onNext(record);
+                    if (records.size() == 3) {
+                        throw new IllegalStateException("Subscriber failed");
+                    }
+                }
+            };
+        new SMRecordPublisher<Integer>(_rootCursor(10), mapper).subscribe(coll);
+        try {
+            coll.subscription.request(5);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "subscriber failed");
+        }
+        assertEquals(3, coll.records.size());
+        // subscription is cancelled, but must not be left in a bad state
+        coll.subscription.request(5);
+        assertEquals(3, coll.records.size());
+        assertEquals(3, mapper.calls);
+        assertNull(coll.error);
+        assertFalse(coll.completed);
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods, classes
+    /**********************************************************************
+     */
+
+    private SMInputCursor _rootCursor(int count)
+        throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder("<root>");
+        for (int i = 0; i < count; ++i) {
+            sb.append("<r id='").append(i).append("'><x>").append(i).append("</x></r><!-- -->");
+        }
+        sb.append("</root>");
+        return getInputFactory().rootElementCursor(new StringReader(sb.toString())).advance();
+    }
+
+    final static class IdMapper
+        implements SMRecordMapper<Integer>
+    {
+        final int _failAt;
+
+        int calls;
+
+        public IdMapper(int failAt) {
+            _failAt = failAt;
+        }
+
+        public Integer mapRecord(SMInputCursor crsr)
+            throws XMLStreamException
+        {
+            ++calls;
+            int id = crsr.getAttrIntValue(0);
+            if (id == _failAt) {
+                throw new XMLStreamException("Bad record "+id);
+            }
+            // let's verify content is accessible as well
+            SMInputCursor childc = crsr.childElementCursor().advance();
+            assertEquals(id, childc.getElemIntValue());
+            return Integer.valueOf(id);
+        }
+    }
+
+    static class Collector
+        implements SMRecordSubscriber<Integer>
+    {
+        /**
+         * Number of records to request when subscribing, and then
+         * after each record received; 0 for none
+         */
+        final long _batch;
+
+        SMRecordSubscription subscription;
+
+        final List<Integer> records = new ArrayList<Integer>();
+
+        Throwable error;
+
+        boolean completed;
+
+        public Collector(long batch) {
+            _batch = batch;
+        }
+
+        public void onSubscribe(SMRecordSubscription s) {
+            subscription = s;
+            if (_batch > 0L) {
+                s.request(_batch);
+            }
+        }
+
+        public void onNext(Integer record) {
+            records.add(record);
+            if (_batch > 0L) {
+                subscription.request(_batch);
+            }
+        }
+
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.codehaus.staxmate.in;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that {@link SMRecordSplitter} works
+ * as expected.
+ */
+public class TestRecordSplitter
+    extends ReaderTestBase
+{
+    final static String NS_X = "urn:x";
+
+    public void testParallelRecords()
+        throws Exception
+    {
+        final int RECORDS = 500;
+        StringBuilder sb = new StringBuilder("<root xmlns:x='"+NS_X+"'>\n");
+        for (int i = 0; i < RECORDS; ++i) {
+            sb.append("<rec id='").append(i).append("' x:tag='t").append(i).append("'>");
+            sb.append("<name>Name <!-- c -->").append(i).append("</name>\n");
+            sb.append("<x:values>").append(i).append(' ').append(i * 3).append("</x:values>");
+            sb.append("<?pi data?><desc><![CDATA[a<b]]>&amp;c</desc>");
+            sb.append("</rec>\n");
+            // plus some other elements to be filtered out
+            if ((i % 10) == 0) {
+                sb.append("<skip><rec id='-1' /></skip>");
+            }
+        }
+        sb.append("</root>");
+
+        final AtomicReferenceArray<String> results = new AtomicReferenceArray<String>(RECORDS);
+        SMRecordHandler h = new SMRecordHandler() {
+            public void handleRecord(SMInputCursor crsr, int index)
+                throws XMLStreamException
+            {
+                assertEquals("rec", crsr.getLocalName());
+                int id = crsr.getAttrIntValue("id");
+                String tag = crsr.getAttrValue(NS_X, "tag");
+                SMInputCursor child = crsr.childElementCursor();
+                assertNotNull(child.getNext());
+                String name = child.getElemStringValue();
+                assertNotNull(child.getNext());
+                assertEquals(new QName(NS_X, "values"), child.getQName());
+                int[] values = new int[4];
+                assertEquals(2, child.readElemIntArray(values, 0, values.length));
+                assertNotNull(child.getNext());
+                String desc = child.collectDescendantText(false);
+                assertNull(child.getNext());
+                results.set(index, id+"/"+tag+"/"+name+"/"+values[0]+","+values[1]+"/"+desc);
+            }
+        };
+
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(sb.toString())).advance();
+            SMRecordSplitter splitter = new SMRecordSplitter(exec, h)
+                .setMaxPendingRecords(8)
+                .setRecordFilter(SMFilterFactory.getElementOnlyFilter("rec"));
+            assertEquals(RECORDS, splitter.process(rootc));
+            assertNull(rootc.getNext());
+        } finally {
+            exec.shutdown();
+        }
+        for (int i = 0; i < RECORDS; ++i) {
+            assertEquals(i+"/t"+i+"/Name "+i+"/"+i+","+(i*3)+"/a<b&c", results.get(i));
+        }
+    }
+
+    public void testRecordFailure()
+        throws Exception
+    {
+        String XML = "<root><a/><a/><a/><a/><a/><a/></root>";
+        final AtomicInteger handled = new AtomicInteger();
+        SMRecordHandler h = new SMRecordHandler() {
+            public void handleRecord(SMInputCursor crsr, int index)
+                throws XMLStreamException
+            {
+                if (index == 2) {
+                    throw new IllegalStateException("Bad record");
+                }
+                handled.incrementAndGet();
+            }
+        };
+        // executor that runs tasks in calling thread
+        Executor exec = new Executor() {
+            public void execute(Runnable r) { r.run(); }
+        };
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(XML)).advance();
+        try {
+            new SMRecordSplitter(exec, h).process(rootc);
+            fail("Expected an exception");
+        } catch (XMLStreamException e) {
+            assertException(e, "record #2");
+            assertException(e, "Bad record");
+        }
+        // no more records should have been processed after failure
+        assertEquals(2, handled.get());
+        // but parent cursor should still be usable
+        assertNull(rootc.getNext());
+    }
+}
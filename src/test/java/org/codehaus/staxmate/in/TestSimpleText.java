@@ -41,4 +41,55 @@ public class TestSimpleText
         SMInputCursor rootc = SMInputFactory.rootElementCursor(sr).advance();
         assertEquals("Some text to collect.", rootc.collectDescendantText(true));
     }
+
+    public void testCollectTextIntoBuffer()
+        throws XMLStreamException
+    {
+        String XML = "<root><a>Some<?proc instr?> <foo>text</foo> to <![CDATA[collect]]>.</a>"
+            +"<b>123</b><c /><d>x<e>y</e>z</d></root>";
+        XMLStreamReader sr = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(XML));
+        SMInputCursor rootc = SMInputFactory.rootElementCursor(sr).advance();
+        SMInputCursor crsr = rootc.childElementCursor();
+        // small initial size, to verify buffer expansion
+        SMTextBuffer buf = new SMTextBuffer(4);
+
+        assertNotNull(crsr.getNext());
+        assertEquals(21, crsr.collectDescendantText(buf, true));
+        assertEquals("Some text to collect.", buf.contentsAsString());
+
+        buf.reset();
+        assertNotNull(crsr.getNext());
+        assertEquals(3, crsr.collectDescendantText(buf, false));
+        assertEquals(3, buf.length());
+        assertEquals('2', buf.charAt(1));
+        assertEquals(123, Integer.parseInt(buf.toString()));
+
+        // empty element appends nothing
+        assertNotNull(crsr.getNext());
+        assertEquals(0, crsr.collectDescendantText(buf, false));
+        assertEquals("123", buf.toString());
+
+        // and contents are appended, not replaced
+        assertNotNull(crsr.getNext());
+        assertEquals(3, crsr.collectDescendantText(buf, false));
+        assertEquals("123xyz", buf.toString());
+        assertEquals("3x", buf.subSequence(2, 4).toString());
+
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    public void testGetTextIntoBuffer()
+        throws XMLStreamException
+    {
+        String XML = "<root>abc<!--x-->def</root>";
+        XMLStreamReader sr = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(XML));
+        SMInputCursor rootc = SMInputFactory.rootElementCursor(sr).advance();
+        SMInputCursor crsr = rootc.childCursor(SMFilterFactory.getTextOnlyFilter());
+        SMTextBuffer buf = new SMTextBuffer();
+        while (crsr.getNext() != null) {
+            crsr.getText(buf);
+        }
+        assertEquals("abcdef", buf.toString());
+    }
 }
@@ -2,6 +2,7 @@ package org.codehaus.staxmate.in;
 
 import java.io.*;
 
+import javax.xml.namespace.QName;
 import javax.xml.stream.*;
 
 import org.codehaus.stax2.typed.TypedXMLStreamException;
@@ -113,6 +114,81 @@ public class TestTyped extends ReaderTestBase
         }
     }
 
+    public void testTypedAttrsByName()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        // first element with enough attributes to be indexed, second not
+        String XML = "<root xmlns:ns='urn:x'>"
+            +"<a b='true' i='-37' l='12345678901' d='0.5' e='FAIL' ns:i='3' x='?' />"
+            +"<a i='1' ns:i='4' />"
+            +"</root>";
+        final QName NS_I = new QName("urn:x", "i");
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+
+        assertTrue(crsr.getAttrBooleanValue("b"));
+        assertEquals(-37, crsr.getAttrIntValue("i"));
+        assertEquals(12345678901L, crsr.getAttrLongValue("l"));
+        assertEquals(0.5, crsr.getAttrDoubleValue("d"));
+        assertEquals(DummyEnum.FAIL, crsr.getAttrEnumValue("e", DummyEnum.class));
+        assertEquals(3, crsr.getAttrIntValue(NS_I));
+        assertEquals(-37, crsr.getAttrIntValue(new QName("i")));
+        assertEquals(5, crsr.findAttrIndex("urn:x", "i"));
+        assertEquals(1, crsr.findAttrIndex(null, "i"));
+        assertEquals(1, crsr.findAttrIndex("", "i"));
+        assertEquals(-1, crsr.findAttrIndex("urn:y", "i"));
+        // defaults for invalid and missing values
+        assertEquals(13, crsr.getAttrIntValue("x", 13));
+        assertEquals(13, crsr.getAttrIntValue("missing", 13));
+        assertNull(crsr.getAttrEnumValue("missing", DummyEnum.class));
+        try {
+            crsr.getAttrLongValue("missing");
+            fail("Expected an exception for missing attribute");
+        } catch (XMLStreamException e) {
+            assertException(e, "missing attribute 'missing'");
+        }
+
+        assertNotNull(crsr.getNext());
+        assertEquals(1, crsr.getAttrIntValue("i"));
+        assertEquals(4, crsr.getAttrIntValue(NS_I));
+        assertEquals(-1L, crsr.getAttrLongValue("l", -1L));
+        assertFalse(crsr.getAttrBooleanValue(new QName("b"), false));
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    /**
+     * Test to verify that attribute index is not reused for another
+     * element when child cursors are recycled
+     */
+    public void testTypedAttrsByNameWithRecycling()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        String XML = "<root>"
+            +"<p><a a1='1' a2='2' a3='3' a4='4' a5='5' a6='6' /></p>"
+            +"<p><a a6='60' a5='50' a4='40' a3='30' a2='20' a1='10' /></p>"
+            +"</root>";
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        rootc.getContext().setCursorRecycling(true);
+        SMInputCursor pc = rootc.childElementCursor();
+        SMInputCursor prev = null;
+        int mult = 1;
+        while (pc.getNext() != null) {
+            SMInputCursor crsr = pc.childElementCursor().advance();
+            if (prev != null) {
+                assertSame(prev, crsr);
+            }
+            prev = crsr;
+            for (int i = 1; i <= 6; ++i) {
+                assertEquals(i * mult, crsr.getAttrIntValue("a"+i));
+            }
+            mult *= 10;
+        }
+        assertEquals(100, mult);
+    }
+
     /*
     /**********************************************************************
     /* Simple tests for typed elements
@@ -204,4 +280,321 @@ public class TestTyped extends ReaderTestBase
             assertException(tex, "invalid enumeration value");
         }
     }
+
+    /**
+     * Test for verifying that enum decoding works for all values,
+     * with different enum types, as well as for invalid values.
+     */
+    public void testTypedEnumsMixed()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        StringBuilder sb = new StringBuilder("<root>");
+        for (SMEvent evt : SMEvent.values()) {
+            sb.append("<a attr='").append(evt.name()).append("' attr2=' OK'>\n")
+                .append(evt.name()).append(" </a>");
+        }
+        sb.append("<b attr='' attr2='START_ELEMENT'>OK_</b>");
+        sb.append("<b attr='ok' attr2=''>   </b>");
+        sb.append("</root>");
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(sb.toString())).advance();
+        SMInputCursor crsr = rootc.childElementCursor();
+        for (SMEvent evt : SMEvent.values()) {
+            assertNotNull(crsr.getNext());
+            assertSame(evt, crsr.getAttrEnumValue(0, SMEvent.class));
+            assertSame(DummyEnum.OK, crsr.getAttrEnumValue(1, DummyEnum.class));
+            assertSame(evt, crsr.getElemEnumValue(SMEvent.class));
+        }
+        assertNotNull(crsr.getNext());
+        assertNull(crsr.getAttrEnumValue(0, DummyEnum.class));
+        try {
+            crsr.getAttrEnumValue(1, DummyEnum.class);
+            fail("Expected exception for invalid value");
+        } catch (TypedXMLStreamException tex) {
+            assertException(tex, "invalid enumeration value 'START_ELEMENT'");
+        }
+        try {
+            crsr.getElemEnumValue(DummyEnum.class);
+            fail("Expected exception for invalid value");
+        } catch (TypedXMLStreamException tex) {
+            assertException(tex, "invalid enumeration value 'OK_'");
+        }
+        assertNotNull(crsr.getNext());
+        // enum names are case-sensitive
+        try {
+            crsr.getAttrEnumValue(0, DummyEnum.class);
+            fail("Expected exception for invalid value");
+        } catch (TypedXMLStreamException tex) {
+            assertException(tex, "invalid enumeration value 'ok'");
+        }
+        assertNull(crsr.getAttrEnumValue(1, DummyEnum.class));
+        assertNull(crsr.getElemEnumValue(DummyEnum.class));
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    /*
+    /**********************************************************************
+    /* Tests for typed array and binary elements
+    /**********************************************************************
+     */
+
+    public void testTypedIntArrayElem()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        StringBuilder sb = new StringBuilder("<root><a>");
+        for (int i = 0; i < 1000; ++i) {
+            sb.append(' ').append(i * 3 - 100);
+            if ((i % 17) == 0) {
+                sb.append("\n");
+            }
+        }
+        sb.append("</a><b>1 2 3 4 5</b><c>  </c></root>");
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(sb.toString())).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+        assertEquals("a", crsr.getLocalName());
+
+        // read in small chunks, to verify incremental access
+        int[] buffer = new int[7];
+        int total = 0;
+        int count;
+        while ((count = crsr.readElemIntArray(buffer, 0, buffer.length)) >= 0) {
+            for (int i = 0; i < count; ++i) {
+                assertEquals(total * 3 - 100, buffer[i]);
+                ++total;
+            }
+        }
+        assertEquals(1000, total);
+
+        // partial read: cursor must skip the rest of content
+        assertNotNull(crsr.getNext());
+        assertEquals("b", crsr.getLocalName());
+        assertEquals(2, crsr.readElemIntArray(buffer, 3, 2));
+        assertEquals(1, buffer[3]);
+        assertEquals(2, buffer[4]);
+
+        assertNotNull(crsr.getNext());
+        assertEquals("c", crsr.getLocalName());
+        assertEquals(-1, crsr.readElemIntArray(buffer, 0, buffer.length));
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    public void testTypedArrayElemWithFlattening()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        String XML = "<root><a>1 2 3</a><b>4 5 6</b><c>7</c></root>";
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.descendantElementCursor().advance();
+        int[] buffer = new int[2];
+        assertEquals("a", crsr.getLocalName());
+        assertEquals(2, crsr.readElemIntArray(buffer, 0, 2));
+        // partial read, followed by skip:
+        assertNotNull(crsr.getNext());
+        assertEquals("b", crsr.getLocalName());
+        assertEquals(1, crsr.readElemIntArray(buffer, 0, 1));
+        ((SMFlatteningCursor) crsr).skipElement();
+        assertNotNull(crsr.getNext());
+        assertEquals("c", crsr.getLocalName());
+        assertEquals(1, crsr.readElemIntArray(buffer, 0, 2));
+        assertEquals(7, buffer[0]);
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    /**
+     * Test to verify that partial typed reads are completed even when
+     * done via a cursor that is closed indirectly, by an ancestor of its
+     * parent cursor; and with stream readers accessed via
+     * <code>Stax2ReaderAdapter</code>, which buffers decoded content.
+     */
+    public void testTypedArrayElemInNestedCursor()
+        throws XMLStreamException
+    {
+        String XML = "<root><group><rec><a>1 2 3 4 5</a></rec></group>"
+            +"<group><rec><b>6 7 8</b></rec></group></root>";
+        // delegate is not a Stax2 reader, so adapter will be used
+        XMLStreamReader sr = new javax.xml.stream.util.StreamReaderDelegate
+            (getStaxInputFactory().createXMLStreamReader(new StringReader(XML)));
+        SMInputCursor rootc = SMInputFactory.rootElementCursor(sr).advance();
+        SMInputCursor groupc = rootc.childElementCursor().advance();
+        SMInputCursor recc = groupc.childElementCursor().advance();
+        SMInputCursor crsr = recc.childElementCursor().advance();
+        assertEquals("a", crsr.getLocalName());
+        int[] buffer = new int[5];
+        assertEquals(2, crsr.readElemIntArray(buffer, 0, 2));
+
+        // closes both record and value cursors:
+        assertNotNull(groupc.getNext());
+        recc = groupc.childElementCursor().advance();
+        crsr = recc.childElementCursor().advance();
+        assertEquals("b", crsr.getLocalName());
+        assertEquals(3, crsr.readElemIntArray(buffer, 0, 5));
+        assertEquals(6, buffer[0]);
+        assertEquals(7, buffer[1]);
+        assertEquals(8, buffer[2]);
+        assertNull(groupc.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    public void testTypedLongAndDoubleArrayElem()
+        throws XMLStreamException
+    {
+        SMInputFactory sf = getInputFactory();
+        String XML = "<root><a>-1 12345678901 7</a><b>0.25 -1e3\tINF</b><c>1 x</c><d/></root>";
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+
+        long[] longs = new long[10];
+        assertEquals(3, crsr.readElemLongArray(longs, 0, 10));
+        assertEquals(-1L, longs[0]);
+        assertEquals(12345678901L, longs[1]);
+        assertEquals(7L, longs[2]);
+        assertEquals(-1, crsr.readElemLongArray(longs, 0, 10));
+
+        assertNotNull(crsr.getNext());
+        double[] doubles = new double[10];
+        assertEquals(3, crsr.readElemDoubleArray(doubles, 0, 10));
+        assertEquals(0.25, doubles[0]);
+        assertEquals(-1000.0, doubles[1]);
+        assertEquals(Double.POSITIVE_INFINITY, doubles[2]);
+        assertEquals(-1, crsr.readElemDoubleArray(doubles, 0, 10));
+
+        assertNotNull(crsr.getNext());
+        float[] floats = new float[10];
+        try {
+            crsr.readElemFloatArray(floats, 0, 10);
+            fail("Expected an exception for invalid float value");
+        } catch (TypedXMLStreamException tex) {
+            ; // fine
+        }
+        // method is only usable with START_ELEMENT
+        assertNotNull(crsr.getNext());
+        assertEquals("d", crsr.getLocalName());
+        assertNull(crsr.getNext());
+        try {
+            crsr.readElemIntArray(new int[1], 0, 1);
+            fail("Expected an exception for closed cursor");
+        } catch (XMLStreamException e) {
+            assertException(e, "readElemIntArray");
+        }
+        assertNull(rootc.getNext());
+    }
+
+    public void testBinaryElem()
+        throws Exception
+    {
+        SMInputFactory sf = getInputFactory();
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i * 7);
+        }
+        String b64 = _base64(data);
+        String XML = "<root><a>"+b64+"</a><b>"+b64+"</b><c>"+b64+"</c><d>AQI=</d></root>";
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+
+        // first, all at once
+        assertEquals("a", crsr.getLocalName());
+        byte[] result = crsr.getElemBinaryValue();
+        assertEquals(data.length, result.length);
+        assertTrue(java.util.Arrays.equals(data, result));
+
+        // then to a stream
+        assertNotNull(crsr.getNext());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals((long) data.length, crsr.readElemBinaryValue(bytes));
+        assertTrue(java.util.Arrays.equals(data, bytes.toByteArray()));
+
+        // then incrementally
+        assertNotNull(crsr.getNext());
+        result = new byte[data.length + 10];
+        int offset = 0;
+        int count;
+        while ((count = crsr.readElemBinaryValue(result, offset, Math.min(333, result.length - offset))) >= 0) {
+            offset += count;
+        }
+        assertEquals(data.length, offset);
+        for (int i = 0; i < data.length; ++i) {
+            assertEquals(data[i], result[i]);
+        }
+
+        // and partially
+        assertNotNull(crsr.getNext());
+        assertEquals("d", crsr.getLocalName());
+        assertEquals(1, crsr.readElemBinaryValue(result, 0, 1));
+        assertEquals(1, result[0]);
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    /**
+     * Test to verify that if streaming of binary content fails, rest
+     * of the element is skipped when cursor is advanced.
+     */
+    public void testBinaryElemWithFailingStream()
+        throws Exception
+    {
+        SMInputFactory sf = getInputFactory();
+        byte[] data = new byte[60000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i * 3);
+        }
+        String XML = "<root><a>"+_base64(data)+"</a><b>AQI=</b></root>";
+        SMInputCursor rootc = sf.rootElementCursor(new StringReader(XML)).advance();
+        SMInputCursor crsr = rootc.childElementCursor().advance();
+        assertEquals("a", crsr.getLocalName());
+        OutputStream out = new OutputStream() {
+                int written = 0;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    written += len;
+                    if (written > 1000) {
+                        throw new IOException("Output failed");
+                    }
+                }
+            };
+        try {
+            crsr.readElemBinaryValue(out);
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertException(e, "output failed");
+        }
+        assertNotNull(crsr.getNext());
+        assertEquals("b", crsr.getLocalName());
+        byte[] result = crsr.getElemBinaryValue();
+        assertEquals(2, result.length);
+        assertEquals(1, result[0]);
+        assertNull(crsr.getNext());
+        assertNull(rootc.getNext());
+    }
+
+    private static String _base64(byte[] data)
+    {
+        final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.length; i += 3) {
+            int b = (data[i] & 0xFF) << 16;
+            int left = data.length - i;
+            if (left > 1) {
+                b |= (data[i+1] & 0xFF) << 8;
+            }
+            if (left > 2) {
+                b |= (data[i+2] & 0xFF);
+            }
+            sb.append(CHARS.charAt((b >> 18) & 0x3F));
+            sb.append(CHARS.charAt((b >> 12) & 0x3F));
+            sb.append((left > 1) ? CHARS.charAt((b >> 6) & 0x3F) : '=');
+            sb.append((left > 2) ? CHARS.charAt(b & 0x3F) : '=');
+        }
+        return sb.toString();
+    }
 }
@@ -16,4 +16,71 @@ abstract class BaseWriterTest
         SMOutputFactory smo = new SMOutputFactory(f);
         return smo.createOutputDocument(w);
     }
+
+    /**
+     * Helper method for writing a sample document that exercises most
+     * of the output API, using given (already configured) document;
+     * used for verifying that optional output modes produce the same
+     * output as the default mode. Document is closed after writing.
+     *
+     * @param buffered Whether to also add buffered containers (which
+     *   are not allowed in direct output mode)
+     */
+    protected void writeSampleDoc(SMOutputDocument doc, boolean buffered)
+        throws XMLStreamException
+    {
+        SMNamespace ns = doc.getNamespace("http://foo", "f");
+        SMNamespace ns2 = doc.getNamespace("http://bar", "b");
+        SMOutputElement root = doc.addElement("root");
+        root.addAttribute("a", "1");
+        root.addComment("comment");
+        SMBufferedFragment header = null;
+        if (buffered) {
+            header = root.createBufferedFragment();
+            root.addBuffered(header);
+        }
+        char[] text = "xtext & stuffx".toCharArray();
+        for (int i = 0; i < 10; ++i) {
+            SMOutputElement record = root.addElement(ns, "record");
+            record.predeclareNamespace(ns2);
+            record.addAttribute(ns, "id", i);
+            record.addAttribute("name", "Name #"+i);
+            record.addElementWithCharacters(ns2, "text", "<text>");
+            record.addElement("chars").addCharacters(text, 1, text.length-2);
+            record.addElement("cdata").addCData(text, 1, text.length-2);
+            record.addCData("cdata "+i);
+            record.addComment("comment "+i);
+            record.addProcessingInstruction("pi", (i == 3) ? null : "data");
+            SMOutputElement values = record.addElement("values");
+            values.addValue(i);
+            values.addCharacters(" ");
+            values.addValue(-i * 1000000000000L);
+            values.addCharacters(" ");
+            values.addValue(i * 0.25);
+            SMOutputElement arrays = record.addElement("arrays");
+            arrays.addElement("i").addValue(new int[] { i, -1, Integer.MAX_VALUE }, 0, 3);
+            arrays.addElement("l").addValue(new long[] { i, Long.MIN_VALUE }, 0, 2);
+            arrays.addElement("f").addValue(new float[] { i, 0.5f }, 0, 2);
+            arrays.addElement("d").addValue(new double[] { i, -2.5 }, 0, 2);
+            // odd and even lengths
+            byte[] data = new byte[] { 1, (byte) 0xFF, (byte) i, 0, 127 };
+            arrays.addElement("b").addBinary(data, 0, data.length - (i & 1));
+            if (buffered && i == 5) {
+                SMBufferedElement buf = record.createBufferedElement(null, "buffered");
+                record.addBuffered(buf);
+                buf.addElement("child").addValue(i);
+                buf.release();
+            }
+            SMOutputElement deep = record.addElement("a").addElement("b").addElement(ns, "c");
+            deep.addElement(ns2, "d").addAttribute(ns2, "attr", "value");
+            // closes a, b, c and d
+            record.addCharacters("text & more");
+        }
+        if (header != null) {
+            header.addElement("count").addValue(10);
+            header.release();
+        }
+        root.addElement("last").addElement("child");
+        doc.closeRoot();
+    }
 }
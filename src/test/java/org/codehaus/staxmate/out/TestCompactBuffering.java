@@ -0,0 +1,238 @@
+package org.codehaus.staxmate.out;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that compact buffering (see
+ * {@link SMOutputContext#setCompactBuffering}) produces same output as
+ * the default mode, while keeping buffered content compact, and
+ * spilling it to disk if so configured.
+ */
+public class TestCompactBuffering
+    extends BaseWriterTest
+{
+    public void testSameAsDefault()
+        throws Exception
+    {
+        String exp = _write(false, 0);
+        assertEquals(exp, _write(true, 0));
+    }
+
+    public void testSpilling()
+        throws Exception
+    {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "staxmate-test-"+System.nanoTime());
+        assertTrue(dir.mkdir());
+        try {
+            String exp = _write(false, 0);
+            // small enough threshold to also spill content of records
+            assertEquals(exp, _write(true, 100, dir));
+            // temporary files must be gone once content is output
+            assertEquals(0, dir.list().length);
+
+            SMOutputDocument doc = createSimpleDoc(new StringWriter());
+            doc.getContext().setCompactBuffering(true);
+            doc.getContext().setBufferSpillThreshold(100);
+            doc.getContext().setBufferSpillDirectory(dir);
+            assertEquals(100, doc.getContext().getBufferSpillThreshold());
+            assertEquals(dir, doc.getContext().getBufferSpillDirectory());
+            SMOutputElement root = doc.addElement("root");
+            SMBufferedFragment header = root.createBufferedFragment();
+            root.addBuffered(header);
+            for (int i = 0; i < 100; ++i) {
+                root.addElement("record").addValue(i);
+            }
+            SMOCompactContent compact = (SMOCompactContent) header._next;
+            assertTrue(compact.isSpilled());
+            assertTrue(compact.size() > 100);
+            assertEquals(1, dir.list().length);
+            header.release();
+            assertEquals(0, dir.list().length);
+            doc.closeRoot();
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    public void testAbandonedSpilling()
+        throws Exception
+    {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "staxmate-test-"+System.nanoTime());
+        assertTrue(dir.mkdir());
+        try {
+            // First: document abandoned without closing
+            SMOutputDocument doc = _spillingDoc(new StringWriter(), dir);
+            SMOutputElement root = doc.addElement("root");
+            SMBufferedFragment frag = _addSpilledFragment(root);
+            assertEquals(1, dir.list().length);
+            doc.getContext().deleteSpillFiles();
+            assertEquals(0, dir.list().length);
+            // and content can not be output any more
+            try {
+                frag.release();
+                doc.closeRoot();
+                fail("Expected exception");
+            } catch (XMLStreamException e) {
+                assertException(e, "has been deleted");
+            }
+
+            // Second: closing fails due to writer failure
+            FailingWriter w = new FailingWriter();
+            doc = _spillingDoc(w, dir);
+            root = doc.addElement("root");
+            _addSpilledFragment(root);
+            _addSpilledFragment(root);
+            assertEquals(2, dir.list().length);
+            w.fail = true;
+            try {
+                doc.closeRoot();
+                fail("Expected exception");
+            } catch (XMLStreamException e) {
+                assertException(e, "write failed");
+            }
+            assertEquals(0, dir.list().length);
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    public void testCompaction()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        doc.getContext().setCompactBuffering(true);
+        assertTrue(doc.getContext().isCompactBuffering());
+        SMOutputElement root = doc.addElement("root");
+        SMBufferedFragment header = root.createBufferedFragment();
+        root.addBuffered(header);
+        for (int i = 0; i < 100; ++i) {
+            SMOutputElement record = root.addElement("record");
+            record.addAttribute(null, "id", i);
+            record.addElement("value").addValue(i);
+            root.addCharacters("\n");
+        }
+        // buffered fragment, one compact node, last text node
+        assertEquals(3, _countChildren(root));
+        assertSame(header, root._firstChild);
+        assertTrue(header._next instanceof SMOCompactContent);
+        doc.closeRoot();
+    }
+
+    public void testClosedWhenCompacted()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        doc.getContext().setCompactBuffering(true);
+        SMOutputElement root = doc.addElement("root");
+        root.addBuffered(root.createBufferedFragment());
+        SMOutputElement first = root.addElement("first");
+        // still open, can modify
+        first.addAttribute("attr", "value");
+        root.addElement("second");
+        // but no longer
+        try {
+            first.addAttribute("attr2", "value");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "ELEMENT-CLOSED");
+        }
+        try {
+            first.addCharacters("text");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "was closed");
+        }
+        doc.closeRoot();
+    }
+
+    /*
+    ///////////////////////////////////////////////////////
+    // Helper methods
+    ///////////////////////////////////////////////////////
+     */
+
+    private int _countChildren(SMOutputContainer cont)
+    {
+        int count = 0;
+        for (SMOutputtable child = cont._firstChild; child != null; child = child._next) {
+            ++count;
+        }
+        return count;
+    }
+
+    private SMOutputDocument _spillingDoc(Writer w, File spillDir)
+        throws XMLStreamException
+    {
+        SMOutputDocument doc = createSimpleDoc(w);
+        doc.getContext().setCompactBuffering(true);
+        doc.getContext().setBufferSpillThreshold(100);
+        doc.getContext().setBufferSpillDirectory(spillDir);
+        return doc;
+    }
+
+    private SMBufferedFragment _addSpilledFragment(SMOutputElement parent)
+        throws XMLStreamException
+    {
+        SMBufferedFragment frag = parent.createBufferedFragment();
+        parent.addBuffered(frag);
+        for (int i = 0; i < 100; ++i) {
+            frag.addElement("record").addValue(i);
+        }
+        return frag;
+    }
+
+    private String _write(boolean compact, int spillThreshold)
+        throws XMLStreamException
+    {
+        return _write(compact, spillThreshold, null);
+    }
+
+    private String _write(boolean compact, int spillThreshold, File spillDir)
+        throws XMLStreamException
+    {
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = createSimpleDoc(sw);
+        doc.getContext().setCompactBuffering(compact);
+        doc.getContext().setBufferSpillThreshold(spillThreshold);
+        doc.getContext().setBufferSpillDirectory(spillDir);
+        writeSampleDoc(doc, true);
+        return sw.toString();
+    }
+
+    /**
+     * Writer that fails all writes once so instructed
+     */
+    final static class FailingWriter
+        extends Writer
+    {
+        boolean fail = false;
+
+        @Override
+        public void write(char[] cbuf, int off, int len)
+            throws IOException
+        {
+            if (fail) {
+                throw new IOException("write failed");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (fail) {
+                throw new IOException("write failed");
+            }
+        }
+
+        @Override
+        public void close() { }
+    }
+}
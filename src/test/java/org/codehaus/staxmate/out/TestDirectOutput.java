@@ -0,0 +1,90 @@
+package org.codehaus.staxmate.out;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that "direct" output mode (see
+ * {@link SMOutputContext#setDirectOutput}) produces same output as the
+ * default mode, that buffered containers are not allowed in it, and
+ * that mode can not be changed once content has been added.
+ */
+public class TestDirectOutput
+    extends BaseWriterTest
+{
+    public void testSameAsDefault()
+        throws Exception
+    {
+        String exp = _write(false);
+        assertEquals(exp, _write(true));
+    }
+
+    public void testInvalidUse()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        doc.getContext().setDirectOutput(true);
+        assertTrue(doc.getContext().isDirectOutput());
+        SMOutputElement root = doc.addElement("root");
+        SMOutputElement leaf = root.addElement("leaf");
+
+        try {
+            root.createBufferedElement(null, "buffered");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "direct output mode");
+        }
+        try {
+            root.createBufferedFragment();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "direct output mode");
+        }
+        // adding a sibling closes the previous one...
+        root.addElement("leaf2");
+        try {
+            leaf.addCharacters("x");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "was closed");
+        }
+        // and no attributes after children
+        try {
+            root.addAttribute("attr", "value");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "Can't add attributes");
+        }
+        doc.closeRoot();
+    }
+
+    public void testModeChangeAfterContent()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        SMOutputElement root = doc.addElement("root");
+        root.addBuffered(root.createBufferedFragment());
+        root.addCharacters("text");
+        try {
+            doc.getContext().setDirectOutput(true);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "after elements have been added");
+        }
+        assertFalse(doc.getContext().isDirectOutput());
+        // but re-setting the same mode is fine
+        doc.getContext().setDirectOutput(false);
+        doc.closeRoot();
+    }
+
+    private String _write(boolean direct)
+        throws XMLStreamException
+    {
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = createSimpleDoc(sw);
+        doc.getContext().setDirectOutput(direct);
+        writeSampleDoc(doc, false);
+        return sw.toString();
+    }
+}
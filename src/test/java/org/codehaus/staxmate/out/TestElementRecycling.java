@@ -0,0 +1,137 @@
+package org.codehaus.staxmate.out;
+
+import java.io.*;
+
+import javax.xml.stream.*;
+
+/**
+ * Unit tests for verifying that element recycling (see
+ * {@link SMOutputContext#setElementRecycling}) produces same output as
+ * the default mode (also when combined with direct output or compact
+ * buffering), and that use of released elements is detected when
+ * recycling checks are enabled.
+ */
+public class TestElementRecycling
+    extends BaseWriterTest
+{
+    public void testSameAsDefault()
+        throws Exception
+    {
+        String exp = _write(false, false, false, false);
+        assertEquals(exp, _write(true, false, false, false));
+        assertEquals(exp, _write(true, true, false, false));
+        // and should work with direct output mode as well
+        exp = _write(false, false, true, false);
+        assertEquals(exp, _write(true, false, true, false));
+    }
+
+    public void testWithCompactBuffering()
+        throws Exception
+    {
+        String exp = _write(false, false, false, false);
+        assertEquals(exp, _write(true, false, false, true));
+        assertEquals(exp, _write(true, true, false, true));
+    }
+
+    public void testReuse()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        doc.getContext().setElementRecycling(true);
+        assertTrue(doc.getContext().isElementRecycling());
+        SMOutputElement root = doc.addElement("root");
+        SMOutputElement first = root.addElement("a");
+        // adding a sibling closes "a", which is then reused for "b"
+        SMOutputElement second = root.addElement("b");
+        assertSame(first, second);
+        assertEquals("b", second.getLocalName());
+        // but not while it is still open
+        SMOutputElement child = second.addElement("c");
+        assertNotSame(second, child);
+        // buffered elements are never recycled
+        SMBufferedElement buffered = root.createBufferedElement(null, "buf");
+        root.addAndReleaseBuffered(buffered);
+        SMOutputElement fourth = root.addElement("d");
+        assertNotSame(buffered, fourth);
+        doc.closeRoot();
+    }
+
+    public void testReuseWithinBuffered()
+        throws Exception
+    {
+        assertEquals(_writeWithinBuffered(false), _writeWithinBuffered(true));
+    }
+
+    public void testUseAfterClose()
+        throws Exception
+    {
+        SMOutputDocument doc = createSimpleDoc(new StringWriter());
+        doc.getContext().setElementRecycling(true);
+        doc.getContext().setElementRecyclingChecks(true);
+        assertTrue(doc.getContext().isElementRecyclingChecks());
+        SMOutputElement root = doc.addElement("root");
+        SMOutputElement leaf = root.addElement("leaf");
+        SMOutputElement leaf2 = root.addElement("leaf2");
+        // no reuse in checking mode
+        assertNotSame(leaf, leaf2);
+
+        try {
+            leaf.getLocalName();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "released for recycling");
+        }
+        try {
+            leaf.addCharacters("x");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "released for recycling");
+        }
+        try {
+            leaf.addAttribute("attr", "value");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertException(e, "released for recycling");
+        }
+        // but open ones are fine
+        assertEquals("leaf2", leaf2.getLocalName());
+        doc.closeRoot();
+    }
+
+    private String _write(boolean recycle, boolean checks, boolean direct, boolean compact)
+        throws XMLStreamException
+    {
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = createSimpleDoc(sw);
+        doc.getContext().setElementRecycling(recycle);
+        doc.getContext().setElementRecyclingChecks(checks);
+        doc.getContext().setDirectOutput(direct);
+        doc.getContext().setCompactBuffering(compact);
+        // buffered containers are not allowed in direct mode
+        writeSampleDoc(doc, !direct);
+        return sw.toString();
+    }
+
+    private String _writeWithinBuffered(boolean recycle)
+        throws XMLStreamException
+    {
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = createSimpleDoc(sw);
+        doc.getContext().setElementRecycling(recycle);
+        SMOutputElement root = doc.addElement("root");
+        SMBufferedElement buffered = root.createBufferedElement(null, "buf");
+        root.addBuffered(buffered);
+        SMOutputElement child = buffered.addElement("child");
+        child.addValue(1);
+        // output of buffered parent leaves its last child open...
+        buffered.release();
+        // until a sibling of parent is added, closing it so it can be reused
+        SMOutputElement next = root.addElement("next");
+        if (recycle) {
+            assertSame(child, next);
+        }
+        next.addValue(2);
+        doc.closeRoot();
+        return sw.toString();
+    }
+}
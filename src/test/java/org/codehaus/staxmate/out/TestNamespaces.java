@@ -44,4 +44,60 @@ public class TestNamespaces
         assertTokenType(END_ELEMENT, sr.next());
         sr.close();
     }
+
+    /**
+     * Test to verify that bindings are resolved correctly with lots
+     * of namespaces in scope, including prefixes masked by (and
+     * restored after) nested declarations.
+     */
+    public void testManyNamespaces()
+        throws XMLStreamException
+    {
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = createSimpleDoc(sw);
+        final int COUNT = 40; // more than fits in the initial stack
+        SMNamespace[] nss = new SMNamespace[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            nss[i] = doc.getNamespace("http://ns"+i, "p"+i);
+        }
+        // lookups by URI must return same instances
+        assertSame(nss[3], doc.getNamespace("http://ns3"));
+        assertSame(nss[3], doc.getNamespace(new String("http://ns3")));
+
+        SMOutputElement root = doc.addElement("root");
+        for (int i = 0; i < COUNT; ++i) {
+            root.predeclareNamespace(nss[i]);
+        }
+        SMNamespace masking = doc.getNamespace("http://masking", "p1");
+        SMOutputElement leaf = root.addElement(nss[0], "leaf");
+        leaf.predeclareNamespace(masking);
+        leaf.addAttribute(masking, "attr", "a");
+        leaf.addAttribute(nss[2], "attr", "b");
+        // prefix "p1" is bound again to the original namespace; so
+        // new namespace wanting it must get another prefix
+        SMNamespace other = doc.getNamespace("http://other", "p1");
+        SMOutputElement leaf2 = root.addElement(nss[1], "leaf");
+        leaf2.addAttribute(other, "attr", "c");
+        doc.closeRoot();
+
+        XMLStreamReader sr = getCoalescingReader(sw.toString());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertElem(sr, null, "root");
+        assertEquals(COUNT, sr.getNamespaceCount());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertElem(sr, "http://ns0", "leaf");
+        assertEquals(1, sr.getNamespaceCount());
+        assertEquals("a", sr.getAttributeValue("http://masking", "attr"));
+        assertEquals("b", sr.getAttributeValue("http://ns2", "attr"));
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(START_ELEMENT, sr.next());
+        assertElem(sr, "http://ns1", "leaf");
+        assertEquals("p1", sr.getPrefix());
+        assertEquals(1, sr.getNamespaceCount());
+        assertFalse("p1".equals(sr.getNamespacePrefix(0)));
+        assertEquals("c", sr.getAttributeValue("http://other", "attr"));
+        assertTokenType(END_ELEMENT, sr.next());
+        assertTokenType(END_ELEMENT, sr.next());
+        sr.close();
+    }
 }
@@ -0,0 +1,110 @@
+package org.codehaus.staxmate.out;
+
+import java.io.*;
+import java.util.Arrays;
+
+import javax.xml.stream.*;
+
+import org.codehaus.staxmate.SMOutputFactory;
+import org.codehaus.staxmate.in.SMInputCursor;
+
+/**
+ * Unit tests for verifying that typed array and binary output
+ * methods work, both when writing directly and when buffering.
+ */
+public class TestTypedOutput
+    extends BaseWriterTest
+{
+    public void testArrayValues()
+        throws Exception
+    {
+        final int[] INTS = new int[] { 0, 1, -3, 1234567, Integer.MIN_VALUE };
+        final long[] LONGS = new long[] { -1L, 99999999999L };
+        final double[] DOUBLES = new double[] { 0.5, -2.25, 1e10 };
+
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = SMOutputFactory.createOutputDocument(getSimpleWriter(sw));
+        SMOutputElement root = doc.addElement("root");
+        // first directly written:
+        root.addElement("ints").addValue(INTS, 1, 3);
+        root.addElement("longs").addValue(LONGS, 0, LONGS.length);
+        // then buffered ones
+        SMBufferedElement buffered = root.createBufferedElement(null, "doubles");
+        double[] values = DOUBLES.clone();
+        buffered.addValue(values, 0, values.length);
+        // buffered content must be copied:
+        Arrays.fill(values, 0.0);
+        root.addAndReleaseBuffered(buffered);
+        SMBufferedFragment frag = root.createBufferedFragment();
+        root.addBuffered(frag);
+        frag.addElement("ints2").addValue(INTS, 0, INTS.length);
+        frag.release();
+        doc.closeRoot();
+
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(sw.toString())).advance();
+        SMInputCursor crsr = rootc.childElementCursor();
+
+        assertNotNull(crsr.getNext());
+        assertEquals("ints", crsr.getLocalName());
+        int[] ints = new int[10];
+        assertEquals(3, crsr.readElemIntArray(ints, 0, ints.length));
+        assertEquals(1, ints[0]);
+        assertEquals(-3, ints[1]);
+        assertEquals(1234567, ints[2]);
+
+        assertNotNull(crsr.getNext());
+        assertEquals("longs", crsr.getLocalName());
+        long[] longs = new long[10];
+        assertEquals(2, crsr.readElemLongArray(longs, 0, longs.length));
+        assertEquals(99999999999L, longs[1]);
+
+        assertNotNull(crsr.getNext());
+        assertEquals("doubles", crsr.getLocalName());
+        double[] doubles = new double[10];
+        assertEquals(3, crsr.readElemDoubleArray(doubles, 0, doubles.length));
+        assertEquals(-2.25, doubles[1]);
+        assertEquals(1e10, doubles[2]);
+
+        assertNotNull(crsr.getNext());
+        assertEquals("ints2", crsr.getLocalName());
+        assertEquals(5, crsr.readElemIntArray(ints, 0, ints.length));
+        assertEquals(Integer.MIN_VALUE, ints[4]);
+
+        assertNull(crsr.getNext());
+    }
+
+    public void testBinary()
+        throws Exception
+    {
+        // long enough to span multiple chunks, and not divisible by 3
+        byte[] data = new byte[SMOutputContainer.BINARY_CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i * 31);
+        }
+        StringWriter sw = new StringWriter();
+        SMOutputDocument doc = SMOutputFactory.createOutputDocument(getSimpleWriter(sw));
+        SMOutputElement root = doc.addElement("root");
+        root.addElement("a").addBinary(data, 0, data.length);
+        assertEquals((long) data.length,
+                     root.addElement("b").addBinary(new ByteArrayInputStream(data)));
+        SMBufferedFragment frag = root.createBufferedFragment();
+        root.addBuffered(frag);
+        frag.addElement("c").addBinary(new ByteArrayInputStream(data));
+        frag.addElement("d").addBinary(data, 1, 2);
+        frag.release();
+        doc.closeRoot();
+
+        SMInputCursor rootc = getInputFactory().rootElementCursor(new StringReader(sw.toString())).advance();
+        SMInputCursor crsr = rootc.childElementCursor();
+        for (int i = 0; i < 3; ++i) {
+            assertNotNull(crsr.getNext());
+            assertTrue(Arrays.equals(data, crsr.getElemBinaryValue()));
+        }
+        assertNotNull(crsr.getNext());
+        byte[] result = crsr.getElemBinaryValue();
+        assertEquals(2, result.length);
+        assertEquals(data[1], result[0]);
+        assertEquals(data[2], result[1]);
+        assertNull(crsr.getNext());
+    }
+}